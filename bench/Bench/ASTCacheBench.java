@@ -0,0 +1,94 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.ASTCache;
+import Main.Main;
+import Main.Symbol;
+import Nodes.BinaryAST;
+import Nodes.Block;
+import Nodes.ConstantFolder;
+import Parser.NodeBuilder;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Compares the front end (lexing, parsing, lowering and constant folding) of a generated program
+ * with the loading of its abstract tree from the cache, and checks that the loaded tree encodes
+ * to the same bytes as the tree built by the front end.
+ *
+ * Usage: java -cp bin:bench/bin Bench.ASTCacheBench [statements] [runs]
+ */
+public class ASTCacheBench {
+
+    /**
+     * This method runs the front end on a source
+     *
+     * @param source the source code of the program
+     * @return the block of the folded program
+     * @throws Exception the exception that may be thrown during the parsing process
+     */
+    static Block frontEnd(String source) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(source));
+        Parser parser = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+        ParseTree tree = parser.parse();
+        parser.buildAST(tree);
+        return new ConstantFolder().fold(NodeBuilder.build(tree));
+    }
+
+
+    static void run(int statements, int runs) throws Exception{
+        String source = ASTLoweringStressTest.generateProgram(statements);
+        byte[] bytes = source.getBytes(StandardCharsets.UTF_8);
+        Path directory = Files.createTempDirectory("pmpcache");
+        ASTCache cache = new ASTCache(directory);
+        String key = ASTCache.key(bytes);
+        Block built = frontEnd(source);
+        cache.store(key, built);
+        byte[] encoding = BinaryAST.encode(built);
+        System.out.println(statements + " statements, " + bytes.length + " bytes of source, " + encoding.length + " bytes of encoded tree");
+
+        long parseTime = Long.MAX_VALUE;
+        long loadTime = Long.MAX_VALUE;
+        Block loaded = null;
+        for(int run = 0; run < runs; run++){
+            long begin = System.nanoTime();
+            frontEnd(source);
+            parseTime = Math.min(parseTime, System.nanoTime() - begin);
+            begin = System.nanoTime();
+            loaded = cache.load(ASTCache.key(bytes));
+            loadTime = Math.min(loadTime, System.nanoTime() - begin);
+        }
+        System.out.printf("front end: %.1f ms, cache hit (hash and load): %.1f ms, speedup %.1fx%n", parseTime / 1e6, loadTime / 1e6, (double) parseTime / loadTime);
+
+        if(loaded == null){throw new AssertionError("the tree was not found in the cache");}
+        if(!Arrays.equals(BinaryAST.encode(loaded), encoding)){throw new AssertionError("the loaded tree differs from the tree built by the front end");}
+        System.out.println("loaded tree identical to the built tree");
+        Files.walk(directory).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Throwable[] failure = new Throwable[1];
+        // the parser is recursive, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(statements, runs);}
+            catch(Throwable t){failure[0] = t;}
+        }, "bench", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,115 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.LexicalUnit;
+import Main.Main;
+import Main.Symbol;
+import Parser.AST;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Lowers a program made of a large number of sibling statements, directly in the program and inside
+ * a while loop, with the single-pass lowering and with toAST, and checks that both build the same tree.
+ *
+ * Usage: java -cp bin:bench/bin Bench.ASTLoweringStressTest [statements]
+ */
+public class ASTLoweringStressTest {
+
+    /**
+     * This method generates a block made of the given number of sibling statements
+     *
+     * @param statements the number of statements of the block
+     * @return the source code of the statements, each one followed by "..."
+     */
+    static String generateBlock(int statements){
+        StringBuilder block = new StringBuilder();
+        for(int i = 0; i < statements; i++){
+            if(i % 5 == 4){block.append("  if x").append(i % 7).append(" < ").append(i).append(" then print(x").append(i % 3).append(") else");}
+            else{block.append("  x").append(i % 7).append(" := (x").append((i + 1) % 7).append(" + ").append(i).append(") * x").append(i % 3);}
+            block.append(" ...\n");
+        }
+        return block.toString();
+    }
+
+
+    /**
+     * This method generates a program made of the given number of sibling statements,
+     * the last one being a while loop whose body has a tenth of that number of sibling statements
+     *
+     * @param statements the number of statements of the program
+     * @return the source code of the program
+     */
+    static String generateProgram(int statements){
+        return "begin\n" + generateBlock(statements - 1) + "  while x0 < 10 do begin\n" + generateBlock(statements / 10) + "  x0 := x0 + 1\n  end\nend\n";
+    }
+
+
+    /**
+     * This method checks whether two abstract trees have the same labels
+     *
+     * @param a the first tree
+     * @param b the second tree
+     * @return true if the trees are identical
+     */
+    static boolean sameTree(ParseTree a, ParseTree b){
+        if(a.getLabel().getType() != b.getLabel().getType() || !Objects.equals(a.getLabel().getValue(), b.getLabel().getValue())){return false;}
+        if(a.getChildren().size() != b.getChildren().size()){return false;}
+        for(int i = 0; i < a.getChildren().size(); i++){
+            if(!sameTree(a.getChildren().get(i), b.getChildren().get(i))){return false;}
+        }
+        return true;
+    }
+
+
+    static void run(int statements) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(generateProgram(statements)));
+        System.out.println(statements + " sibling statements, " + tokens.size() + " tokens");
+        Parser parser = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+        ParseTree lowered = parser.parse();
+        ParseTree transformed = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()).parse();
+
+        long begin = System.nanoTime();
+        AST.lower(lowered);
+        long lowerTime = System.nanoTime() - begin;
+
+        Set<String> terminals = new HashSet<>(Arrays.asList(
+                "begin", "end", "...","for",
+                ":=", "if", "then", "else", "{","}",
+                "while", "print", "read", "do", "(", ")"));
+        Set<LexicalUnit> terminalUnits = new HashSet<>();
+        for(String terminal : terminals){terminalUnits.add(Main.getTerminalsMap().get(terminal));}
+        begin = System.nanoTime();
+        AST.toAST(transformed, parser.getGrammar().getVariables(), terminalUnits, terminals);
+        long toASTTime = System.nanoTime() - begin;
+
+        System.out.printf("single-pass lowering: %.1f ms, toAST: %.1f ms%n", lowerTime / 1e6, toASTTime / 1e6);
+        if(!sameTree(lowered, transformed)){throw new AssertionError("the lowered tree differs from the tree built by toAST");}
+        System.out.println("lowered tree identical to toAST");
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Throwable[] failure = new Throwable[1];
+        // the parser and sameTree are recursive, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(statements);}
+            catch(Throwable t){failure[0] = t;}
+        }, "stress", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,153 @@
+package Bench;
+
+import Grammar.Grammar;
+import Main.Main;
+import Main.Symbol;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Parses a program of a grammar whose statements all begin with "[VarName] :=", so that the cell of the action table
+ * of a statement and a variable name is a conflict the adaptive predictor resolves on the third token, or further
+ * for the nested statements, checks that the alternative of each statement is the one generated, and prints the time
+ * of a first parse, building the lookahead DFA, and of a second one walking it.
+ *
+ * Usage: java -cp bin:bench/bin Bench.AdaptivePredictionBench [statements]
+ */
+public class AdaptivePredictionBench {
+    private static final String[] ALTERNATIVES = {"<Set>", "<Copy>", "<Nested>"};
+
+
+    /**
+     * This method builds the grammar of the statements: a constant, a variable, or a statement in parentheses
+     *
+     * @return the grammar, whose variable &lt;Stmt&gt; is not LL(1)
+     */
+    static Grammar grammar(){
+        Map<String, ArrayList<ArrayList<String>>> rules = new HashMap<>();
+        rules.put("<Program>", rules("begin <List> end"));
+        rules.put("<List>", rules("<Stmt> <Tail>"));
+        rules.put("<Tail>", rules("... <List>", ""));
+        rules.put("<Stmt>", rules("<Set>", "<Copy>", "<Nested>"));
+        rules.put("<Set>", rules("[VarName] := [Number]"));
+        rules.put("<Copy>", rules("[VarName] := [VarName]"));
+        rules.put("<Nested>", rules("[VarName] := ( <Stmt> )"));
+        ArrayList<String> order = new ArrayList<>(Arrays.asList("<Program>", "<List>", "<Tail>", "<Stmt>", "<Set>", "<Copy>", "<Nested>"));
+        HashSet<String> terminals = new HashSet<>(Arrays.asList("begin", "end", "", "...", "[VarName]", ":=", "[Number]", "(", ")"));
+        return new Grammar(new HashSet<>(order), terminals, rules, "<Program>", order);
+    }
+
+
+    /**
+     * This method builds the rules of a variable
+     *
+     * @param rules the rules, their symbols being separated by spaces, the empty string being the epsilon rule
+     * @return the rules as lists of symbols
+     */
+    static ArrayList<ArrayList<String>> rules(String... rules){
+        ArrayList<ArrayList<String>> list = new ArrayList<>();
+        for(String rule : rules){list.add(new ArrayList<>(Arrays.asList(rule.isEmpty() ? new String[]{""} : rule.split(" "))));}
+        return list;
+    }
+
+
+    /**
+     * This method generates a program of the grammar
+     *
+     * @param statements the number of top-level statements
+     * @param expected the alternatives of the statements, in the order they begin, filled by the method
+     * @return the source code of the program
+     */
+    static String program(int statements, List<String> expected){
+        Random random = new Random(42);
+        StringBuilder source = new StringBuilder("begin\n");
+        for(int i = 0; i < statements; i++){
+            int depth = random.nextInt(4);
+            source.append("  x").append(i % 7).append(" := ");
+            for(int j = 0; j < depth; j++){
+                expected.add("<Nested>");
+                source.append("( y").append(j).append(" := ");
+            }
+            if(random.nextBoolean()){
+                expected.add("<Set>");
+                source.append(i);
+            }
+            else{
+                expected.add("<Copy>");
+                source.append('z').append(i % 5);
+            }
+            for(int j = 0; j < depth; j++){source.append(" )");}
+            source.append(i < statements - 1 ? " ...\n" : "\n");
+        }
+        return source.append("end\n").toString();
+    }
+
+
+    /**
+     * This method lists the alternatives chosen for the statements of a parse tree, in the order they begin
+     *
+     * @param tree the parse tree
+     * @return the labels of the children of the &lt;Stmt&gt; nodes
+     */
+    static List<String> alternatives(ParseTree tree){
+        List<String> alternatives = new ArrayList<>();
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(tree);
+        while(!stack.isEmpty()){
+            ParseTree node = stack.pop();
+            if("<Stmt>".equals(node.getLabel().getValue())){alternatives.add((String) node.getChildren().get(0).getLabel().getValue());}
+            for(int i = node.getChildren().size() - 1; i >= 0; i--){stack.push(node.getChildren().get(i));}
+        }
+        return alternatives;
+    }
+
+
+    static void run(int statements) throws Exception{
+        List<String> expected = new ArrayList<>();
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(program(statements, expected)));
+        System.out.println(statements + " statements, " + tokens.size() + " tokens, " + expected.size() + " predictions");
+        Parser parser = new Parser(grammar(), tokens, Main.getTerminalsMap());
+        for(String run : new String[]{"first parse", "second parse"}){
+            long begin = System.nanoTime();
+            ParseTree tree = parser.parse();
+            long time = System.nanoTime() - begin;
+            List<String> chosen = alternatives(tree);
+            if(!chosen.equals(expected)){
+                int i = 0;
+                while(i < Math.min(chosen.size(), expected.size()) && chosen.get(i).equals(expected.get(i))){i++;}
+                throw new AssertionError("statement " + i + " parsed as " + (i < chosen.size() ? chosen.get(i) : "nothing")
+                        + " instead of " + (i < expected.size() ? expected.get(i) : "nothing"));
+            }
+            System.out.printf("%-12s %8.1f ms, every alternative predicted as generated (%s)%n", run, time / 1e6, String.join(", ", ALTERNATIVES));
+        }
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Throwable[] failure = new Throwable[1];
+        // the parser is recursive, the list of statements being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(statements);}
+            catch(Throwable t){failure[0] = t;}
+        }, "bench", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,236 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.LexicalUnit;
+import Main.Main;
+import Main.Symbol;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.BinaryAST;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.ConstantFolder;
+import Nodes.Expression;
+import Nodes.ExpressionDAG;
+import Nodes.If;
+import Nodes.IntLit;
+import Nodes.Negate;
+import Nodes.Print;
+import Nodes.Read;
+import Nodes.Statement;
+import Nodes.VarRef;
+import Nodes.While;
+import Parser.AST;
+import Parser.LLVMCreator;
+import Parser.NodeBuilder;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Runs the passes working on trees on very deep trees, on a thread with a small stack: expressions
+ * made of a long chain of additions, of right-nested subtractions and of negations, a long chain of
+ * "and" and deeply nested while loops. The typed trees are built directly, then programs made of such
+ * chains are parsed on a thread with a large stack, the parser being recursive, and transformed into
+ * abstract trees on the small stack.
+ *
+ * Usage: java -cp bin:bench/bin Bench.DeepExpressionStressTest [depth]
+ */
+public class DeepExpressionStressTest {
+    private static final long SMALL_STACK = 1L << 18;
+    private static final long LARGE_STACK = 1L << 30;
+
+
+    /**
+     * This method runs a task on a new thread with the given stack size, exiting if it fails
+     *
+     * @param name the name of the task
+     * @param stackSize the stack size of the thread
+     * @param task the task run
+     * @throws InterruptedException the exception raised if the main thread is interrupted
+     */
+    static void runOnThread(String name, long stackSize, Task task) throws InterruptedException{
+        Throwable[] failure = new Throwable[1];
+        Thread thread = new Thread(null, () -> {
+            try{task.run();}
+            catch(Throwable t){failure[0] = t;}
+        }, name, stackSize);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            System.out.println(name + " failed");
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+
+    interface Task {
+        void run() throws Exception;
+    }
+
+
+    static Expression additions(int depth){
+        Expression expression = new VarRef("a");
+        for(int i = 0; i < depth; i++){expression = new BinOp(LexicalUnit.PLUS, expression, new IntLit(1));}
+        return expression;
+    }
+
+
+    static Expression subtractions(int depth){
+        Expression expression = new VarRef("a");
+        for(int i = 0; i < depth; i++){expression = new BinOp(LexicalUnit.MINUS, new IntLit(i), expression);}
+        return expression;
+    }
+
+
+    static Expression negations(int depth){
+        Expression expression = new VarRef("a");
+        for(int i = 0; i < depth; i++){expression = new Negate(expression);}
+        return expression;
+    }
+
+
+    static Cond conjunctions(int depth){
+        Cond condition = new Cond(LexicalUnit.SMALLER, new VarRef("a"), new IntLit(0));
+        for(int i = 0; i < depth; i++){condition = new Cond(LexicalUnit.AND, new Cond(LexicalUnit.SMALLER, new VarRef("a"), new IntLit(i)), condition);}
+        return condition;
+    }
+
+
+    static Statement loops(int depth){
+        Statement statement = new Print(new VarRef("a"));
+        for(int i = 0; i < depth; i++){
+            statement = new While(new Cond(LexicalUnit.SMALLER, new VarRef("a"), new IntLit(i)), new Block(new ArrayList<>(Collections.singletonList(statement))));
+        }
+        return statement;
+    }
+
+
+    /**
+     * This method builds a program made of a deep tree of the given shape
+     *
+     * @param shape the shape of the tree: additions, subtractions, negations, conjunctions or loops
+     * @param depth the depth of the tree
+     * @return the block of the instructions of the program
+     */
+    static Block program(String shape, int depth){
+        Statement statement;
+        switch(shape){
+            case "additions": statement = new Assign(new VarRef("b"), additions(depth)); break;
+            case "subtractions": statement = new Assign(new VarRef("b"), subtractions(depth)); break;
+            case "negations": statement = new Assign(new VarRef("b"), negations(depth)); break;
+            case "conjunctions": statement = new If(conjunctions(depth), new Block(new ArrayList<>(Collections.singletonList(new Print(new VarRef("b"))))), null); break;
+            default: statement = loops(depth);
+        }
+        return new Block(new ArrayList<>(Arrays.asList(new Read(new VarRef("a")), statement)));
+    }
+
+
+    static void typedTree(String shape, int depth, int emitted) throws Exception{
+        Block program = program(shape, depth);
+        long begin = System.nanoTime();
+        int nodes = ConstantFolder.countNodes(program);
+        long countTime = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        ConstantFolder folder = new ConstantFolder();
+        int foldedNodes = ConstantFolder.countNodes(folder.fold(program));
+        long foldTime = System.nanoTime() - begin;
+        if(folder.getNodesAfter() != foldedNodes){throw new AssertionError("the folder miscounted the nodes");}
+
+        begin = System.nanoTime();
+        ExpressionDAG dag = new ExpressionDAG();
+        Statement statement = program.getStatements().get(1);
+        if(statement instanceof Assign){
+            int id = dag.intern(((Assign) statement).getValue());
+            if(dag.intern(((Assign) program(shape, depth).getStatements().get(1)).getValue()) != id){throw new AssertionError("identical expressions interned to different nodes");}
+        }
+        long internTime = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        byte[] encoded = BinaryAST.encode(program);
+        byte[] reencoded = BinaryAST.encode(BinaryAST.decode(encoded));
+        if(!Arrays.equals(encoded, reencoded)){throw new AssertionError("the decoded tree differs from the encoded one");}
+        long encodeTime = System.nanoTime() - begin;
+
+        begin = System.nanoTime();
+        String code = new LLVMCreator(program(shape, emitted), EnumSet.noneOf(LLVMCreator.Mode.class)).getCode();
+        long emitTime = System.nanoTime() - begin;
+
+        System.out.printf("%-12s %8d nodes, count %.0f ms, fold to %d nodes %.0f ms, intern %d nodes %.0f ms, encode and decode %.0f ms, LLVM of depth %d %.0f ms (%d characters)%n",
+                shape, nodes, countTime / 1e6, folder.getNodesAfter(), foldTime / 1e6, dag.size(), internTime / 1e6, encodeTime / 1e6, emitted, emitTime / 1e6, code.length());
+    }
+
+
+    /**
+     * This method generates a program made of long chains of operations and of deeply nested blocks and loops
+     *
+     * @param depth the number of operations of the chains and of nested blocks and loops
+     * @return the source code of the program
+     */
+    static String generateProgram(int depth){
+        StringBuilder source = new StringBuilder("begin\n  a := a");
+        for(int i = 0; i < depth; i++){source.append(" + 1");}
+        source.append(" ...\n  b := ");
+        for(int i = 0; i < depth; i++){source.append(i).append(" - (");}
+        source.append('a');
+        for(int i = 0; i < depth; i++){source.append(')');}
+        source.append(" ...\n  if a < 0");
+        for(int i = 0; i < depth; i++){source.append(" and a < ").append(i);}
+        source.append(" then print(b) else ...\n");
+        for(int i = 0; i < depth; i++){source.append("  while a < ").append(i).append(" do begin\n");}
+        source.append("  print(a)\n");
+        for(int i = 0; i < depth; i++){source.append("  end\n");}
+        source.append("end\n");
+        return source.toString();
+    }
+
+
+    static void parsedTrees(int depth) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(generateProgram(depth)));
+        ParseTree[] trees = new ParseTree[2];
+        Parser[] parser = new Parser[1];
+        runOnThread("parse", LARGE_STACK, () -> {
+            parser[0] = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+            trees[0] = parser[0].parse();
+            trees[1] = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()).parse();
+        });
+        System.out.println("chains and nesting of depth " + depth + ", " + tokens.size() + " tokens");
+        runOnThread("transform", SMALL_STACK, () -> {
+            long begin = System.nanoTime();
+            AST.lower(trees[0]);
+            Block program = NodeBuilder.build(trees[0]);
+            System.out.printf("lower and build: %d nodes, %.1f ms%n", ConstantFolder.countNodes(program), (System.nanoTime() - begin) / 1e6);
+
+            Set<String> terminals = new HashSet<>(Arrays.asList(
+                    "begin", "end", "...", "for",
+                    ":=", "if", "then", "else", "{", "}",
+                    "while", "print", "read", "do", "(", ")"));
+            Set<LexicalUnit> terminalUnits = new HashSet<>();
+            for(String terminal : terminals){terminalUnits.add(Main.getTerminalsMap().get(terminal));}
+            begin = System.nanoTime();
+            AST.toAST(trees[1], parser[0].getGrammar().getVariables(), terminalUnits, terminals);
+            System.out.printf("toAST: %.1f ms%n", (System.nanoTime() - begin) / 1e6);
+        });
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        System.out.println("typed trees of depth " + depth + ", walked with a stack of " + (SMALL_STACK >> 10) + " KB");
+        for(String shape : new String[]{"additions", "subtractions", "negations", "conjunctions", "loops"}){
+            // the code is held in memory, about a hundred characters per node
+            runOnThread(shape, SMALL_STACK, () -> typedTree(shape, depth, Math.min(depth, 100000)));
+        }
+        parsedTrees(Math.max(1, depth / 100));
+    }
+
+}
@@ -0,0 +1,128 @@
+package Bench;
+
+import Main.LexicalUnit;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.If;
+import Nodes.IntLit;
+import Nodes.Print;
+import Nodes.Statement;
+import Nodes.VarRef;
+import Parser.LLVMCreator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Writes the LLVM code of generated programs of growing numbers of statements, the same statements as the ones
+ * of ASTLoweringStressTest built directly as typed nodes, and checks that the time of the emission per statement
+ * doesn't grow with the length of the program. With "stream", the code is streamed to a writer counting
+ * the characters, after checking that the streamed code is the code built in memory, so that the programs
+ * can be written with a heap smaller than their code.
+ *
+ * Usage: java -cp bin:bench/bin Bench.EmissionBench [max statements] [stream]
+ */
+public class EmissionBench {
+    // the time per statement of the largest program may exceed the one of the smallest by this factor
+    private static final double MAX_GROWTH = 4;
+
+
+    /**
+     * This method builds a program made of the given number of sibling statements
+     *
+     * @param statements the number of statements of the program
+     * @return the block of the statements
+     */
+    static Block program(int statements){
+        List<Statement> block = new ArrayList<>(statements);
+        for(int i = 0; i < statements; i++){
+            if(i % 5 == 4){
+                Cond condition = new Cond(LexicalUnit.SMALLER, new VarRef("x" + i % 7), new IntLit(i));
+                block.add(new If(condition, new Block(new ArrayList<>(Collections.singletonList(new Print(new VarRef("x" + i % 3))))), null));
+            }
+            else{
+                BinOp sum = new BinOp(LexicalUnit.PLUS, new VarRef("x" + (i + 1) % 7), new IntLit(i));
+                block.add(new Assign(new VarRef("x" + i % 7), new BinOp(LexicalUnit.TIMES, sum, new VarRef("x" + i % 3))));
+            }
+        }
+        return new Block(block);
+    }
+
+
+    /**
+     * A writer counting the characters written, and discarding them
+     */
+    static class CountingWriter extends Writer {
+        long count = 0;
+
+        @Override
+        public void write(char[] buffer, int offset, int length){count += length;}
+
+        @Override
+        public void write(String text, int offset, int length){count += length;}
+
+        @Override
+        public void flush(){}
+
+        @Override
+        public void close(){}
+    }
+
+
+    /**
+     * This method writes the code of a program of the given number of statements
+     *
+     * @param statements the number of statements of the program
+     * @param stream whether the code is streamed to a writer instead of being kept in memory
+     * @return the time of the emission per statement, in nanoseconds
+     * @throws IOException the exception raised if the code cannot be written
+     */
+    static double emit(int statements, boolean stream) throws IOException{
+        Block program = program(statements);
+        System.gc();
+        long begin = System.nanoTime();
+        long length;
+        if(stream){
+            CountingWriter out = new CountingWriter();
+            new LLVMCreator(program, out, EnumSet.noneOf(LLVMCreator.Mode.class));
+            length = out.count;
+        }
+        else{length = new LLVMCreator(program, EnumSet.noneOf(LLVMCreator.Mode.class)).getCode().length();}
+        long time = System.nanoTime() - begin;
+        double perStatement = (double) time / statements;
+        System.out.printf("%8d statements: %8.1f ms, %6.0f ns per statement, %10d characters%n", statements, time / 1e6, perStatement, length);
+        return perStatement;
+    }
+
+
+    public static void main(String[] args) throws IOException{
+        int maxStatements = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        boolean stream = args.length > 1 && args[1].equals("stream");
+        if(stream){
+            StringWriter out = new StringWriter();
+            new LLVMCreator(program(10000), out, EnumSet.noneOf(LLVMCreator.Mode.class));
+            if(!out.toString().equals(new LLVMCreator(program(10000), EnumSet.noneOf(LLVMCreator.Mode.class)).getCode())){throw new AssertionError("the streamed code differs from the code built in memory");}
+            System.out.println("streamed code identical to the code built in memory");
+        }
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){emit(10000, stream);}
+        double smallest = 0, largest = 0;
+        for(int statements = 10000; statements <= maxStatements; statements *= 10){
+            largest = emit(statements, stream);
+            if(smallest == 0){smallest = largest;}
+        }
+        System.out.printf("time per statement of the largest program: %.2f times the one of the smallest%n", largest / smallest);
+        if(largest > MAX_GROWTH * smallest){
+            System.out.println("the emission doesn't scale linearly");
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package Bench;
+
+import IR.Function;
+import IR.GVN;
+import IR.Module;
+import Nodes.Block;
+import Parser.LLVMCreator;
+
+import java.util.EnumSet;
+
+/**
+ * Numbers the values of the program of EmissionBench, its variables staying in memory, the values of the expressions
+ * being stored in stack slots and held in registers, and prints the time of the pass and the counts of the main
+ * function before and after it.
+ *
+ * Usage: java -cp bin:bench/bin Bench.GVNBench [statements]
+ */
+public class GVNBench {
+
+    /**
+     * This method numbers the values of the code of a program in one mode and prints its statistics
+     *
+     * @param program the block of the program
+     * @param registers whether the values of the expressions are held in registers
+     */
+    static void number(Block program, boolean registers){
+        Module module = new LLVMCreator(program, registers ? EnumSet.of(LLVMCreator.Mode.REGISTERS) : EnumSet.noneOf(LLVMCreator.Mode.class)).getModule();
+        Function main = module.getFunctions().get(0);
+        String before = Mem2RegBench.counts(main);
+        long begin = System.nanoTime();
+        GVN gvn = new GVN();
+        gvn.run(module);
+        long time = System.nanoTime() - begin;
+        System.out.printf("%-12s gvn %8.1f ms%n  before: %s%n  after:  %s%n", registers ? "registers" : "stack slots", time / 1e6, before, Mem2RegBench.counts(main));
+    }
+
+
+    public static void main(String[] args){
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Block program = EmissionBench.program(statements);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            number(program, false);
+            number(program, true);
+        }
+    }
+
+}
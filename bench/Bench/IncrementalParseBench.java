@@ -0,0 +1,153 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.LexicalUnit;
+import Main.Main;
+import Main.Symbol;
+import Parser.IncrementalParser;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * Measures the latency of single-character edits on a large program, reparsed from scratch
+ * and with the incremental parser, and checks that both produce the same parse tree and abstract tree.
+ * The edits change the last digit of a number, or add or remove a minus sign before it.
+ *
+ * Usage: java -cp bin:bench/bin Bench.IncrementalParseBench [lines] [edits]
+ */
+public class IncrementalParseBench {
+
+    /**
+     * This method generates a program made of the given number of lines
+     *
+     * @param lines the number of lines of the program
+     * @return the source code of the program
+     */
+    static String generateProgram(int lines){
+        StringBuilder source = new StringBuilder("begin\n");
+        for(int i = 0; i < lines - 2; i++){
+            if(i % 10 == 9){source.append("  while x").append(i % 7).append(" < ").append(i).append(" do x").append(i % 7).append(" := x").append(i % 7).append(" + 1");}
+            else{source.append("  x").append(i % 7).append(" := x").append((i + 1) % 7).append(" * ").append(i % 97 + 1).append(" - 3");}
+            source.append(i < lines - 3 ? " ...\n" : "\n");
+        }
+        return source.append("end\n").toString();
+    }
+
+
+    /**
+     * This method checks whether two trees have the same labels and token spans
+     *
+     * @param a the first tree
+     * @param b the second tree
+     * @param spans whether the token spans are compared, the abstract trees having none
+     * @return true if the trees are identical
+     */
+    static boolean sameTree(ParseTree a, ParseTree b, boolean spans){
+        if(a.getLabel().getType() != b.getLabel().getType() || !Objects.equals(a.getLabel().getValue(), b.getLabel().getValue())){return false;}
+        if(spans && (a.getTokenOffset() != b.getTokenOffset() || a.getTokenCount() != b.getTokenCount())){return false;}
+        if(a.getChildren().size() != b.getChildren().size()){return false;}
+        for(int i = 0; i < a.getChildren().size(); i++){
+            if(!sameTree(a.getChildren().get(i), b.getChildren().get(i), spans)){return false;}
+        }
+        return true;
+    }
+
+
+    /**
+     * This method returns the percentile of an array of sorted durations
+     */
+    static double percentile(long[] sorted, double p){
+        return sorted[(int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)))] / 1e6;
+    }
+
+
+    static void run(int lines, int edits) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(generateProgram(lines)));
+        System.out.println(lines + " lines, " + tokens.size() + " tokens");
+
+        long begin = System.nanoTime();
+        Parser parser = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+        ParseTree full = parser.parse();
+        long parseTime = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        parser.buildAST(full);
+        long astTime = System.nanoTime() - begin;
+        System.out.printf("full parse: %.1f ms, full AST: %.1f ms%n", parseTime / 1e6, astTime / 1e6);
+
+        IncrementalParser incremental = new IncrementalParser(new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()));
+        incremental.parse();
+        incremental.buildAST();
+
+        Random random = new Random(42);
+        long[] reparseTimes = new long[edits];
+        long[] astTimes = new long[edits];
+        long reparsed = 0;
+        for(int e = 0; e < edits; e++){
+            // a single character edit of a number: its last digit, or a minus sign added or removed before it
+            int position = random.nextInt(tokens.size());
+            while(tokens.get(position).getType() != LexicalUnit.NUMBER){position = (position + 1) % tokens.size();}
+            Symbol old = tokens.get(position);
+            int editStart = position, oldEditEnd = position + 1, newEditEnd = position + 1;
+            if(e % 2 == 0){
+                int value = (Integer) old.getValue();
+                tokens.set(position, new Symbol(LexicalUnit.NUMBER, old.getLine() - 1, old.getColumn(), value - value % 10 + (value + 1) % 10));
+            }
+            else if(tokens.get(position - 1).getType() == LexicalUnit.MINUS && tokens.get(position - 2).getType() == LexicalUnit.TIMES){
+                tokens.remove(position - 1);
+                editStart = position - 1;
+                newEditEnd = position - 1;
+                oldEditEnd = position;
+            }
+            else{
+                tokens.add(position, new Symbol(LexicalUnit.MINUS, old.getLine() - 1, old.getColumn(), "-"));
+                oldEditEnd = position;
+                newEditEnd = position + 1;
+            }
+            begin = System.nanoTime();
+            incremental.reparse(tokens, editStart, oldEditEnd, newEditEnd);
+            reparseTimes[e] = System.nanoTime() - begin;
+            reparsed += incremental.getReparsedTokens();
+            begin = System.nanoTime();
+            incremental.buildAST();
+            astTimes[e] = System.nanoTime() - begin;
+        }
+        Arrays.sort(reparseTimes);
+        Arrays.sort(astTimes);
+        System.out.printf("incremental reparse: median %.3f ms, p99 %.3f ms, %.1f tokens reparsed per edit%n",
+                percentile(reparseTimes, 0.5), percentile(reparseTimes, 0.99), (double) reparsed / edits);
+        System.out.printf("incremental AST: median %.3f ms, p99 %.3f ms%n", percentile(astTimes, 0.5), percentile(astTimes, 0.99));
+
+        Parser fullParser = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+        ParseTree expected = fullParser.parse();
+        if(!sameTree(expected, incremental.getParseTree(), true)){throw new AssertionError("incremental parse tree differs from a full parse");}
+        System.out.println("incremental parse tree identical to a full parse");
+        fullParser.buildAST(expected);
+        if(!sameTree(expected, incremental.buildAST(), false)){throw new AssertionError("incremental abstract tree differs from a full buildAST");}
+        System.out.println("incremental abstract tree identical to a full buildAST");
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int edits = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        Throwable[] failure = new Throwable[1];
+        // the parser and sameTree are recursive, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(lines, edits);}
+            catch(Throwable t){failure[0] = t;}
+        }, "bench", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,95 @@
+package Bench;
+
+import IR.Function;
+import IR.LICM;
+import IR.Mem2Reg;
+import IR.Module;
+import Main.LexicalUnit;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.IntLit;
+import Nodes.Print;
+import Nodes.Read;
+import Nodes.Statement;
+import Nodes.VarRef;
+import Nodes.While;
+import Parser.LLVMCreator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Hoists the invariants of a generated program made of sibling loops, each one holding a nested loop, whose conditions
+ * and bodies compute expressions of variables read before the loops, and prints the time of the pass and the counts
+ * of the main function before and after it, in memory and once the variables are promoted to registers.
+ *
+ * Usage: java -cp bin:bench/bin Bench.LICMBench [loops]
+ */
+public class LICMBench {
+
+    /**
+     * This method builds a program made of the given number of loops, the variables n and m being read before them
+     *
+     * @param loops the number of loops of the program
+     * @return the block of the statements
+     */
+    static Block program(int loops){
+        List<Statement> block = new ArrayList<>(2 * loops + 3);
+        block.add(new Read(new VarRef("n")));
+        block.add(new Read(new VarRef("m")));
+        block.add(new Assign(new VarRef("x"), new IntLit(0)));
+        for(int i = 0; i < loops; i++){
+            // while j < n * m do begin x := x + (n - i) * m... j := j + 1 end
+            BinOp invariant = new BinOp(LexicalUnit.TIMES, new BinOp(LexicalUnit.MINUS, new VarRef("n"), new IntLit(i)), new VarRef("m"));
+            Block inner = new Block(new ArrayList<>(Arrays.asList(
+                    new Assign(new VarRef("x"), new BinOp(LexicalUnit.PLUS, new VarRef("x"), invariant)),
+                    new Assign(new VarRef("j"), new BinOp(LexicalUnit.PLUS, new VarRef("j"), new IntLit(1))))));
+            Cond innerCondition = new Cond(LexicalUnit.SMALLER, new VarRef("j"), new BinOp(LexicalUnit.TIMES, new VarRef("n"), new VarRef("m")));
+            // while k < n + i do begin j := 0... inner loop... k := k + 1 end
+            Block outer = new Block(new ArrayList<>(Arrays.asList(
+                    new Assign(new VarRef("j"), new IntLit(0)),
+                    new While(innerCondition, inner),
+                    new Assign(new VarRef("k"), new BinOp(LexicalUnit.PLUS, new VarRef("k"), new IntLit(1))))));
+            block.add(new Assign(new VarRef("k"), new IntLit(0)));
+            block.add(new While(new Cond(LexicalUnit.SMALLER, new VarRef("k"), new BinOp(LexicalUnit.PLUS, new VarRef("n"), new IntLit(i))), outer));
+        }
+        block.add(new Print(new VarRef("x")));
+        return new Block(block);
+    }
+
+
+    /**
+     * This method hoists the invariants of the code of a program and prints its statistics
+     *
+     * @param program the block of the program
+     * @param promoted whether the variables are promoted to registers first
+     */
+    static void hoist(Block program, boolean promoted){
+        Module module = new LLVMCreator(program, EnumSet.of(LLVMCreator.Mode.REGISTERS)).getModule();
+        if(promoted){new Mem2Reg().run(module);}
+        Function main = module.getFunctions().get(0);
+        String before = Mem2RegBench.counts(main);
+        long begin = System.nanoTime();
+        LICM licm = new LICM();
+        licm.run(module);
+        long time = System.nanoTime() - begin;
+        System.out.printf("%-10s licm %8.1f ms%n  before: %s%n  after:  %s%n  %s%n", promoted ? "registers" : "memory", time / 1e6, before,
+                Mem2RegBench.counts(main), licm.getStatistics());
+    }
+
+
+    public static void main(String[] args){
+        int loops = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Block program = program(loops);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            hoist(program, false);
+            hoist(program, true);
+        }
+    }
+
+}
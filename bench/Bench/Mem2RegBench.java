@@ -0,0 +1,71 @@
+package Bench;
+
+import IR.BasicBlock;
+import IR.Function;
+import IR.Instruction;
+import IR.Mem2Reg;
+import IR.Module;
+import IR.Opcode;
+import Nodes.Block;
+import Parser.LLVMCreator;
+
+import java.util.EnumSet;
+
+/**
+ * Promotes the variables and the stack slots of the program of EmissionBench to registers, the values of the
+ * expressions being stored in stack slots and held in registers, and prints the time of the pass and the
+ * memory traffic of the main function before and after it.
+ *
+ * Usage: java -cp bin:bench/bin Bench.Mem2RegBench [statements]
+ */
+public class Mem2RegBench {
+
+    /**
+     * This method counts the instructions of a function and its allocations, loads, stores and phi nodes
+     *
+     * @param function the function
+     * @return the text of the counts
+     */
+    static String counts(Function function){
+        int[] counts = new int[Opcode.values().length];
+        int instructions = 0;
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                counts[instruction.getOpcode().ordinal()]++;
+                instructions++;
+            }
+        }
+        return String.format("%8d instructions, %8d alloca, %8d load, %8d store, %8d phi", instructions, counts[Opcode.ALLOCA.ordinal()],
+                counts[Opcode.LOAD.ordinal()], counts[Opcode.STORE.ordinal()], counts[Opcode.PHI.ordinal()]);
+    }
+
+
+    /**
+     * This method promotes the allocations of the code of a program in one mode and prints its statistics
+     *
+     * @param program the block of the program
+     * @param registers whether the values of the expressions are held in registers
+     */
+    static void promote(Block program, boolean registers){
+        Module module = new LLVMCreator(program, registers ? EnumSet.of(LLVMCreator.Mode.REGISTERS) : EnumSet.noneOf(LLVMCreator.Mode.class)).getModule();
+        Function main = module.getFunctions().get(0);
+        String before = counts(main);
+        long begin = System.nanoTime();
+        Mem2Reg mem2reg = new Mem2Reg();
+        mem2reg.run(module);
+        long time = System.nanoTime() - begin;
+        System.out.printf("%-12s mem2reg %8.1f ms%n  before: %s%n  after:  %s%n", registers ? "registers" : "stack slots", time / 1e6, before, counts(main));
+    }
+
+
+    public static void main(String[] args){
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Block program = EmissionBench.program(statements);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            promote(program, false);
+            promote(program, true);
+        }
+    }
+
+}
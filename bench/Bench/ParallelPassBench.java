@@ -0,0 +1,78 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.Main;
+import Main.Symbol;
+import Nodes.BinaryAST;
+import Nodes.Block;
+import Parser.AST;
+import Parser.NodeBuilder;
+import Parser.ParallelPassRunner;
+import Parser.ParseTree;
+import Parser.Parser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Lowers and converts to typed nodes a program made of a large number of sibling statements, serially and
+ * with the top-level instructions walked in parallel, and checks that the trees built are identical.
+ *
+ * Usage: java -cp bin:bench/bin Bench.ParallelPassBench [statements] [runs]
+ */
+public class ParallelPassBench {
+
+    static void run(int statements, int runs) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(ASTLoweringStressTest.generateProgram(statements)));
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println(statements + " sibling statements, " + tokens.size() + " tokens, parallelism " + pool.getParallelism());
+        ParallelPassRunner runner = new ParallelPassRunner(pool, 1);
+
+        byte[] expected = null;
+        for(int run = 0; run < runs; run++){
+            ParseTree serialTree = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()).parse();
+            ParseTree parallelTree = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()).parse();
+
+            System.gc();
+            long begin = System.nanoTime();
+            AST.lower(serialTree);
+            Block serialProgram = NodeBuilder.build(serialTree);
+            long serialTime = System.nanoTime() - begin;
+
+            System.gc();
+            begin = System.nanoTime();
+            AST.lower(parallelTree, runner);
+            Block parallelProgram = NodeBuilder.build(parallelTree, runner);
+            long parallelTime = System.nanoTime() - begin;
+
+            System.out.printf("run %d: serial %.1f ms, parallel %.1f ms%n", run + 1, serialTime / 1e6, parallelTime / 1e6);
+            if(!ASTLoweringStressTest.sameTree(serialTree, parallelTree)){throw new AssertionError("the tree lowered in parallel differs from the serial one");}
+            byte[] encoded = BinaryAST.encode(parallelProgram);
+            if(!Arrays.equals(BinaryAST.encode(serialProgram), encoded)){throw new AssertionError("the typed tree built in parallel differs from the serial one");}
+            if(expected != null && !Arrays.equals(expected, encoded)){throw new AssertionError("the typed tree built in parallel differs between runs");}
+            expected = encoded;
+        }
+        System.out.println("parallel trees identical to the serial ones");
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Throwable[] failure = new Throwable[1];
+        // the parser and sameTree are recursive, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(statements, runs);}
+            catch(Throwable t){failure[0] = t;}
+        }, "bench", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
@@ -0,0 +1,49 @@
+package Bench;
+
+import IR.Function;
+import IR.Module;
+import IR.Peephole;
+import Nodes.Block;
+import Parser.LLVMCreator;
+
+import java.util.EnumSet;
+
+/**
+ * Rewrites the local patterns of the code of the program of EmissionBench, as emitted without any other pass,
+ * the values of the expressions being stored in stack slots and held in registers, and prints the time of the pass,
+ * the counts of the main function before and after it and the rewrites of each pattern.
+ *
+ * Usage: java -cp bin:bench/bin Bench.PeepholeBench [statements]
+ */
+public class PeepholeBench {
+
+    /**
+     * This method rewrites the code of a program in one mode and prints its statistics
+     *
+     * @param program the block of the program
+     * @param registers whether the values of the expressions are held in registers
+     */
+    static void rewrite(Block program, boolean registers){
+        Module module = new LLVMCreator(program, registers ? EnumSet.of(LLVMCreator.Mode.REGISTERS) : EnumSet.noneOf(LLVMCreator.Mode.class)).getModule();
+        Function main = module.getFunctions().get(0);
+        String before = Mem2RegBench.counts(main);
+        long begin = System.nanoTime();
+        Peephole peephole = new Peephole();
+        peephole.run(module);
+        long time = System.nanoTime() - begin;
+        System.out.printf("%-12s peephole %8.1f ms%n  before: %s%n  after:  %s%n  %s%n", registers ? "registers" : "stack slots", time / 1e6, before,
+                Mem2RegBench.counts(main), peephole.getStatistics());
+    }
+
+
+    public static void main(String[] args){
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Block program = EmissionBench.program(statements);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            rewrite(program, false);
+            rewrite(program, true);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package Bench;
+
+import Nodes.Block;
+import Parser.LLVMCreator;
+
+import java.util.EnumSet;
+
+/**
+ * Writes the LLVM code of the program of EmissionBench with the values of the expressions stored in stack slots
+ * and held in registers, in SSA form, and compares the sizes of the code and its memory traffic.
+ *
+ * Usage: java -cp bin:bench/bin Bench.RegisterCodegenBench [statements]
+ */
+public class RegisterCodegenBench {
+
+    /**
+     * This method counts the occurrences of a string in the code of the main function
+     *
+     * @param code the code of the module
+     * @param pattern the string counted
+     * @return the number of occurrences
+     */
+    static int count(String code, String pattern){
+        int count = 0;
+        for(int i = code.indexOf(pattern, code.indexOf("define i32 @main")); i >= 0; i = code.indexOf(pattern, i + 1)){count++;}
+        return count;
+    }
+
+
+    /**
+     * This method writes the code of a program in one mode and prints its statistics
+     *
+     * @param program the block of the program
+     * @param registers whether the values of the expressions are held in registers
+     * @return the length of the code
+     */
+    static int emit(Block program, boolean registers){
+        long begin = System.nanoTime();
+        String code = new LLVMCreator(program, registers ? EnumSet.of(LLVMCreator.Mode.REGISTERS) : EnumSet.noneOf(LLVMCreator.Mode.class)).getCode();
+        long time = System.nanoTime() - begin;
+        System.out.printf("%-12s %8.1f ms, %10d characters, %8d instructions, %8d alloca, %8d load, %8d store%n",
+                registers ? "registers" : "stack slots", time / 1e6, code.length(), count(code, "\n") - count(code, ":\n"),
+                count(code, "alloca"), count(code, "= load"), count(code, "store "));
+        return code.length();
+    }
+
+
+    public static void main(String[] args){
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Block program = EmissionBench.program(statements);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            emit(program, false);
+            emit(program, true);
+        }
+        int slots = emit(program, false);
+        int registers = emit(program, true);
+        System.out.printf("code in registers: %.2f times smaller%n", (double) slots / registers);
+    }
+
+}
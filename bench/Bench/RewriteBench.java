@@ -0,0 +1,98 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.LexicalUnit;
+import Main.Main;
+import Main.Symbol;
+import Parser.AST;
+import Parser.ParseTree;
+import Parser.Parser;
+import Parser.RewriteEngine;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Compares the rewrite engine applying the rules of AST.rewriteRules with the hand-written passes of toAST
+ * and with the single-pass lowering, on the program of ASTLoweringStressTest, and checks that the three
+ * build the same tree. The number of applications of each rule and the size of the automaton are printed.
+ *
+ * Usage: java -cp bin:bench/bin Bench.RewriteBench [statements] [runs]
+ */
+public class RewriteBench {
+
+    static ParseTree parse(ArrayList<Symbol> tokens) throws Exception{
+        return new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap()).parse();
+    }
+
+
+    static void run(int statements, int runs) throws Exception{
+        ArrayList<Symbol> tokens = Main.tokenize(new StringReader(ASTLoweringStressTest.generateProgram(statements)));
+        System.out.println(statements + " sibling statements, " + tokens.size() + " tokens");
+        Parser parser = new Parser(new PmpGrammar(), tokens, Main.getTerminalsMap());
+        parser.parse();
+        Set<String> terminals = new HashSet<>(Arrays.asList(
+                "begin", "end", "...","for",
+                ":=", "if", "then", "else", "{","}",
+                "while", "print", "read", "do", "(", ")"));
+        Set<LexicalUnit> terminalUnits = new HashSet<>();
+        for(String terminal : terminals){terminalUnits.add(Main.getTerminalsMap().get(terminal));}
+
+        for(int run = 0; run < runs; run++){
+            ParseTree transformed = parse(tokens);
+            ParseTree lowered = parse(tokens);
+            ParseTree rewritten = parse(tokens);
+
+            // the garbage left by a pass is collected before the next one
+            System.gc();
+            long begin = System.nanoTime();
+            AST.toAST(transformed, parser.getGrammar().getVariables(), terminalUnits, terminals);
+            long toASTTime = System.nanoTime() - begin;
+
+            System.gc();
+            begin = System.nanoTime();
+            AST.lower(lowered);
+            long lowerTime = System.nanoTime() - begin;
+
+            System.gc();
+            begin = System.nanoTime();
+            AST.rewrite(rewritten);
+            long rewriteTime = System.nanoTime() - begin;
+
+            System.out.printf("run %d: toAST %.1f ms, single-pass lowering %.1f ms, rewrite engine %.1f ms%n", run + 1, toASTTime / 1e6, lowerTime / 1e6, rewriteTime / 1e6);
+            if(!ASTLoweringStressTest.sameTree(rewritten, transformed)){throw new AssertionError("the rewritten tree differs from the tree built by toAST");}
+            if(!ASTLoweringStressTest.sameTree(rewritten, lowered)){throw new AssertionError("the rewritten tree differs from the lowered tree");}
+        }
+        System.out.println("rewritten tree identical to toAST and to the lowered tree");
+
+        RewriteEngine engine = new RewriteEngine(AST.rewriteRules());
+        engine.rewrite(parse(tokens));
+        for(Map.Entry<String, Long> rule : engine.getApplications().entrySet()){
+            System.out.printf("  %-18s %10d applications%n", rule.getKey(), rule.getValue());
+        }
+        System.out.println("automaton: " + engine.getStateCount() + " states, " + engine.getTransitionCount() + " transitions");
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Throwable[] failure = new Throwable[1];
+        // the parser and sameTree are recursive, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{run(statements, runs);}
+            catch(Throwable t){failure[0] = t;}
+        }, "bench", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+    }
+
+}
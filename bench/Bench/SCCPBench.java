@@ -0,0 +1,87 @@
+package Bench;
+
+import IR.Function;
+import IR.Mem2Reg;
+import IR.Module;
+import IR.SCCP;
+import Main.LexicalUnit;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.If;
+import Nodes.IntLit;
+import Nodes.Print;
+import Nodes.Read;
+import Nodes.Statement;
+import Nodes.VarRef;
+import Parser.LLVMCreator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Propagates the constants of a generated program whose variables are read or set to constants, and whose conditions
+ * on the constant ones always take the same branch, once its variables are promoted to registers, and prints
+ * the time of the pass and the counts of the main function before and after it.
+ *
+ * Usage: java -cp bin:bench/bin Bench.SCCPBench [statements]
+ */
+public class SCCPBench {
+
+    /**
+     * This method builds a program made of the given number of statements, the variables c0 to c6 holding constants
+     * and the variables x0 to x6 read
+     *
+     * @param statements the number of statements of the program
+     * @return the block of the statements
+     */
+    static Block program(int statements){
+        List<Statement> block = new ArrayList<>(statements + 14);
+        for(int i = 0; i < 7; i++){
+            block.add(new Assign(new VarRef("c" + i), new IntLit(i)));
+            block.add(new Read(new VarRef("x" + i)));
+        }
+        for(int i = 0; i < statements; i++){
+            VarRef constant = new VarRef("c" + i % 7);
+            if(i % 3 == 2){
+                // the condition holds on every path, the print of the else branch is never executed
+                Cond condition = new Cond(LexicalUnit.SMALLER, constant, new IntLit(7));
+                Block thenBlock = new Block(new ArrayList<>(Collections.singletonList(new Print(new VarRef("x" + i % 7)))));
+                Block elseBlock = new Block(new ArrayList<>(Collections.singletonList(new Print(new VarRef("c" + i % 7)))));
+                block.add(new If(condition, thenBlock, elseBlock));
+            }
+            else if(i % 3 == 1){
+                // the constants keep the same value, the sum of a variable and its difference with itself
+                BinOp difference = new BinOp(LexicalUnit.MINUS, new VarRef("c" + (i + 1) % 7), new VarRef("c" + (i + 1) % 7));
+                block.add(new Assign(constant, new BinOp(LexicalUnit.PLUS, new VarRef("c" + i % 7), difference)));
+            }
+            else{
+                BinOp product = new BinOp(LexicalUnit.TIMES, new VarRef("x" + (i + 1) % 7), constant);
+                block.add(new Assign(new VarRef("x" + i % 7), new BinOp(LexicalUnit.PLUS, product, new VarRef("c" + (i + 3) % 7))));
+            }
+        }
+        return new Block(block);
+    }
+
+
+    public static void main(String[] args){
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        Block program = program(statements);
+        // the first programs warm the compiler up
+        for(int i = 0; i < 3; i++){
+            Module module = new LLVMCreator(program, EnumSet.of(LLVMCreator.Mode.REGISTERS, LLVMCreator.Mode.SHORT_CIRCUIT)).getModule();
+            new Mem2Reg().run(module);
+            Function main = module.getFunctions().get(0);
+            String before = Mem2RegBench.counts(main);
+            long begin = System.nanoTime();
+            SCCP sccp = new SCCP();
+            sccp.run(module);
+            long time = System.nanoTime() - begin;
+            System.out.printf("sccp %8.1f ms%n  before: %s%n  after:  %s%n  %s%n", time / 1e6, before, Mem2RegBench.counts(main), sccp.getStatistics());
+        }
+    }
+
+}
@@ -0,0 +1,125 @@
+package Bench;
+
+import Grammar.PmpGrammar;
+import Main.Main;
+import Parser.ParseTree;
+import Parser.Parser;
+import Parser.TreeExporter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Exports the parse tree of a program made of a large number of sibling statements, whose right-nested
+ * instruction list makes the tree as deep as the program is long. The LaTeX and TikZ exports of a smaller
+ * tree are compared with the former recursive implementations, then every format of the large tree is
+ * written to a file on a thread with the default stack size.
+ *
+ * Usage: java -cp bin:bench/bin Bench.TreeExportStressTest [statements]
+ */
+public class TreeExportStressTest {
+
+    /**
+     * This method writes a tree as LaTeX code the way ParseTree did, building a string per node
+     *
+     * @param tree the tree written
+     * @return the LaTeX code of the tree
+     */
+    static String recursiveLaTexTree(ParseTree tree){
+        StringBuilder treeTeX = new StringBuilder();
+        treeTeX.append("[");
+        treeTeX.append("{" + tree.getLabel().toTexString() + "}");
+        treeTeX.append(" ");
+        for(ParseTree child : tree.getChildren()){treeTeX.append(recursiveLaTexTree(child));}
+        treeTeX.append("]");
+        return treeTeX.toString();
+    }
+
+
+    /**
+     * This method writes a tree as TikZ code the way ParseTree did, building a string per node
+     *
+     * @param tree the tree written
+     * @return the TikZ code of the tree
+     */
+    static String recursiveTikZ(ParseTree tree){
+        StringBuilder treeTikZ = new StringBuilder();
+        treeTikZ.append("node {");
+        treeTikZ.append(tree.getLabel().toTexString());
+        treeTikZ.append("}\n");
+        for(ParseTree child : tree.getChildren()){
+            treeTikZ.append("child { ");
+            treeTikZ.append(recursiveTikZ(child));
+            treeTikZ.append(" }\n");
+        }
+        return treeTikZ.toString();
+    }
+
+
+    static ParseTree parse(int statements) throws Exception{
+        String source = ASTLoweringStressTest.generateProgram(statements);
+        return new Parser(new PmpGrammar(), Main.tokenize(new StringReader(source)), Main.getTerminalsMap()).parse();
+    }
+
+
+    static void compare(int statements) throws Exception{
+        ParseTree tree = parse(statements);
+        long begin = System.nanoTime();
+        String expected = recursiveLaTexTree(tree);
+        long recursiveTime = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        String actual = tree.toLaTexTree();
+        long streamingTime = System.nanoTime() - begin;
+        if(!expected.equals(actual)){throw new AssertionError("the LaTeX export differs from the recursive one");}
+        if(!recursiveTikZ(tree).equals(tree.toTikZ())){throw new AssertionError("the TikZ export differs from the recursive one");}
+        System.out.printf("%d statements: recursive LaTeX %.1f ms, streaming LaTeX %.1f ms, identical LaTeX and TikZ%n", statements, recursiveTime / 1e6, streamingTime / 1e6);
+    }
+
+
+    static void export(ParseTree tree) throws IOException{
+        Path directory = Files.createTempDirectory("pmptree");
+        String[] extensions = {"tex", "tikz", "dot", "json"};
+        for(String extension : extensions){
+            Path file = directory.resolve("tree." + extension);
+            long begin = System.nanoTime();
+            try(Writer writer = Files.newBufferedWriter(file)){
+                switch(extension){
+                    case "tex": TreeExporter.writeLaTeX(tree, writer); break;
+                    case "tikz": TreeExporter.writeTikZPicture(tree, writer); break;
+                    case "dot": TreeExporter.writeDot(tree, writer); break;
+                    default: TreeExporter.writeJSON(tree, writer);
+                }
+            }
+            System.out.printf("%-5s %.1f ms, %d bytes%n", extension, (System.nanoTime() - begin) / 1e6, Files.size(file));
+            Files.delete(file);
+        }
+        Files.delete(directory);
+    }
+
+
+    public static void main(String[] args) throws Exception{
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        ParseTree[] tree = new ParseTree[1];
+        Throwable[] failure = new Throwable[1];
+        // the parser and the recursive exports need a large stack, the list of instructions being right-nested
+        Thread thread = new Thread(null, () -> {
+            try{
+                compare(Math.max(1, statements / 50));
+                tree[0] = parse(statements);
+            }
+            catch(Throwable t){failure[0] = t;}
+        }, "stress", 1L << 30);
+        thread.start();
+        thread.join();
+        if(failure[0] != null){
+            failure[0].printStackTrace();
+            System.exit(1);
+        }
+        System.out.println(statements + " statements, exported on the main thread");
+        export(tree[0]);
+    }
+
+}
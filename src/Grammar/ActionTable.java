@@ -341,6 +341,22 @@ public class ActionTable {
     }
 
 
+    /**
+     * This method finds the conflicting entries of the action table, the entries containing several rules
+     *
+     * @return a map having the variables with conflicting entries as keys and the terminals of these entries as values
+     */
+    public Map<String, Set<String>> findConflicts(){
+        Map<String, Set<String>> conflicts = new HashMap<>();
+        for(Map.Entry<ArrayList<String>, Set<ArrayList<String>>> entry : this.actionTable.entrySet()){
+            if(entry.getValue().size() > 1){
+                conflicts.computeIfAbsent(entry.getKey().get(0), A -> new HashSet<>()).add(entry.getKey().get(1));
+            }
+        }
+        return conflicts;
+    }
+
+
     /**
      * This method builds a string representation of all the elements related to the action table (first set, follow set, action table)
      *
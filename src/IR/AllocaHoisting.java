@@ -0,0 +1,67 @@
+package IR;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pass moving every allocation of a function to the beginning of its entry block, in the order they are met,
+ * so that the stack doesn't grow each time a loop allocating a stack slot is iterated. The allocations which are
+ * not in a block, the variables read but never written, are placed in the entry block too, so that every
+ * pointer loaded or stored to is defined.
+ */
+public class AllocaHoisting extends Pass {
+    private int hoistedAllocations = 0;
+
+
+    //Getters
+    public int getHoistedAllocations(){return hoistedAllocations;}
+
+
+    @Override
+    public String getName(){return "alloca hoisting";}
+
+
+    @Override
+    public String getStatistics(){return super.getStatistics() + ": hoisted " + hoistedAllocations + " allocations into the entry block";}
+
+
+    /**
+     * This method hoists the allocations of a function to its entry block, whose registers are then numbered again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        BasicBlock entry = function.getEntry();
+        List<Instruction> allocations = new ArrayList<>();
+        Map<Instruction, Boolean> collected = new IdentityHashMap<>();
+        for(BasicBlock block : function.getBlocks()){
+            List<Instruction> instructions = block.getInstructions();
+            int kept = 0;
+            for(Instruction instruction : instructions){
+                for(Value operand : instruction.getOperands()){
+                    // an allocation used before the one of its block is collected when it is met, as the ones not in a block
+                    if(operand instanceof Instruction && ((Instruction) operand).getOpcode() == Opcode.ALLOCA
+                            && collected.put((Instruction) operand, true) == null){
+                        allocations.add((Instruction) operand);
+                    }
+                }
+                if(instruction.getOpcode() == Opcode.ALLOCA){
+                    if(collected.put(instruction, true) == null){allocations.add(instruction);}
+                    continue;
+                }
+                instructions.set(kept++, instruction);
+            }
+            instructions.subList(kept, instructions.size()).clear();
+        }
+        for(Instruction allocation : allocations){
+            if(allocation.getParent() != entry){hoistedAllocations++;}
+        }
+        for(int i = 0; i < allocations.size(); i++){entry.insert(i, allocations.get(i));}
+        // the stack slots of the expressions are numbered registers, defined earlier than they were
+        function.renumber();
+    }
+
+}
@@ -0,0 +1,206 @@
+package IR;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A basic block: a label and a sequence of instructions ending with a jump or a return. The blocks jumped to
+ * by its terminator are its successors, and it is one of their predecessors, the links being set when
+ * the terminator is added to the block.
+ */
+public final class BasicBlock {
+    private final String name;
+    private String comment;
+    private final List<Instruction> instructions;
+    private final List<BasicBlock> predecessors;
+    private final List<BasicBlock> successors;
+    private Function parent;
+
+
+    /**
+     * Constructs an empty basic block
+     *
+     * @param name the name of the label of the block
+     */
+    public BasicBlock(String name){
+        this.name = name;
+        this.instructions = new ArrayList<>();
+        this.predecessors = new ArrayList<>(2);
+        this.successors = new ArrayList<>(2);
+    }
+
+
+    //Getters
+    public String getName(){return name;}
+
+    public String getComment(){return comment;}
+
+    public List<Instruction> getInstructions(){return instructions;}
+
+    public List<BasicBlock> getPredecessors(){return predecessors;}
+
+    public List<BasicBlock> getSuccessors(){return successors;}
+
+    public Function getParent(){return parent;}
+
+
+    //Setters
+    public void setComment(String comment){this.comment = comment;}
+
+    void setParent(Function parent){this.parent = parent;}
+
+
+    /**
+     * This method adds an instruction at the end of the block, linking the block to the targets of a jump
+     *
+     * @param instruction the instruction added
+     * @return the instruction
+     */
+    public Instruction add(Instruction instruction){
+        instruction.setParent(this);
+        instructions.add(instruction);
+        if(instruction.getOpcode().isTerminator()){
+            for(BasicBlock target : instruction.getBlocks()){
+                successors.add(target);
+                target.predecessors.add(this);
+            }
+        }
+        return instruction;
+    }
+
+
+    /**
+     * This method inserts an instruction which is not a jump in the block, such as a phi at its beginning
+     *
+     * @param index the position of the instruction in the block
+     * @param instruction the instruction inserted
+     * @return the instruction
+     */
+    public Instruction insert(int index, Instruction instruction){
+        instruction.setParent(this);
+        instructions.add(index, instruction);
+        return instruction;
+    }
+
+
+    /**
+     * This method removes a jump from the block to one of its successors, removing the values its phi nodes receive from the block
+     *
+     * @param successor the successor, whose first link with the block is removed
+     */
+    public void unlink(BasicBlock successor){
+        if(!successors.remove(successor)){return;}
+        successor.predecessors.remove(this);
+        for(Instruction instruction : successor.instructions){
+            if(instruction.getOpcode() != Opcode.PHI){break;}
+            instruction.removeIncoming(this);
+        }
+    }
+
+
+    /**
+     * This method makes the jump ending the block go to another block instead of one of its successors. The phi nodes
+     * of the successor still receive a value from the block, those of the other block are left to the caller
+     *
+     * @param successor the successor, no longer jumped to by the block
+     * @param replacement the block jumped to instead
+     */
+    public void redirect(BasicBlock successor, BasicBlock replacement){
+        getTerminator().replaceBlock(successor, replacement);
+        for(int i = 0; i < successors.size(); i++){
+            if(successors.get(i) != successor){continue;}
+            successors.set(i, replacement);
+            successor.predecessors.remove(this);
+            replacement.predecessors.add(this);
+        }
+    }
+
+
+    /**
+     * This method moves the values the phi nodes of the block receive from some predecessors to a new block, jumping
+     * to the block, which becomes their successor instead: the phi nodes are split, those of the new block merging
+     * the values from the predecessors moved
+     *
+     * @param moved the predecessors moved, jumping to the new block instead of this one
+     * @param name the name of the label of the new block
+     * @return the new block, not yet added to a function
+     */
+    public BasicBlock splitPredecessors(List<BasicBlock> moved, String name){
+        BasicBlock split = new BasicBlock(name);
+        for(Instruction instruction : instructions){
+            if(instruction.getOpcode() != Opcode.PHI){break;}
+            List<Value> values = new ArrayList<>(moved.size());
+            for(BasicBlock predecessor : moved){
+                values.add(instruction.getOperand(instruction.getBlocks().indexOf(predecessor)));
+                instruction.removeIncoming(predecessor);
+            }
+            Value value = values.get(0);
+            // a single value, or the same value from every predecessor, needs no phi
+            for(Value other : values){
+                if(!other.equals(value)){
+                    value = split.add(new Instruction(Opcode.PHI, instruction.getType(), null, values.toArray(new Value[0]), moved.toArray(new BasicBlock[0]), null));
+                    break;
+                }
+            }
+            instruction.addIncoming(value, split);
+        }
+        for(BasicBlock predecessor : moved){predecessor.redirect(this, split);}
+        split.add(new Instruction(Opcode.BR, Type.VOID, null, new Value[0], new BasicBlock[]{this}, null));
+        return split;
+    }
+
+
+    /**
+     * This method appends the instructions of a block to this one, which ends with a jump to it and is its only
+     * predecessor, removing the jump: the successors of the block become the successors of this one, and the block
+     * is left empty, to be removed from the function
+     *
+     * @param successor the block merged, without phi nodes
+     */
+    public void merge(BasicBlock successor){
+        instructions.remove(instructions.size() - 1);
+        successors.clear();
+        for(Instruction instruction : successor.instructions){add(instruction);}
+        for(BasicBlock next : successor.successors){
+            next.predecessors.remove(successor);
+            for(Instruction instruction : next.instructions){
+                if(instruction.getOpcode() != Opcode.PHI){break;}
+                instruction.replaceBlock(successor, this);
+            }
+        }
+        successor.instructions.clear();
+        successor.predecessors.clear();
+        successor.successors.clear();
+    }
+
+
+    /**
+     * This method replaces the instruction ending the block by a jump to some of its successors, without changing its links:
+     * the successors which are not targets of the new terminator must be unlinked first
+     *
+     * @param terminator the new jump ending the block
+     * @return the jump
+     */
+    public Instruction replaceTerminator(Instruction terminator){
+        terminator.setParent(this);
+        instructions.set(instructions.size() - 1, terminator);
+        return terminator;
+    }
+
+
+    /**
+     * This method returns the instruction ending the block
+     *
+     * @return the jump or return ending the block, or null if the block is not complete
+     */
+    public Instruction getTerminator(){
+        if(instructions.isEmpty()){return null;}
+        Instruction last = instructions.get(instructions.size() - 1);
+        return last.getOpcode().isTerminator() ? last : null;
+    }
+
+
+    @Override
+    public String toString(){return Printer.text(out -> Printer.write(this, out));}
+
+}
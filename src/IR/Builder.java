@@ -0,0 +1,155 @@
+package IR;
+
+/**
+ * Builds the instructions of a function, each one being added at the end of the current basic block.
+ * The registers defined are given by their names, without the "%" prefix.
+ */
+public class Builder {
+    private static final BasicBlock[] NO_BLOCKS = new BasicBlock[0];
+    private static final Constant ZERO = new Constant(0);
+
+    private BasicBlock block;
+
+
+    //Getters
+    public BasicBlock getBlock(){return block;}
+
+
+    //Setters
+    public void setBlock(BasicBlock block){this.block = block;}
+
+
+    /**
+     * This method adds an instruction built beforehand to the current block
+     *
+     * @param instruction the instruction added
+     * @return the instruction
+     */
+    public Instruction add(Instruction instruction){return block.add(instruction);}
+
+
+    /**
+     * This method builds the allocation of an integer on the stack
+     *
+     * @param pointer the name of the pointer to the integer
+     * @return the pointer
+     */
+    public Instruction alloca(String pointer){return block.add(new Instruction(Opcode.ALLOCA, Type.POINTER, pointer));}
+
+
+    /**
+     * This method builds the load of an integer
+     *
+     * @param register the name of the register receiving the integer
+     * @param pointer the pointer to the integer
+     * @return the integer loaded
+     */
+    public Instruction load(String register, Value pointer){return block.add(new Instruction(Opcode.LOAD, Type.I32, register, pointer));}
+
+
+    /**
+     * This method builds the store of an integer
+     *
+     * @param value the integer stored
+     * @param pointer the pointer to which the value is stored
+     * @return the store
+     */
+    public Instruction store(Value value, Value pointer){return block.add(new Instruction(Opcode.STORE, Type.VOID, null, value, pointer));}
+
+
+    /**
+     * This method builds a binary operation, whose result has the type of its operands
+     *
+     * @param register the name of the register receiving the result
+     * @param opcode the operation, such as ADD or AND
+     * @param left the left operand
+     * @param right the right operand
+     * @return the result
+     */
+    public Instruction binary(String register, Opcode opcode, Value left, Value right){
+        return block.add(new Instruction(opcode, left.getType(), register, left, right));
+    }
+
+
+    /**
+     * This method builds the opposite of an integer, subtracted from zero
+     *
+     * @param register the name of the register receiving the result
+     * @param operand the integer
+     * @return the result
+     */
+    public Instruction negate(String register, Value operand){return binary(register, Opcode.SUB, ZERO, operand);}
+
+
+    /**
+     * This method builds the comparison of two integers
+     *
+     * @param register the name of the boolean register receiving the result
+     * @param opcode the comparison, EQ or SLT
+     * @param left the left operand
+     * @param right the right operand
+     * @return the boolean result
+     */
+    public Instruction compare(String register, Opcode opcode, Value left, Value right){
+        return block.add(new Instruction(opcode, Type.I1, register, left, right));
+    }
+
+
+    /**
+     * This method builds the call of a function returning an integer
+     *
+     * @param register the name of the register receiving the result
+     * @param function the name of the function
+     * @param arguments the arguments
+     * @return the result
+     */
+    public Instruction call(String register, String function, Value... arguments){
+        return block.add(new Instruction(Opcode.CALL, Type.I32, register, arguments, NO_BLOCKS, function));
+    }
+
+
+    /**
+     * This method builds the call of a function returning nothing
+     *
+     * @param function the name of the function
+     * @param arguments the arguments
+     * @return the call
+     */
+    public Instruction callVoid(String function, Value... arguments){
+        return block.add(new Instruction(Opcode.CALL, Type.VOID, null, arguments, NO_BLOCKS, function));
+    }
+
+
+    /**
+     * This method builds a conditional jump, ending the current block
+     *
+     * @param condition the boolean condition
+     * @param ifBlock the block jumped to if the condition holds
+     * @param elseBlock the block jumped to otherwise
+     * @return the jump
+     */
+    public Instruction branch(Value condition, BasicBlock ifBlock, BasicBlock elseBlock){
+        return block.add(new Instruction(Opcode.BR, Type.VOID, null, new Value[]{condition}, new BasicBlock[]{ifBlock, elseBlock}, null));
+    }
+
+
+    /**
+     * This method builds an unconditional jump, ending the current block
+     *
+     * @param target the block jumped to
+     * @return the jump
+     */
+    public Instruction jump(BasicBlock target){
+        return block.add(new Instruction(Opcode.BR, Type.VOID, null, new Value[0], new BasicBlock[]{target}, null));
+    }
+
+
+    /**
+     * This method builds the return of a value, ending the current block
+     *
+     * @param value the value returned
+     * @return the return
+     */
+    public Instruction ret(Value value){return block.add(new Instruction(Opcode.RET, Type.VOID, null, value));}
+
+}
@@ -0,0 +1,49 @@
+package IR;
+
+/**
+ * An integer or boolean constant
+ */
+public final class Constant extends Value {
+    private final int value;
+
+
+    /**
+     * Constructs an integer constant
+     *
+     * @param value the value of the constant
+     */
+    public Constant(int value){
+        this(Type.I32, value);
+    }
+
+
+    /**
+     * Constructs a constant
+     *
+     * @param type the type of the constant, i32 or i1
+     * @param value the value of the constant, 0 or 1 for a boolean
+     */
+    public Constant(Type type, int value){
+        super(type);
+        this.value = value;
+    }
+
+
+    //Getters
+    public int getValue(){return value;}
+
+
+    @Override
+    public String getReference(){return String.valueOf(value);}
+
+
+    @Override
+    public boolean equals(Object other){
+        return other instanceof Constant && ((Constant) other).value == value && ((Constant) other).getType() == getType();
+    }
+
+
+    @Override
+    public int hashCode(){return 31 * getType().hashCode() + value;}
+
+}
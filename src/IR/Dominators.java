@@ -0,0 +1,236 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The dominator tree and the dominance frontiers of the blocks of a function reachable from its entry.
+ * The immediate dominators are computed by the iterative algorithm of Cooper, Harvey and Kennedy on the blocks
+ * numbered in reverse postorder, and every walk uses an explicit stack, so that the number of blocks
+ * nested is not limited by the call stack.
+ */
+public class Dominators {
+    private final List<BasicBlock> order;
+    private final Map<BasicBlock, Integer> numbers;
+    private final int[] idom;
+    private final List<List<BasicBlock>> children;
+    private final List<List<BasicBlock>> frontiers;
+    private final int[] enterTimes, exitTimes;
+
+
+    /**
+     * Constructs the dominator tree and the dominance frontiers of a function
+     *
+     * @param function the function, whose first block is the entry
+     */
+    public Dominators(Function function){
+        this.order = reversePostorder(function.getEntry());
+        this.numbers = new IdentityHashMap<>(2 * order.size());
+        for(int i = 0; i < order.size(); i++){numbers.put(order.get(i), i);}
+        this.idom = immediateDominators();
+        this.children = new ArrayList<>(order.size());
+        for(int i = 0; i < order.size(); i++){children.add(new ArrayList<>(2));}
+        for(int i = 1; i < order.size(); i++){children.get(idom[i]).add(order.get(i));}
+        this.frontiers = frontiers();
+        this.enterTimes = new int[order.size()];
+        this.exitTimes = new int[order.size()];
+        numberTree();
+    }
+
+
+    /**
+     * This method numbers the blocks reachable from the entry in reverse postorder
+     *
+     * @param entry the entry of the function
+     * @return the blocks reachable from the entry, each one before its successors except along the back edges
+     */
+    private static List<BasicBlock> reversePostorder(BasicBlock entry){
+        List<BasicBlock> postorder = new ArrayList<>();
+        Map<BasicBlock, Boolean> visited = new IdentityHashMap<>();
+        // each frame holds a block and the index of its next successor
+        Deque<Object[]> stack = new ArrayDeque<>();
+        visited.put(entry, true);
+        stack.push(new Object[]{entry, 0});
+        while(!stack.isEmpty()){
+            Object[] frame = stack.peek();
+            BasicBlock block = (BasicBlock) frame[0];
+            int next = (Integer) frame[1];
+            if(next == block.getSuccessors().size()){
+                postorder.add(block);
+                stack.pop();
+                continue;
+            }
+            frame[1] = next + 1;
+            BasicBlock successor = block.getSuccessors().get(next);
+            if(visited.put(successor, true) == null){stack.push(new Object[]{successor, 0});}
+        }
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+
+    /**
+     * This method computes the immediate dominator of every block, until they don't change anymore
+     *
+     * @return the number of the immediate dominator of each block, the entry being its own dominator
+     */
+    private int[] immediateDominators(){
+        int[] idom = new int[order.size()];
+        Arrays.fill(idom, -1);
+        idom[0] = 0;
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(int i = 1; i < order.size(); i++){
+                int dominator = -1;
+                for(BasicBlock predecessor : order.get(i).getPredecessors()){
+                    Integer number = numbers.get(predecessor);
+                    if(number == null || idom[number] < 0){continue;}
+                    dominator = dominator < 0 ? number : intersect(idom, dominator, number);
+                }
+                if(idom[i] != dominator){
+                    idom[i] = dominator;
+                    changed = true;
+                }
+            }
+        }
+        return idom;
+    }
+
+
+    /**
+     * This method finds the closest common dominator of two blocks, walking up the tree from the one numbered last
+     *
+     * @param idom the immediate dominators computed so far
+     * @param first the number of the first block
+     * @param second the number of the second block
+     * @return the number of the closest common dominator
+     */
+    private static int intersect(int[] idom, int first, int second){
+        while(first != second){
+            while(first > second){first = idom[first];}
+            while(second > first){second = idom[second];}
+        }
+        return first;
+    }
+
+
+    /**
+     * This method computes the dominance frontier of every block: the blocks with several predecessors are in the
+     * frontier of the blocks dominating one of their predecessors without strictly dominating them
+     *
+     * @return the frontier of each block
+     */
+    private List<List<BasicBlock>> frontiers(){
+        List<List<BasicBlock>> frontiers = new ArrayList<>(order.size());
+        for(int i = 0; i < order.size(); i++){frontiers.add(new ArrayList<>(0));}
+        for(int i = 0; i < order.size(); i++){
+            BasicBlock block = order.get(i);
+            if(block.getPredecessors().size() < 2){continue;}
+            for(BasicBlock predecessor : block.getPredecessors()){
+                Integer runner = numbers.get(predecessor);
+                if(runner == null){continue;}
+                while(runner != idom[i]){
+                    List<BasicBlock> frontier = frontiers.get(runner);
+                    // the block is the last one added to the frontier if it is already in it
+                    if(frontier.isEmpty() || frontier.get(frontier.size() - 1) != block){frontier.add(block);}
+                    if(runner == 0){break;}
+                    runner = idom[runner];
+                }
+            }
+        }
+        return frontiers;
+    }
+
+
+    /**
+     * This method numbers the blocks when they are entered and left in a walk of the dominator tree,
+     * so that a block dominates another one if the interval of its numbers contains the one of the other block
+     */
+    private void numberTree(){
+        int time = 0;
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{0, 0});
+        enterTimes[0] = time++;
+        while(!stack.isEmpty()){
+            int[] frame = stack.peek();
+            List<BasicBlock> blockChildren = children.get(frame[0]);
+            if(frame[1] == blockChildren.size()){
+                exitTimes[frame[0]] = time++;
+                stack.pop();
+                continue;
+            }
+            int child = numbers.get(blockChildren.get(frame[1]++));
+            enterTimes[child] = time++;
+            stack.push(new int[]{child, 0});
+        }
+    }
+
+
+    /**
+     * This method returns the blocks reachable from the entry in reverse postorder
+     *
+     * @return the blocks reachable, the entry first
+     */
+    public List<BasicBlock> getOrder(){return order;}
+
+
+    /**
+     * This method tells whether a block is reachable from the entry of the function
+     *
+     * @param block the block
+     * @return true if the block is reachable
+     */
+    public boolean isReachable(BasicBlock block){return numbers.containsKey(block);}
+
+
+    /**
+     * This method returns the immediate dominator of a block
+     *
+     * @param block a reachable block
+     * @return the immediate dominator of the block, or null for the entry
+     */
+    public BasicBlock getImmediateDominator(BasicBlock block){
+        int number = numbers.get(block);
+        return number == 0 ? null : order.get(idom[number]);
+    }
+
+
+    /**
+     * This method returns the children of a block in the dominator tree
+     *
+     * @param block a reachable block
+     * @return the blocks immediately dominated by the block
+     */
+    public List<BasicBlock> getChildren(BasicBlock block){return children.get(numbers.get(block));}
+
+
+    /**
+     * This method returns the dominance frontier of a block
+     *
+     * @param block a reachable block
+     * @return the blocks with a predecessor dominated by the block which are not strictly dominated by it
+     */
+    public List<BasicBlock> getFrontier(BasicBlock block){return frontiers.get(numbers.get(block));}
+
+
+    /**
+     * This method tells whether a block dominates another one, every block dominating itself
+     *
+     * @param dominator the block which may dominate the other one
+     * @param block the other block
+     * @return true if every path from the entry to the block goes through the dominator
+     */
+    public boolean dominates(BasicBlock dominator, BasicBlock block){
+        Integer first = numbers.get(dominator), second = numbers.get(block);
+        if(first == null || second == null){return false;}
+        return enterTimes[first] <= enterTimes[second] && exitTimes[second] <= exitTimes[first];
+    }
+
+}
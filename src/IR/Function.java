@@ -0,0 +1,105 @@
+package IR;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A function without parameters, made of basic blocks in the order they are written, the first one being its entry
+ */
+public final class Function {
+    private final String name;
+    private final Type returnType;
+    private final List<BasicBlock> blocks;
+
+
+    /**
+     * Constructs a function without blocks
+     *
+     * @param name the name of the function
+     * @param returnType the type of the value returned
+     */
+    public Function(String name, Type returnType){
+        this.name = name;
+        this.returnType = returnType;
+        this.blocks = new ArrayList<>();
+    }
+
+
+    //Getters
+    public String getName(){return name;}
+
+    public Type getReturnType(){return returnType;}
+
+    public List<BasicBlock> getBlocks(){return blocks;}
+
+    public BasicBlock getEntry(){return blocks.get(0);}
+
+
+    /**
+     * This method adds a block at the end of the function
+     *
+     * @param block the block added
+     * @return the block
+     */
+    public BasicBlock add(BasicBlock block){
+        block.setParent(this);
+        blocks.add(block);
+        return block;
+    }
+
+
+    /**
+     * This method inserts new blocks in the function, each one before a block of the function, in a single pass
+     *
+     * @param inserted the block inserted before each block
+     */
+    public void insertBefore(Map<BasicBlock, BasicBlock> inserted){
+        if(inserted.isEmpty()){return;}
+        List<BasicBlock> previous = new ArrayList<>(blocks);
+        blocks.clear();
+        for(BasicBlock block : previous){
+            BasicBlock before = inserted.get(block);
+            if(before != null){
+                before.setParent(this);
+                blocks.add(before);
+            }
+            blocks.add(block);
+        }
+    }
+
+
+    /**
+     * This method removes the blocks which are not jumped to anymore from the remaining ones, unlinking them from their successors
+     *
+     * @param removed whether a block is removed
+     */
+    public void removeBlocks(Predicate<BasicBlock> removed){
+        blocks.removeIf(block -> {
+            if(!removed.test(block)){return false;}
+            block.setParent(null);
+            while(!block.getSuccessors().isEmpty()){block.unlink(block.getSuccessors().get(0));}
+            return true;
+        });
+    }
+
+
+    /**
+     * This method numbers the registers without names in the order they are defined, from 0, as LLVM requires
+     * once instructions are removed or added by a pass
+     */
+    public void renumber(){
+        int next = 0;
+        for(BasicBlock block : blocks){
+            for(Instruction instruction : block.getInstructions()){
+                if(instruction.isNumbered()){instruction.setNumber(next++);}
+            }
+        }
+    }
+
+
+    @Override
+    public String toString(){return Printer.text(out -> Printer.write(this, out));}
+
+}
@@ -0,0 +1,303 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A pass numbering the values of a function along its dominator tree, so that an operation computed again
+ * on the same operands in a block it dominates is replaced by the first result, and removing the redundant
+ * loads and stores of the variables. The value of a variable stored or loaded is forwarded to its next loads
+ * in the same block and in the blocks whose only predecessor is that block, until it is stored to again,
+ * a store of the value the variable already holds being removed. The allocations left only stored to
+ * are then removed with their stores.
+ */
+public class GVN extends Pass {
+    private int removedComputations = 0;
+    private int removedLoads = 0;
+    private int removedStores = 0;
+    private int removedAllocations = 0;
+
+    // the value replacing each instruction removed, a store removed being its own replacement
+    private Map<Instruction, Value> replacements;
+    // the first instruction computing each expression in the blocks dominating the block numbered, in the order they were added
+    private Map<Expression, Instruction> expressions;
+    private List<Expression> expressionLog;
+    // the value known of each pointer, and the pointers whose value was changed, each one followed by its previous value
+    private Map<Value, Memory> memory;
+    private List<Object> memoryLog;
+    private int epochs;
+
+
+    //Getters
+    public int getRemovedComputations(){return removedComputations;}
+    public int getRemovedLoads(){return removedLoads;}
+    public int getRemovedStores(){return removedStores;}
+    public int getRemovedAllocations(){return removedAllocations;}
+
+
+    /**
+     * An operation on two operands, the key of the value it computes
+     */
+    private static final class Expression {
+        final Opcode opcode;
+        final Type type;
+        final Value left, right;
+
+        Expression(Opcode opcode, Type type, Value left, Value right){
+            this.opcode = opcode;
+            this.type = type;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        public boolean equals(Object other){
+            if(!(other instanceof Expression)){return false;}
+            Expression expression = (Expression) other;
+            // the constants are equal by value, the registers by identity
+            return opcode == expression.opcode && type == expression.type && left.equals(expression.left) && right.equals(expression.right);
+        }
+
+        @Override
+        public int hashCode(){return Objects.hash(opcode, type, left, right);}
+    }
+
+
+    /**
+     * The value a pointer holds, known in the blocks of a memory epoch: a block whose predecessor is its immediate
+     * dominator shares the epoch of its dominator, the other blocks starting a new one
+     */
+    private static final class Memory {
+        final Value value;
+        final int epoch;
+
+        Memory(Value value, int epoch){
+            this.value = value;
+            this.epoch = epoch;
+        }
+    }
+
+
+    /**
+     * A block being numbered in the walk of the dominator tree: the index of its next child, the sizes of the logs
+     * of the expressions and the memory when it was entered, and its memory epoch at its end
+     */
+    private static final class Frame {
+        final BasicBlock block;
+        final int expressionMark, memoryMark;
+        int epoch;
+        int next = 0;
+
+        Frame(BasicBlock block, int expressionMark, int memoryMark, int epoch){
+            this.block = block;
+            this.expressionMark = expressionMark;
+            this.memoryMark = memoryMark;
+            this.epoch = epoch;
+        }
+    }
+
+
+    @Override
+    public String getName(){return "gvn";}
+
+
+    @Override
+    public String getStatistics(){
+        return super.getStatistics() + ": removed " + removedComputations + " redundant computations, " + removedLoads + " loads, "
+                + removedStores + " stores and " + removedAllocations + " allocations only stored to";
+    }
+
+
+    /**
+     * This method removes the redundant computations, loads and stores of a function, whose registers are then numbered again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        replacements = new IdentityHashMap<>();
+        expressions = new HashMap<>();
+        expressionLog = new ArrayList<>();
+        memory = new IdentityHashMap<>();
+        memoryLog = new ArrayList<>();
+        epochs = 0;
+        number(new Dominators(function));
+        for(BasicBlock block : function.getBlocks()){
+            List<Instruction> instructions = block.getInstructions();
+            int kept = 0;
+            for(Instruction instruction : instructions){
+                if(replacements.containsKey(instruction)){continue;}
+                // the operands of the phi nodes and of the blocks not reachable were not replaced during the walk
+                replaceOperands(instruction);
+                instructions.set(kept++, instruction);
+            }
+            instructions.subList(kept, instructions.size()).clear();
+        }
+        removeUnloadedAllocations(function);
+        function.renumber();
+        replacements = null;
+        expressions = null;
+        expressionLog = null;
+        memory = null;
+        memoryLog = null;
+    }
+
+
+    /**
+     * This method walks the dominator tree, numbering the operations and following the values of the pointers
+     *
+     * @param dominators the dominator tree of the function
+     */
+    private void number(Dominators dominators){
+        Deque<Frame> stack = new ArrayDeque<>();
+        enter(stack, dominators.getOrder().get(0), epochs++);
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            List<BasicBlock> children = dominators.getChildren(frame.block);
+            if(frame.next < children.size()){
+                BasicBlock child = children.get(frame.next++);
+                // the values of the pointers at the end of the dominator are only known if it is the only predecessor
+                enter(stack, child, child.getPredecessors().size() == 1 ? frame.epoch : epochs++);
+                continue;
+            }
+            // the expressions and the values of the block are forgotten once its subtree is left
+            while(expressionLog.size() > frame.expressionMark){expressions.remove(expressionLog.remove(expressionLog.size() - 1));}
+            while(memoryLog.size() > frame.memoryMark){
+                Memory previous = (Memory) memoryLog.remove(memoryLog.size() - 1);
+                Value pointer = (Value) memoryLog.remove(memoryLog.size() - 1);
+                if(previous == null){memory.remove(pointer);}
+                else{memory.put(pointer, previous);}
+            }
+            stack.pop();
+        }
+    }
+
+
+    /**
+     * This method enters a block of the dominator tree and numbers its instructions, whose operands are replaced first
+     *
+     * @param stack the blocks being numbered, the block entered being pushed on it
+     * @param block the block
+     * @param epoch the memory epoch at the beginning of the block
+     */
+    private void enter(Deque<Frame> stack, BasicBlock block, int epoch){
+        Frame frame = new Frame(block, expressionLog.size(), memoryLog.size(), epoch);
+        stack.push(frame);
+        for(Instruction instruction : block.getInstructions()){
+            Opcode opcode = instruction.getOpcode();
+            if(opcode == Opcode.PHI){continue;}
+            replaceOperands(instruction);
+            if(opcode.isBinary() || opcode.isComparison()){
+                Value left = instruction.getOperand(0), right = instruction.getOperand(1);
+                Instruction first = expressions.get(new Expression(opcode, instruction.getType(), left, right));
+                // the commutative operations are also found with their operands swapped
+                if(first == null && opcode != Opcode.SUB && opcode != Opcode.SDIV && opcode != Opcode.SLT){
+                    first = expressions.get(new Expression(opcode, instruction.getType(), right, left));
+                }
+                if(first != null){
+                    replacements.put(instruction, first);
+                    removedComputations++;
+                }
+                else{
+                    Expression expression = new Expression(opcode, instruction.getType(), left, right);
+                    expressions.put(expression, instruction);
+                    expressionLog.add(expression);
+                }
+            }
+            else if(opcode == Opcode.LOAD){
+                Memory known = memory.get(instruction.getOperand(0));
+                if(known != null && known.epoch == frame.epoch){
+                    replacements.put(instruction, known.value);
+                    removedLoads++;
+                }
+                else{setMemory(instruction.getOperand(0), instruction, frame.epoch);}
+            }
+            else if(opcode == Opcode.STORE){
+                Memory known = memory.get(instruction.getOperand(1));
+                if(known != null && known.epoch == frame.epoch && known.value.equals(instruction.getOperand(0))){
+                    // the store is its own replacement, so that it is removed
+                    replacements.put(instruction, instruction);
+                    removedStores++;
+                }
+                else{setMemory(instruction.getOperand(1), instruction.getOperand(0), frame.epoch);}
+            }
+            else if(opcode == Opcode.CALL){
+                for(Value operand : instruction.getOperands()){
+                    // a variable whose address is passed may be written by the function called
+                    if(operand.getType() == Type.POINTER){frame.epoch = epochs++;}
+                }
+            }
+        }
+    }
+
+
+    /**
+     * This method sets the value known of a pointer, logging its previous value
+     *
+     * @param pointer the pointer
+     * @param value the value it holds
+     * @param epoch the memory epoch of the block
+     */
+    private void setMemory(Value pointer, Value value, int epoch){
+        memoryLog.add(pointer);
+        memoryLog.add(memory.put(pointer, new Memory(value, epoch)));
+    }
+
+
+    /**
+     * This method replaces the operands of an instruction which were removed
+     *
+     * @param instruction the instruction
+     */
+    private void replaceOperands(Instruction instruction){
+        for(int i = 0; i < instruction.getOperands().size(); i++){
+            Value replacement = replacements.get(instruction.getOperand(i));
+            if(replacement != null){instruction.setOperand(i, replacement);}
+        }
+    }
+
+
+    /**
+     * This method removes the allocations which are only stored to, once their loads are replaced, and their stores
+     *
+     * @param function the function
+     */
+    private void removeUnloadedAllocations(Function function){
+        Map<Value, Boolean> loaded = new IdentityHashMap<>();
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    Value operand = instruction.getOperand(i);
+                    if(operand.getType() != Type.POINTER){continue;}
+                    // a pointer whose address is used otherwise is kept as if it was loaded
+                    boolean stored = instruction.getOpcode() == Opcode.STORE && i == 1;
+                    if(!stored){loaded.put(operand, true);}
+                }
+            }
+        }
+        for(BasicBlock block : function.getBlocks()){
+            List<Instruction> instructions = block.getInstructions();
+            int kept = 0;
+            for(Instruction instruction : instructions){
+                if(instruction.getOpcode() == Opcode.ALLOCA && !loaded.containsKey(instruction)){
+                    removedAllocations++;
+                    continue;
+                }
+                if(instruction.getOpcode() == Opcode.STORE && instruction.getOperand(1) instanceof Instruction
+                        && ((Instruction) instruction.getOperand(1)).getOpcode() == Opcode.ALLOCA && !loaded.containsKey(instruction.getOperand(1))){
+                    removedStores++;
+                    continue;
+                }
+                instructions.set(kept++, instruction);
+            }
+            instructions.subList(kept, instructions.size()).clear();
+        }
+    }
+
+}
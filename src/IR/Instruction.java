@@ -0,0 +1,189 @@
+package IR;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An instruction of a basic block, whose result is a value named by a register unless its type is void.
+ * Its operands are values, the blocks of a jump are its targets and the blocks of a phi are the predecessors
+ * its incoming values come from. The operands and the targets are held
+ * in arrays rather than lists, an instruction being built for every few characters of the code, and the registers
+ * numbered rather than named, such as %12, hold their number instead of its text.
+ */
+public final class Instruction extends Value {
+    private static final Value[] NO_OPERANDS = new Value[0];
+    private static final BasicBlock[] NO_BLOCKS = new BasicBlock[0];
+
+    private final Opcode opcode;
+    private String name;
+    private int number;
+    private Value[] operands;
+    private BasicBlock[] blocks;
+    private final String function;
+    private BasicBlock parent;
+
+
+    /**
+     * Constructs an instruction
+     *
+     * @param opcode the operation of the instruction
+     * @param type the type of the result, void if the instruction has none
+     * @param name the name of the register of the result, or null if the instruction has none or is numbered later
+     * @param operands the operands of the instruction
+     * @param blocks the targets of a jump or the predecessors of a phi, none for the other instructions
+     * @param function the name of the function called by a call, null for the other instructions
+     */
+    public Instruction(Opcode opcode, Type type, String name, Value[] operands, BasicBlock[] blocks, String function){
+        super(type);
+        this.opcode = opcode;
+        setName(name);
+        this.operands = operands.length == 0 ? NO_OPERANDS : operands;
+        this.blocks = blocks.length == 0 ? NO_BLOCKS : blocks;
+        this.function = function;
+    }
+
+
+    /**
+     * Constructs an instruction which is not a jump nor a call
+     *
+     * @param opcode the operation of the instruction
+     * @param type the type of the result, void if the instruction has none
+     * @param name the name of the register of the result, or null if the instruction has none
+     * @param operands the operands of the instruction
+     */
+    public Instruction(Opcode opcode, Type type, String name, Value... operands){
+        this(opcode, type, name, operands, NO_BLOCKS, null);
+    }
+
+
+    //Getters
+    public Opcode getOpcode(){return opcode;}
+
+    public String getName(){return name != null || number < 0 ? name : Integer.toString(number);}
+
+    public String getFunction(){return function;}
+
+    public BasicBlock getParent(){return parent;}
+
+
+    /**
+     * This method returns the operands of the instruction
+     *
+     * @return a list of fixed size backed by the operands, which may be replaced with set
+     */
+    public List<Value> getOperands(){return operands.length == 0 ? Collections.emptyList() : Arrays.asList(operands);}
+
+
+    /**
+     * This method returns an operand of the instruction
+     *
+     * @param index the index of the operand
+     * @return the operand
+     */
+    public Value getOperand(int index){return operands[index];}
+
+
+    /**
+     * This method returns the targets of a jump
+     *
+     * @return a list of fixed size backed by the targets, empty for the other instructions
+     */
+    public List<BasicBlock> getBlocks(){return blocks.length == 0 ? Collections.emptyList() : Arrays.asList(blocks);}
+
+
+    /**
+     * This method tells whether the result of the instruction is held by a numbered register, such as %12
+     *
+     * @return true if the instruction has a result and its register has no name
+     */
+    public boolean isNumbered(){return name == null && getType() != Type.VOID;}
+
+
+    //Setters
+    public void setNumber(int number){
+        this.name = null;
+        this.number = number;
+    }
+
+    public void setName(String name){
+        this.number = isNumber(name) ? Integer.parseInt(name) : -1;
+        this.name = number < 0 ? name : null;
+    }
+
+    public void setOperand(int index, Value value){operands[index] = value;}
+
+    void setParent(BasicBlock parent){this.parent = parent;}
+
+
+    /**
+     * This method adds a value a phi receives from a new predecessor of its block
+     *
+     * @param value the value received
+     * @param predecessor the predecessor
+     */
+    void addIncoming(Value value, BasicBlock predecessor){
+        operands = Arrays.copyOf(operands, operands.length + 1);
+        blocks = Arrays.copyOf(blocks, blocks.length + 1);
+        operands[operands.length - 1] = value;
+        blocks[blocks.length - 1] = predecessor;
+    }
+
+
+    /**
+     * This method replaces a target of a jump, or the predecessor a phi receives a value from
+     *
+     * @param block the block replaced
+     * @param replacement the block replacing it
+     */
+    void replaceBlock(BasicBlock block, BasicBlock replacement){
+        for(int i = 0; i < blocks.length; i++){
+            if(blocks[i] == block){blocks[i] = replacement;}
+        }
+    }
+
+
+    /**
+     * This method removes the value a phi receives from a predecessor, once the predecessor doesn't jump to its block anymore
+     *
+     * @param predecessor the predecessor, whose first incoming value is removed
+     */
+    void removeIncoming(BasicBlock predecessor){
+        for(int i = 0; i < blocks.length; i++){
+            if(blocks[i] != predecessor){continue;}
+            Value[] remainingOperands = new Value[operands.length - 1];
+            BasicBlock[] remainingBlocks = new BasicBlock[blocks.length - 1];
+            System.arraycopy(operands, 0, remainingOperands, 0, i);
+            System.arraycopy(operands, i + 1, remainingOperands, i, operands.length - i - 1);
+            System.arraycopy(blocks, 0, remainingBlocks, 0, i);
+            System.arraycopy(blocks, i + 1, remainingBlocks, i, blocks.length - i - 1);
+            operands = remainingOperands.length == 0 ? NO_OPERANDS : remainingOperands;
+            blocks = remainingBlocks.length == 0 ? NO_BLOCKS : remainingBlocks;
+            return;
+        }
+    }
+
+
+    /**
+     * This method tells whether a name is the number of a register, a number without leading zeros
+     *
+     * @param name the name of a register, or null
+     * @return true if the name is made of at most nine digits, without leading zeros
+     */
+    private static boolean isNumber(String name){
+        if(name == null || name.isEmpty() || name.length() > 9 || (name.charAt(0) == '0' && name.length() > 1)){return false;}
+        for(int i = 0; i < name.length(); i++){
+            if(name.charAt(i) < '0' || name.charAt(i) > '9'){return false;}
+        }
+        return true;
+    }
+
+
+    @Override
+    public String getReference(){return "%" + getName();}
+
+
+    @Override
+    public String toString(){return Printer.text(out -> Printer.write(this, out));}
+
+}
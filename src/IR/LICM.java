@@ -0,0 +1,157 @@
+package IR;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pass hoisting the computations of the loops of a function whose operands don't change in the loop
+ * to its preheader, so that they are computed once before the loop rather than at each iteration. A block jumping
+ * only to the header is added before each loop which has none. The loops are processed from the innermost ones,
+ * so that a computation invariant in several nested loops is hoisted out of all of them.
+ * A load is only hoisted when its variable is not stored to in the loop, such as by a read, and a division
+ * when its divisor is a constant which cannot make it fail, the hoisted computations being executed
+ * even when the loop is not entered.
+ */
+public class LICM extends Pass {
+    private int hoistedInstructions = 0;
+    private int hoistedLoads = 0;
+    private int insertedPreheaders = 0;
+    private int loops = 0;
+
+
+    //Getters
+    public int getHoistedInstructions(){return hoistedInstructions;}
+    public int getHoistedLoads(){return hoistedLoads;}
+    public int getInsertedPreheaders(){return insertedPreheaders;}
+    public int getLoops(){return loops;}
+
+
+    @Override
+    public String getName(){return "licm";}
+
+
+    @Override
+    public String getStatistics(){
+        return getName() + " hoisted " + hoistedInstructions + " instructions, " + hoistedLoads + " of them loads, out of "
+                + loops + " loops, inserting " + insertedPreheaders + " preheaders";
+    }
+
+
+    /**
+     * This method hoists the invariant computations of the loops of a function to their preheader,
+     * whose registers are then numbered again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        if(insertPreheaders(function)){
+            // the preheaders are in the loops the headers are nested in
+            List<Loop> functionLoops = Loop.find(new Dominators(function));
+            for(Loop loop : functionLoops){hoist(loop);}
+            loops += functionLoops.size();
+        }
+        function.renumber();
+    }
+
+
+    /**
+     * This method adds a preheader before the loops which have none, before their header
+     *
+     * @param function the function
+     * @return true if the function has loops
+     */
+    private boolean insertPreheaders(Function function){
+        List<Loop> functionLoops = Loop.find(new Dominators(function));
+        Map<BasicBlock, BasicBlock> preheaders = new IdentityHashMap<>();
+        for(Loop loop : functionLoops){
+            if(loop.getPreheader() != null){continue;}
+            BasicBlock header = loop.getHeader();
+            preheaders.put(header, header.splitPredecessors(loop.getEntries(), header.getName() + ".preheader"));
+            insertedPreheaders++;
+        }
+        function.insertBefore(preheaders);
+        return !functionLoops.isEmpty();
+    }
+
+
+    /**
+     * This method hoists the invariant computations of a loop to its preheader, in the order they are computed
+     *
+     * @param loop the loop, whose preheader is added to the loops it is nested in
+     */
+    private void hoist(Loop loop){
+        Map<Value, Boolean> stored = new IdentityHashMap<>();
+        boolean clobbered = false;
+        for(BasicBlock block : loop.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                if(instruction.getOpcode() == Opcode.STORE){stored.put(instruction.getOperand(1), true);}
+                else if(instruction.getOpcode() == Opcode.CALL){
+                    // a variable whose address is passed may be written by the function called
+                    for(Value operand : instruction.getOperands()){clobbered |= operand.getType() == Type.POINTER;}
+                }
+            }
+        }
+        Map<Instruction, Boolean> invariants = new IdentityHashMap<>();
+        List<Instruction> hoisted = new ArrayList<>();
+        // in reverse postorder, the operands of an instruction which is not a phi are met before it
+        for(BasicBlock block : loop.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                if(!isHoistable(instruction, stored, clobbered) || !hasInvariantOperands(instruction, loop, invariants)){continue;}
+                invariants.put(instruction, true);
+                hoisted.add(instruction);
+            }
+        }
+        if(hoisted.isEmpty()){return;}
+        for(BasicBlock block : loop.getBlocks()){block.getInstructions().removeIf(invariants::containsKey);}
+        BasicBlock preheader = loop.getPreheader();
+        for(Instruction instruction : hoisted){
+            preheader.insert(preheader.getInstructions().size() - 1, instruction);
+            if(instruction.getOpcode() == Opcode.LOAD){hoistedLoads++;}
+        }
+        hoistedInstructions += hoisted.size();
+    }
+
+
+    /**
+     * This method tells whether an instruction may be moved before the loop, its operands being invariant
+     *
+     * @param instruction the instruction
+     * @param stored the pointers stored to in the loop
+     * @param clobbered whether a function called in the loop may write any variable
+     * @return true for the operations which cannot fail and the loads of the variables not written in the loop
+     */
+    private static boolean isHoistable(Instruction instruction, Map<Value, Boolean> stored, boolean clobbered){
+        Opcode opcode = instruction.getOpcode();
+        if(opcode == Opcode.LOAD){return !clobbered && !stored.containsKey(instruction.getOperand(0));}
+        if(opcode == Opcode.SDIV){
+            // the division of the smallest integer by -1 overflows
+            Value divisor = instruction.getOperand(1);
+            return divisor instanceof Constant && ((Constant) divisor).getValue() != 0 && ((Constant) divisor).getValue() != -1;
+        }
+        return opcode.isBinary() || opcode.isComparison();
+    }
+
+
+    /**
+     * This method tells whether the operands of an instruction don't change in a loop
+     *
+     * @param instruction the instruction
+     * @param loop the loop
+     * @param invariants the instructions of the loop already found invariant
+     * @return true if every operand is a constant, a register defined before the loop or an invariant of the loop
+     */
+    private static boolean hasInvariantOperands(Instruction instruction, Loop loop, Map<Instruction, Boolean> invariants){
+        for(Value operand : instruction.getOperands()){
+            if(operand instanceof Constant){continue;}
+            // the undefined values and the allocations not in a block are left where they are used
+            if(!(operand instanceof Instruction)){return false;}
+            Instruction definition = (Instruction) operand;
+            if(definition.getParent() == null || (loop.contains(definition.getParent()) && !invariants.containsKey(definition))){return false;}
+        }
+        return true;
+    }
+
+}
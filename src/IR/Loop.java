@@ -0,0 +1,128 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A natural loop of a function: a header, which dominates the blocks jumping back to it, and the blocks from which
+ * one of these back edges can be reached without going through the header. The loops with the same header are
+ * a single loop, so that two loops are either disjoint or nested.
+ */
+public final class Loop {
+    private final BasicBlock header;
+    private final List<BasicBlock> blocks;
+    private final Map<BasicBlock, Boolean> members;
+
+
+    /**
+     * Constructs a loop made of its header
+     *
+     * @param header the header of the loop
+     */
+    private Loop(BasicBlock header){
+        this.header = header;
+        this.blocks = new ArrayList<>();
+        this.members = new IdentityHashMap<>();
+        add(header);
+    }
+
+
+    //Getters
+    public BasicBlock getHeader(){return header;}
+
+    public List<BasicBlock> getBlocks(){return blocks;}
+
+
+    /**
+     * This method adds a block to the loop
+     *
+     * @param block the block
+     * @return true if the block was not yet in the loop
+     */
+    private boolean add(BasicBlock block){
+        if(members.put(block, true) != null){return false;}
+        blocks.add(block);
+        return true;
+    }
+
+
+    /**
+     * This method tells whether a block is in the loop
+     *
+     * @param block the block
+     * @return true if the block is the header or one of the blocks of its body
+     */
+    public boolean contains(BasicBlock block){return members.containsKey(block);}
+
+
+    /**
+     * This method returns the preheader of the loop: its only predecessor out of the loop, if it only jumps to the header
+     *
+     * @return the preheader, or null if the header has several predecessors out of the loop or one with other successors
+     */
+    public BasicBlock getPreheader(){
+        BasicBlock preheader = null;
+        for(BasicBlock predecessor : header.getPredecessors()){
+            if(contains(predecessor)){continue;}
+            if(preheader != null && preheader != predecessor){return null;}
+            preheader = predecessor;
+        }
+        return preheader != null && preheader.getSuccessors().size() == 1 ? preheader : null;
+    }
+
+
+    /**
+     * This method returns the predecessors of the header out of the loop, which enter it
+     *
+     * @return the predecessors of the header which are not in the loop, without duplicates
+     */
+    public List<BasicBlock> getEntries(){
+        List<BasicBlock> entries = new ArrayList<>(2);
+        for(BasicBlock predecessor : header.getPredecessors()){
+            if(!contains(predecessor) && !entries.contains(predecessor)){entries.add(predecessor);}
+        }
+        return entries;
+    }
+
+
+    /**
+     * This method finds the natural loops of a function from its back edges, the jumps to a block dominating their block
+     *
+     * @param dominators the dominator tree of the function
+     * @return the loops, each one before the loops it is nested in, their blocks being in reverse postorder
+     */
+    public static List<Loop> find(Dominators dominators){
+        Map<BasicBlock, Loop> loops = new IdentityHashMap<>();
+        List<Loop> found = new ArrayList<>();
+        Deque<BasicBlock> worklist = new ArrayDeque<>();
+        for(BasicBlock block : dominators.getOrder()){
+            for(BasicBlock successor : block.getSuccessors()){
+                if(!dominators.dominates(successor, block)){continue;}
+                Loop loop = loops.get(successor);
+                if(loop == null){
+                    loop = new Loop(successor);
+                    loops.put(successor, loop);
+                    found.add(loop);
+                }
+                // the body is found walking back from the back edge to the header
+                if(loop.add(block)){worklist.push(block);}
+                while(!worklist.isEmpty()){
+                    for(BasicBlock predecessor : worklist.pop().getPredecessors()){
+                        if(dominators.isReachable(predecessor) && loop.add(predecessor)){worklist.push(predecessor);}
+                    }
+                }
+            }
+        }
+        Map<BasicBlock, Integer> numbers = new IdentityHashMap<>();
+        for(BasicBlock block : dominators.getOrder()){numbers.put(block, numbers.size());}
+        for(Loop loop : found){loop.blocks.sort((first, second) -> numbers.get(first) - numbers.get(second));}
+        // a loop nested in another one has fewer blocks
+        found.sort((first, second) -> first.blocks.size() - second.blocks.size());
+        return found;
+    }
+
+}
@@ -0,0 +1,315 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pass promoting the integers allocated on the stack, the variables of the program and the stack slots
+ * of the expressions, to registers in SSA form. An allocation is promoted when it is only loaded and stored to.
+ * The phi nodes are placed on the iterated dominance frontiers of the blocks storing to an allocation, only
+ * where its value is live, and the loads are then replaced by the values stored, walking the dominator tree.
+ * A value read before being written anywhere is undefined.
+ */
+public class Mem2Reg extends Pass {
+    private int promotedAllocations = 0;
+    private int placedPhis = 0;
+    private int removedLoads = 0;
+    private int removedStores = 0;
+
+
+    //Getters
+    public int getPromotedAllocations(){return promotedAllocations;}
+    public int getPlacedPhis(){return placedPhis;}
+    public int getRemovedLoads(){return removedLoads;}
+    public int getRemovedStores(){return removedStores;}
+
+
+    /**
+     * A block being renamed in the walk of the dominator tree: the index of its next child and
+     * the size of the log of the values replaced when it was entered
+     */
+    private static final class Frame {
+        final BasicBlock block;
+        final int mark;
+        int next = 0;
+
+        Frame(BasicBlock block, int mark){
+            this.block = block;
+            this.mark = mark;
+        }
+    }
+
+
+    @Override
+    public String getName(){return "mem2reg";}
+
+
+    @Override
+    public String getStatistics(){
+        return super.getStatistics() + ": promoted " + promotedAllocations + " allocations, placed " + placedPhis
+                + " phi nodes and removed " + removedLoads + " loads and " + removedStores + " stores";
+    }
+
+
+    /**
+     * This method promotes the allocations of a function, whose registers are then numbered again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        Map<Instruction, Integer> allocations = promotable(function);
+        if(allocations.isEmpty()){return;}
+        promotedAllocations += allocations.size();
+        Dominators dominators = new Dominators(function);
+        Map<Instruction, Integer> phis = placePhis(function, dominators, allocations);
+        Map<Value, Value> replacements = rename(function, dominators, allocations, phis);
+        rewrite(function, allocations, replacements);
+        function.renumber();
+    }
+
+
+    /**
+     * This method finds the allocations which are only loaded and stored to, including the ones which are not
+     * in a block, the variables read but never written
+     *
+     * @param function the function
+     * @return the number of each promotable allocation
+     */
+    private static Map<Instruction, Integer> promotable(Function function){
+        Map<Instruction, Boolean> candidates = new IdentityHashMap<>();
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    Value operand = instruction.getOperand(i);
+                    if(!(operand instanceof Instruction) || ((Instruction) operand).getOpcode() != Opcode.ALLOCA){continue;}
+                    boolean pointer = (instruction.getOpcode() == Opcode.LOAD && i == 0) || (instruction.getOpcode() == Opcode.STORE && i == 1);
+                    // an allocation whose address is used otherwise stays in memory
+                    if(!pointer){candidates.put((Instruction) operand, false);}
+                    else{candidates.putIfAbsent((Instruction) operand, true);}
+                }
+            }
+        }
+        Map<Instruction, Integer> allocations = new IdentityHashMap<>();
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                if(instruction.getOpcode() == Opcode.ALLOCA){candidates.putIfAbsent(instruction, true);}
+            }
+        }
+        for(Map.Entry<Instruction, Boolean> candidate : candidates.entrySet()){
+            if(candidate.getValue()){allocations.put(candidate.getKey(), allocations.size());}
+        }
+        return allocations;
+    }
+
+
+    /**
+     * This method returns the allocation loaded or stored to by an instruction, if it is promoted
+     *
+     * @param instruction the instruction
+     * @param allocations the number of each promoted allocation
+     * @return the number of the allocation, or -1 if the instruction is not a load or a store of a promoted allocation
+     */
+    private static int allocation(Instruction instruction, Map<Instruction, Integer> allocations){
+        int index;
+        if(instruction.getOpcode() == Opcode.LOAD){index = 0;}
+        else if(instruction.getOpcode() == Opcode.STORE){index = 1;}
+        else{return -1;}
+        Integer number = allocations.get(instruction.getOperand(index));
+        return number == null ? -1 : number;
+    }
+
+
+    /**
+     * This method places the phi nodes of the allocations at the beginning of the blocks of the iterated dominance
+     * frontiers of the blocks storing to them, where their value is live: where it may be loaded before being stored
+     *
+     * @param function the function
+     * @param dominators the dominator tree of the function
+     * @param allocations the number of each promoted allocation
+     * @return the number of the allocation of each phi node placed
+     */
+    private Map<Instruction, Integer> placePhis(Function function, Dominators dominators, Map<Instruction, Integer> allocations){
+        List<BasicBlock> order = dominators.getOrder();
+        Map<BasicBlock, Integer> numbers = new IdentityHashMap<>(2 * order.size());
+        for(int i = 0; i < order.size(); i++){numbers.put(order.get(i), i);}
+
+        // the blocks storing to each allocation, and the ones loading it before storing to it
+        List<List<Integer>> definitions = new ArrayList<>(allocations.size());
+        List<List<Integer>> uses = new ArrayList<>(allocations.size());
+        for(int i = 0; i < allocations.size(); i++){
+            definitions.add(new ArrayList<>(1));
+            uses.add(new ArrayList<>(1));
+        }
+        int[] storedIn = new int[allocations.size()], usedIn = new int[allocations.size()];
+        Arrays.fill(storedIn, -1);
+        Arrays.fill(usedIn, -1);
+        for(int b = 0; b < order.size(); b++){
+            for(Instruction instruction : order.get(b).getInstructions()){
+                int a = allocation(instruction, allocations);
+                if(a < 0){continue;}
+                if(instruction.getOpcode() == Opcode.STORE){
+                    if(storedIn[a] != b){definitions.get(a).add(b);}
+                    storedIn[a] = b;
+                }
+                else if(storedIn[a] != b && usedIn[a] != b){
+                    uses.get(a).add(b);
+                    usedIn[a] = b;
+                }
+            }
+        }
+
+        Map<Instruction, Integer> phis = new IdentityHashMap<>();
+        // the marks are the number of the allocation being processed, so that they are not cleared between allocations
+        int[] defines = new int[order.size()], live = new int[order.size()], hasPhi = new int[order.size()];
+        Arrays.fill(defines, -1);
+        Arrays.fill(live, -1);
+        Arrays.fill(hasPhi, -1);
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for(int a = 0; a < allocations.size(); a++){
+            if(uses.get(a).isEmpty() || definitions.get(a).isEmpty()){continue;}
+            for(int b : definitions.get(a)){defines[b] = a;}
+            // the value is live in the blocks reaching a load without going through a store
+            for(int b : uses.get(a)){
+                live[b] = a;
+                worklist.push(b);
+            }
+            while(!worklist.isEmpty()){
+                for(BasicBlock predecessor : order.get(worklist.pop()).getPredecessors()){
+                    Integer p = numbers.get(predecessor);
+                    if(p == null || defines[p] == a || live[p] == a){continue;}
+                    live[p] = a;
+                    worklist.push(p);
+                }
+            }
+            for(int b : definitions.get(a)){worklist.push(b);}
+            while(!worklist.isEmpty()){
+                for(BasicBlock frontier : dominators.getFrontier(order.get(worklist.pop()))){
+                    int f = numbers.get(frontier);
+                    if(hasPhi[f] == a || live[f] != a){continue;}
+                    hasPhi[f] = a;
+                    List<BasicBlock> predecessors = frontier.getPredecessors();
+                    Instruction phi = new Instruction(Opcode.PHI, Type.I32, null, new Value[predecessors.size()],
+                            predecessors.toArray(new BasicBlock[0]), null);
+                    frontier.insert(0, phi);
+                    phis.put(phi, a);
+                    placedPhis++;
+                    if(defines[f] != a){worklist.push(f);}
+                }
+            }
+        }
+        return phis;
+    }
+
+
+    /**
+     * This method replaces the loads of the allocations by the values last stored to them, walking the dominator tree
+     * with the values of the allocations at the end of the blocks dominating the current one, and sets the incoming
+     * values of the phi nodes of the successors of each block
+     *
+     * @param function the function
+     * @param dominators the dominator tree of the function
+     * @param allocations the number of each promoted allocation
+     * @param phis the number of the allocation of each phi node
+     * @return the value replacing each load of a promoted allocation in a reachable block
+     */
+    private Map<Value, Value> rename(Function function, Dominators dominators, Map<Instruction, Integer> allocations, Map<Instruction, Integer> phis){
+        Map<Value, Value> replacements = new IdentityHashMap<>();
+        Value[] current = new Value[allocations.size()];
+        Arrays.fill(current, Undefined.I32);
+        // the values replaced, restored when the blocks whose instructions replaced them are left
+        List<Integer> logAllocations = new ArrayList<>();
+        List<Value> logValues = new ArrayList<>();
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(function.getEntry(), 0));
+        boolean entered = false;
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            if(!entered){
+                for(Instruction instruction : frame.block.getInstructions()){
+                    Integer phi = phis.get(instruction);
+                    int a = phi != null ? phi : allocation(instruction, allocations);
+                    if(a < 0){continue;}
+                    if(instruction.getOpcode() == Opcode.LOAD){
+                        replacements.put(instruction, current[a]);
+                        continue;
+                    }
+                    logAllocations.add(a);
+                    logValues.add(current[a]);
+                    if(phi != null){current[a] = instruction;}
+                    else{
+                        Value stored = instruction.getOperand(0);
+                        Value replacement = replacements.get(stored);
+                        current[a] = replacement == null ? stored : replacement;
+                    }
+                }
+                for(BasicBlock successor : frame.block.getSuccessors()){
+                    for(Instruction instruction : successor.getInstructions()){
+                        if(instruction.getOpcode() != Opcode.PHI){break;}
+                        Integer a = phis.get(instruction);
+                        if(a == null){continue;}
+                        for(int j = 0; j < instruction.getBlocks().size(); j++){
+                            if(instruction.getBlocks().get(j) == frame.block){instruction.setOperand(j, current[a]);}
+                        }
+                    }
+                }
+            }
+            List<BasicBlock> children = dominators.getChildren(frame.block);
+            if(frame.next < children.size()){
+                stack.push(new Frame(children.get(frame.next++), logAllocations.size()));
+                entered = false;
+                continue;
+            }
+            for(int i = logAllocations.size() - 1; i >= frame.mark; i--){current[logAllocations.get(i)] = logValues.get(i);}
+            logAllocations.subList(frame.mark, logAllocations.size()).clear();
+            logValues.subList(frame.mark, logValues.size()).clear();
+            stack.pop();
+            entered = true;
+        }
+        return replacements;
+    }
+
+
+    /**
+     * This method removes the promoted allocations, their loads and their stores, and replaces the uses of the loads
+     * by their values, the loads of the unreachable blocks and the incoming values of unreachable predecessors being undefined
+     *
+     * @param function the function
+     * @param allocations the number of each promoted allocation
+     * @param replacements the value replacing each load of a promoted allocation in a reachable block
+     */
+    private void rewrite(Function function, Map<Instruction, Integer> allocations, Map<Value, Value> replacements){
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                if(instruction.getOpcode() == Opcode.LOAD && allocation(instruction, allocations) >= 0){
+                    replacements.putIfAbsent(instruction, Undefined.I32);
+                }
+            }
+        }
+        for(BasicBlock block : function.getBlocks()){
+            List<Instruction> instructions = block.getInstructions();
+            int kept = 0;
+            for(Instruction instruction : instructions){
+                if(allocations.containsKey(instruction)){continue;}
+                if(allocation(instruction, allocations) >= 0){
+                    if(instruction.getOpcode() == Opcode.LOAD){removedLoads++;}
+                    else{removedStores++;}
+                    continue;
+                }
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    Value operand = instruction.getOperand(i);
+                    Value replacement = operand == null ? Undefined.I32 : replacements.get(operand);
+                    if(replacement != null){instruction.setOperand(i, replacement);}
+                }
+                instructions.set(kept++, instruction);
+            }
+            instructions.subList(kept, instructions.size()).clear();
+        }
+    }
+
+}
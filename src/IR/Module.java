@@ -0,0 +1,47 @@
+package IR;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A module: the declarations and functions of the runtime, kept as the text written before the functions
+ * of the program, and the functions of the program
+ */
+public final class Module {
+    private final String header;
+    private final List<Function> functions;
+
+
+    /**
+     * Constructs a module without functions
+     *
+     * @param header the text written before the functions, such as the declarations and the functions of the runtime
+     */
+    public Module(String header){
+        this.header = header;
+        this.functions = new ArrayList<>();
+    }
+
+
+    //Getters
+    public String getHeader(){return header;}
+
+    public List<Function> getFunctions(){return functions;}
+
+
+    /**
+     * This method adds a function at the end of the module
+     *
+     * @param function the function added
+     * @return the function
+     */
+    public Function add(Function function){
+        functions.add(function);
+        return function;
+    }
+
+
+    @Override
+    public String toString(){return Printer.text(out -> Printer.write(this, out));}
+
+}
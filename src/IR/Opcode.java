@@ -0,0 +1,63 @@
+package IR;
+
+/**
+ * The operations of the instructions. The comparisons are opcodes of their own, written as an icmp with their predicate,
+ * and BR is both the conditional jump, with a condition and two targets, and the unconditional one, with a single target.
+ * The blocks of a PHI are the predecessors of its block, from which its operands are the incoming values
+ */
+public enum Opcode {
+    ALLOCA("alloca"),
+    LOAD("load"),
+    STORE("store"),
+    ADD("add"),
+    SUB("sub"),
+    MUL("mul"),
+    SDIV("sdiv"),
+    AND("and"),
+    OR("or"),
+    EQ("eq"),
+    SLT("slt"),
+    CALL("call"),
+    BR("br"),
+    RET("ret"),
+    PHI("phi");
+
+    private final String text;
+
+
+    /**
+     * Constructs an opcode
+     *
+     * @param text the name of the operation in the LLVM code, or the predicate of a comparison
+     */
+    Opcode(String text){this.text = text;}
+
+
+    /**
+     * This method tells whether the opcode is a binary operation on integers or booleans
+     *
+     * @return true for add, sub, mul, sdiv, and and or
+     */
+    public boolean isBinary(){return compareTo(ADD) >= 0 && compareTo(OR) <= 0;}
+
+
+    /**
+     * This method tells whether the opcode is a comparison of integers
+     *
+     * @return true for eq and slt
+     */
+    public boolean isComparison(){return this == EQ || this == SLT;}
+
+
+    /**
+     * This method tells whether the opcode ends a basic block
+     *
+     * @return true for the jumps and the return
+     */
+    public boolean isTerminator(){return this == BR || this == RET;}
+
+
+    @Override
+    public String toString(){return text;}
+
+}
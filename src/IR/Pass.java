@@ -0,0 +1,72 @@
+package IR;
+
+/**
+ * A pass rewriting the functions of a module one at a time, which counts the instructions it eliminates
+ */
+public abstract class Pass {
+    private int eliminatedInstructions = 0;
+
+
+    //Getters
+    public int getEliminatedInstructions(){return eliminatedInstructions;}
+
+
+    /**
+     * This method returns the name of the pass, as written in the statistics
+     *
+     * @return the name of the pass
+     */
+    public abstract String getName();
+
+
+    /**
+     * This method rewrites a function
+     *
+     * @param function the function rewritten
+     */
+    protected abstract void transform(Function function);
+
+
+    /**
+     * This method runs the pass on every function of a module
+     *
+     * @param module the module whose functions are rewritten
+     */
+    public void run(Module module){
+        for(Function function : module.getFunctions()){run(function);}
+    }
+
+
+    /**
+     * This method runs the pass on a function, counting the instructions it eliminates
+     *
+     * @param function the function rewritten
+     */
+    public void run(Function function){
+        int before = countInstructions(function);
+        transform(function);
+        eliminatedInstructions += before - countInstructions(function);
+    }
+
+
+    /**
+     * This method counts the instructions of a function
+     *
+     * @param function the function
+     * @return the number of instructions of the blocks of the function
+     */
+    public static int countInstructions(Function function){
+        int count = 0;
+        for(BasicBlock block : function.getBlocks()){count += block.getInstructions().size();}
+        return count;
+    }
+
+
+    /**
+     * This method returns the statistics of the pass, the runs of the pass being cumulated
+     *
+     * @return the name of the pass and the number of instructions it eliminated, followed by the counts of the pass
+     */
+    public String getStatistics(){return getName() + " eliminated " + eliminatedInstructions + " instructions";}
+
+}
@@ -0,0 +1,521 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pass rewriting short sequences of instructions from a table of local patterns, such as a store followed by
+ * a load of the same variable, a negation of a negation or a jump to a block which is only jumped to by it,
+ * until none applies anymore. The blocks are scanned following the last store or load of each variable in the block,
+ * so that a load may be replaced by the value stored or loaded before it, a call which may write the variables
+ * forgetting them. The instructions left without users are removed, and the number of rewrites of each pattern
+ * is counted.
+ */
+public class Peephole extends Pass {
+    // the patterns tried on each instruction, in order, the first one applying rewriting it
+    private final Pattern[] patterns = {
+            new Pattern("store-load", this::forwardStore),
+            new Pattern("load-load", this::forwardLoad),
+            new Pattern("redundant store", this::removeRedundantStore),
+            new Pattern("overwritten store", this::removeOverwrittenStore),
+            new Pattern("store to an unloaded slot", this::removeUnloadedStore),
+            new Pattern("double negation", this::removeDoubleNegation),
+            new Pattern("identity", this::removeIdentity),
+            new Pattern("constant operation", this::foldConstants),
+            new Pattern("jump to a single predecessor", this::mergeJump),
+    };
+    private final Pattern deadInstruction = new Pattern("dead instruction", null);
+
+    // the users of each instruction, which are only removed when it is replaced, and the number of its uses,
+    // followed by the number of its uses as the pointer of a store
+    private Map<Instruction, List<Instruction>> users;
+    private Map<Instruction, int[]> uses;
+    private Map<Instruction, Boolean> removed;
+    // the last store or load of each pointer in the block scanned
+    private Map<Value, Instruction> lastAccesses;
+    private List<BasicBlock> merged;
+
+
+    /**
+     * A rule rewriting an instruction
+     */
+    private interface Rule {
+        /**
+         * This method rewrites an instruction if the rule applies to it
+         *
+         * @param instruction the instruction, in a block being scanned
+         * @return true if the instruction or the ones before it were rewritten
+         */
+        boolean apply(Instruction instruction);
+    }
+
+
+    /**
+     * A pattern of the table: a rule, and the number of times it applied
+     */
+    private static final class Pattern {
+        final String name;
+        final Rule rule;
+        int rewrites = 0;
+
+        Pattern(String name, Rule rule){
+            this.name = name;
+            this.rule = rule;
+        }
+    }
+
+
+    @Override
+    public String getName(){return "peephole";}
+
+
+    @Override
+    public String getStatistics(){
+        StringBuilder statistics = new StringBuilder(super.getStatistics()).append(':');
+        for(Pattern pattern : patterns){statistics.append(' ').append(pattern.name).append(' ').append(pattern.rewrites).append(',');}
+        return statistics.append(' ').append(deadInstruction.name).append(' ').append(deadInstruction.rewrites).toString();
+    }
+
+
+    /**
+     * This method returns the number of rewrites of a pattern
+     *
+     * @param name the name of the pattern, as written in the statistics
+     * @return the number of times the pattern applied, or -1 if there is no such pattern
+     */
+    public int getRewrites(String name){
+        if(name.equals(deadInstruction.name)){return deadInstruction.rewrites;}
+        for(Pattern pattern : patterns){
+            if(pattern.name.equals(name)){return pattern.rewrites;}
+        }
+        return -1;
+    }
+
+
+    /**
+     * This method rewrites the instructions of a function until no pattern applies, then numbers its registers again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        users = new IdentityHashMap<>();
+        uses = new IdentityHashMap<>();
+        removed = new IdentityHashMap<>();
+        lastAccesses = new IdentityHashMap<>();
+        merged = new ArrayList<>();
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                for(int i = 0; i < instruction.getOperands().size(); i++){addUse(instruction, i);}
+            }
+        }
+        boolean changed = true;
+        while(changed){
+            changed = false;
+            for(BasicBlock block : function.getBlocks()){
+                if(!block.getInstructions().isEmpty()){changed |= scan(block);}
+            }
+            if(!merged.isEmpty()){
+                Map<BasicBlock, Boolean> mergedBlocks = new IdentityHashMap<>();
+                for(BasicBlock block : merged){mergedBlocks.put(block, true);}
+                function.removeBlocks(mergedBlocks::containsKey);
+                merged.clear();
+            }
+        }
+        function.renumber();
+        users = null;
+        uses = null;
+        removed = null;
+        lastAccesses = null;
+        merged = null;
+    }
+
+
+    /**
+     * This method scans the instructions of a block, trying the patterns on each one, then removes the instructions rewritten
+     *
+     * @param block the block
+     * @return true if a pattern applied
+     */
+    private boolean scan(BasicBlock block){
+        boolean changed = false, stale = false;
+        lastAccesses.clear();
+        List<Instruction> instructions = block.getInstructions();
+        // a merged block is appended to the block, so that the size is read again
+        for(int i = 0; i < instructions.size(); i++){
+            Instruction instruction = instructions.get(i);
+            // the instructions of the block left without users by the rewrites of another block were removed since its last scan
+            if(removed.containsKey(instruction)){
+                stale = true;
+                continue;
+            }
+            if(isDead(instruction)){
+                remove(instruction);
+                deadInstruction.rewrites++;
+                changed = true;
+                continue;
+            }
+            for(Pattern pattern : patterns){
+                if(pattern.rule.apply(instruction)){
+                    pattern.rewrites++;
+                    changed = true;
+                    break;
+                }
+            }
+            if(removed.containsKey(instruction) || instructions.get(i) != instruction){
+                // the jump merged is replaced by the first instruction of the block merged, which is scanned next
+                if(instructions.get(i) != instruction){i--;}
+                continue;
+            }
+            Opcode opcode = instruction.getOpcode();
+            if(opcode == Opcode.LOAD){lastAccesses.put(instruction.getOperand(0), instruction);}
+            else if(opcode == Opcode.STORE){lastAccesses.put(instruction.getOperand(1), instruction);}
+            else if(opcode == Opcode.CALL && writesMemory(instruction)){lastAccesses.clear();}
+        }
+        if(changed || stale){instructions.removeIf(removed::containsKey);}
+        return changed;
+    }
+
+
+    /**
+     * This method tells whether a call may write the variables, its function being passed the address of a variable
+     *
+     * @param call the call
+     * @return true if an operand of the call is a pointer
+     */
+    private static boolean writesMemory(Instruction call){
+        for(Value operand : call.getOperands()){
+            if(operand.getType() == Type.POINTER){return true;}
+        }
+        return false;
+    }
+
+
+    /**
+     * This method returns the last store or load of a pointer in the block
+     *
+     * @param pointer the pointer
+     * @return the last access, or null if the pointer was not yet accessed in the block or its last access was removed,
+     * the value it stored or loaded being possibly removed with it
+     */
+    private Instruction lastAccess(Value pointer){
+        Instruction access = lastAccesses.get(pointer);
+        return access == null || removed.containsKey(access) ? null : access;
+    }
+
+
+    /**
+     * This method returns the value a pointer holds, known from the last store or load of the pointer in the block
+     *
+     * @param pointer the pointer
+     * @return the value stored or loaded last, or null if the pointer was not yet accessed in the block
+     */
+    private Value knownValue(Value pointer){
+        Instruction access = lastAccess(pointer);
+        if(access == null){return null;}
+        return access.getOpcode() == Opcode.STORE ? access.getOperand(0) : access;
+    }
+
+
+    /**
+     * The rule replacing a load of a pointer stored to before in the block by the value stored
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean forwardStore(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.LOAD){return false;}
+        Instruction access = lastAccess(instruction.getOperand(0));
+        if(access == null || access.getOpcode() != Opcode.STORE){return false;}
+        replace(instruction, access.getOperand(0));
+        return true;
+    }
+
+
+    /**
+     * The rule replacing a load of a pointer loaded before in the block by the first load
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean forwardLoad(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.LOAD){return false;}
+        Instruction access = lastAccess(instruction.getOperand(0));
+        if(access == null || access.getOpcode() != Opcode.LOAD){return false;}
+        replace(instruction, access);
+        return true;
+    }
+
+
+    /**
+     * The rule removing a store of the value the pointer already holds
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean removeRedundantStore(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.STORE){return false;}
+        Value known = knownValue(instruction.getOperand(1));
+        if(known == null || !known.equals(instruction.getOperand(0))){return false;}
+        remove(instruction);
+        return true;
+    }
+
+
+    /**
+     * The rule removing a store followed by another store to the same pointer in the block, without a load between them
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean removeOverwrittenStore(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.STORE){return false;}
+        Instruction access = lastAccess(instruction.getOperand(1));
+        if(access == null || access.getOpcode() != Opcode.STORE){return false;}
+        remove(access);
+        return true;
+    }
+
+
+    /**
+     * The rule removing a store to an allocation which is never loaded, nor passed to a function
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean removeUnloadedStore(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.STORE || !(instruction.getOperand(1) instanceof Instruction)){return false;}
+        Instruction pointer = (Instruction) instruction.getOperand(1);
+        if(pointer.getOpcode() != Opcode.ALLOCA){return false;}
+        int[] pointerUses = usesOf(pointer);
+        if(pointerUses[0] != pointerUses[1]){return false;}
+        remove(instruction);
+        return true;
+    }
+
+
+    /**
+     * The rule replacing the negation of a negation, a subtraction from 0, by the value negated twice
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean removeDoubleNegation(Instruction instruction){
+        if(!isNegation(instruction) || !(instruction.getOperand(1) instanceof Instruction)){return false;}
+        Instruction negated = (Instruction) instruction.getOperand(1);
+        if(!isNegation(negated)){return false;}
+        replace(instruction, negated.getOperand(1));
+        return true;
+    }
+
+
+    /**
+     * This method tells whether an instruction negates its second operand
+     *
+     * @param instruction the instruction
+     * @return true for a subtraction from the constant 0
+     */
+    private static boolean isNegation(Instruction instruction){
+        return instruction.getOpcode() == Opcode.SUB && instruction.getOperand(0).equals(new Constant(instruction.getType(), 0));
+    }
+
+
+    /**
+     * The rule replacing an operation leaving one of its operands unchanged by the operand: x + 0, 0 + x, x - 0, x * 1,
+     * 1 * x, x / 1, x and x, x or x
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean removeIdentity(Instruction instruction){
+        Opcode opcode = instruction.getOpcode();
+        if(!opcode.isBinary()){return false;}
+        Value left = instruction.getOperand(0), right = instruction.getOperand(1);
+        Constant zero = new Constant(instruction.getType(), 0), one = new Constant(instruction.getType(), 1);
+        Value kept = null;
+        switch(opcode){
+            case ADD: kept = right.equals(zero) ? left : left.equals(zero) ? right : null; break;
+            case SUB: kept = right.equals(zero) ? left : null; break;
+            case MUL: kept = right.equals(one) ? left : left.equals(one) ? right : null; break;
+            case SDIV: kept = right.equals(one) ? left : null; break;
+            default: kept = left.equals(right) ? left : null;
+        }
+        if(kept == null){return false;}
+        replace(instruction, kept);
+        return true;
+    }
+
+
+    /**
+     * The rule replacing an operation or a comparison of two constants by its result, wrapping around as the 32 bits
+     * integers, a division by zero, or of the smallest integer by -1, being left to the program
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean foldConstants(Instruction instruction){
+        Opcode opcode = instruction.getOpcode();
+        if(!(opcode.isBinary() || opcode.isComparison()) || !(instruction.getOperand(0) instanceof Constant)
+                || !(instruction.getOperand(1) instanceof Constant)){return false;}
+        int a = ((Constant) instruction.getOperand(0)).getValue(), b = ((Constant) instruction.getOperand(1)).getValue();
+        int result;
+        switch(opcode){
+            case ADD: result = a + b; break;
+            case SUB: result = a - b; break;
+            case MUL: result = a * b; break;
+            case SDIV:
+                if(b == 0 || (a == Integer.MIN_VALUE && b == -1)){return false;}
+                result = a / b;
+                break;
+            case AND: result = a & b; break;
+            case OR: result = a | b; break;
+            case EQ: result = a == b ? 1 : 0; break;
+            default: result = a < b ? 1 : 0;
+        }
+        replace(instruction, new Constant(instruction.getType(), result));
+        return true;
+    }
+
+
+    /**
+     * The rule merging the block an unconditional jump goes to in the block of the jump, when it is its only predecessor,
+     * the phi nodes of the block merged having a single value
+     *
+     * @param instruction the instruction
+     * @return true if the rule applied
+     */
+    private boolean mergeJump(Instruction instruction){
+        if(instruction.getOpcode() != Opcode.BR || instruction.getBlocks().size() != 1){return false;}
+        BasicBlock block = instruction.getParent(), target = instruction.getBlocks().get(0);
+        if(target == block || target.getPredecessors().size() != 1 || target == target.getParent().getEntry()){return false;}
+        for(Instruction phi : target.getInstructions()){
+            if(phi.getOpcode() != Opcode.PHI){break;}
+            if(!removed.containsKey(phi)){replace(phi, phi.getOperand(0));}
+        }
+        target.getInstructions().removeIf(removed::containsKey);
+        block.merge(target);
+        merged.add(target);
+        return true;
+    }
+
+
+    /**
+     * This method tells whether an instruction has no effect and its result is not used
+     *
+     * @param instruction the instruction
+     * @return true for the operations which cannot fail, the comparisons, the loads, the phi nodes and the allocations without users
+     */
+    private boolean isDead(Instruction instruction){
+        if(usesOf(instruction)[0] > 0){return false;}
+        Opcode opcode = instruction.getOpcode();
+        if(opcode == Opcode.SDIV){
+            Value divisor = instruction.getOperand(1);
+            return divisor instanceof Constant && ((Constant) divisor).getValue() != 0 && ((Constant) divisor).getValue() != -1;
+        }
+        return opcode.isBinary() || opcode.isComparison() || opcode == Opcode.LOAD || opcode == Opcode.PHI || opcode == Opcode.ALLOCA;
+    }
+
+
+    /**
+     * This method replaces the uses of an instruction by a value, and removes the instruction
+     *
+     * @param instruction the instruction
+     * @param value the value replacing it
+     */
+    private void replace(Instruction instruction, Value value){
+        for(Instruction user : usersOf(instruction)){
+            // a user may be met twice, or removed
+            if(removed.containsKey(user)){continue;}
+            for(int i = 0; i < user.getOperands().size(); i++){
+                if(user.getOperand(i) != instruction){continue;}
+                removeUse(user, i);
+                user.setOperand(i, value);
+                addUse(user, i);
+            }
+        }
+        users.remove(instruction);
+        remove(instruction);
+    }
+
+
+    /**
+     * This method removes an instruction from the users of its operands, then the operands left without users
+     * which have no effect, the instruction being removed from its block at the end of its scan
+     *
+     * @param instruction the instruction
+     */
+    private void remove(Instruction instruction){
+        Deque<Instruction> worklist = new ArrayDeque<>();
+        removed.put(instruction, true);
+        worklist.push(instruction);
+        while(!worklist.isEmpty()){
+            Instruction current = worklist.pop();
+            for(int i = 0; i < current.getOperands().size(); i++){
+                if(!(current.getOperand(i) instanceof Instruction)){continue;}
+                Instruction definition = (Instruction) current.getOperand(i);
+                removeUse(current, i);
+                // an allocation not in a block is not removed
+                if(definition.getParent() == null || removed.containsKey(definition) || !isDead(definition)){continue;}
+                removed.put(definition, true);
+                deadInstruction.rewrites++;
+                worklist.push(definition);
+            }
+        }
+    }
+
+
+    /**
+     * This method counts the use of an instruction by an operand of another one
+     *
+     * @param user the instruction using it
+     * @param index the index of the operand
+     */
+    private void addUse(Instruction user, int index){
+        if(!(user.getOperand(index) instanceof Instruction)){return;}
+        Instruction definition = (Instruction) user.getOperand(index);
+        users.computeIfAbsent(definition, key -> new ArrayList<>(2)).add(user);
+        int[] definitionUses = usesOf(definition);
+        definitionUses[0]++;
+        if(user.getOpcode() == Opcode.STORE && index == 1){definitionUses[1]++;}
+    }
+
+
+    /**
+     * This method removes the use of an instruction by an operand of another one from its count
+     *
+     * @param user the instruction using it
+     * @param index the index of the operand
+     */
+    private void removeUse(Instruction user, int index){
+        if(!(user.getOperand(index) instanceof Instruction)){return;}
+        int[] definitionUses = usesOf((Instruction) user.getOperand(index));
+        definitionUses[0]--;
+        if(user.getOpcode() == Opcode.STORE && index == 1){definitionUses[1]--;}
+    }
+
+
+    /**
+     * This method returns the users of an instruction
+     *
+     * @param instruction the instruction
+     * @return the instructions which used it, once for each operand, including the ones removed since
+     */
+    private List<Instruction> usersOf(Instruction instruction){
+        List<Instruction> instructionUsers = users.get(instruction);
+        return instructionUsers == null ? new ArrayList<>(0) : instructionUsers;
+    }
+
+
+    /**
+     * This method returns the number of uses of an instruction
+     *
+     * @param instruction the instruction
+     * @return the number of its uses, followed by the number of its uses as the pointer of a store
+     */
+    private int[] usesOf(Instruction instruction){return uses.computeIfAbsent(instruction, key -> new int[2]);}
+
+}
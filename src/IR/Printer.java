@@ -0,0 +1,145 @@
+package IR;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes a module, a function, a basic block or an instruction as LLVM code to an Appendable, in the format
+ * of the code written by LLVMCreator. Each instruction is written on its own line, the binary operations and
+ * the comparisons with their operands separated by " , ".
+ */
+public class Printer {
+
+    /**
+     * The writing of a part of the code to an output
+     */
+    interface Writing {
+        void write(Appendable out) throws IOException;
+    }
+
+
+    /**
+     * This method returns the text of a part of the code
+     *
+     * @param writing the writing of the part of the code
+     * @return the text written
+     */
+    static String text(Writing writing){
+        StringBuilder text = new StringBuilder();
+        try{writing.write(text);}
+        catch(IOException e){throw new UncheckedIOException(e);}
+        return text.toString();
+    }
+
+
+    /**
+     * This method writes a module: its header and its functions
+     *
+     * @param module the module written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void write(Module module, Appendable out) throws IOException{
+        out.append(module.getHeader());
+        for(Function function : module.getFunctions()){write(function, out);}
+    }
+
+
+    /**
+     * This method writes a function: its signature, its blocks and its closing brace
+     *
+     * @param function the function written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void write(Function function, Appendable out) throws IOException{
+        writeSignature(function, out);
+        for(BasicBlock block : function.getBlocks()){write(block, out);}
+        out.append("}\n");
+    }
+
+
+    /**
+     * This method writes the line opening a function, before its blocks
+     *
+     * @param function the function whose signature is written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeSignature(Function function, Appendable out) throws IOException{
+        out.append("define ").append(function.getReturnType().toString()).append(" @").append(function.getName()).append("() { \n");
+    }
+
+
+    /**
+     * This method writes a basic block: its label, its comment and its instructions
+     *
+     * @param block the block written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void write(BasicBlock block, Appendable out) throws IOException{
+        out.append(block.getName()).append(":\n");
+        if(block.getComment() != null){out.append("       ; ").append(block.getComment()).append('\n');}
+        for(Instruction instruction : block.getInstructions()){write(instruction, out);}
+    }
+
+
+    /**
+     * This method writes an instruction on a line
+     *
+     * @param instruction the instruction written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void write(Instruction instruction, Appendable out) throws IOException{
+        Opcode opcode = instruction.getOpcode();
+        if(instruction.getType() != Type.VOID){out.append('%').append(instruction.getName()).append(" = ");}
+        switch(opcode){
+            case ALLOCA:
+                out.append("alloca i32");
+                break;
+            case LOAD:
+                out.append("load i32, i32* ").append(instruction.getOperand(0).getReference());
+                break;
+            case STORE:
+                out.append("store i32 ").append(instruction.getOperand(0).getReference())
+                        .append(", i32* ").append(instruction.getOperand(1).getReference());
+                break;
+            case CALL:
+                out.append("call ").append(instruction.getType().toString()).append(" @").append(instruction.getFunction()).append('(');
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    if(i > 0){out.append(", ");}
+                    Value argument = instruction.getOperand(i);
+                    out.append(argument.getType().toString()).append(' ').append(argument.getReference());
+                }
+                out.append(')');
+                break;
+            case BR:
+                if(instruction.getOperands().isEmpty()){out.append("br label %").append(instruction.getBlocks().get(0).getName());}
+                else{
+                    out.append("br i1 ").append(instruction.getOperand(0).getReference())
+                            .append(", label %").append(instruction.getBlocks().get(0).getName())
+                            .append(" ,label %").append(instruction.getBlocks().get(1).getName());
+                }
+                break;
+            case PHI:
+                out.append("phi ").append(instruction.getType().toString()).append(' ');
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    if(i > 0){out.append(", ");}
+                    out.append("[ ").append(instruction.getOperand(i).getReference()).append(", %").append(instruction.getBlocks().get(i).getName()).append(" ]");
+                }
+                break;
+            case RET:
+                out.append("ret ").append(instruction.getOperand(0).getType().toString()).append(' ').append(instruction.getOperand(0).getReference());
+                break;
+            default:
+                // the binary operations and the comparisons, typed by their operands
+                if(opcode.isComparison()){out.append("icmp ");}
+                out.append(opcode.toString()).append(' ').append(instruction.getOperand(0).getType().toString()).append(' ')
+                        .append(instruction.getOperand(0).getReference()).append(" , ").append(instruction.getOperand(1).getReference());
+        }
+        out.append('\n');
+    }
+
+}
@@ -0,0 +1,273 @@
+package IR;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A pass propagating the constants of a function in SSA form, by the sparse conditional constant propagation
+ * of Wegman and Zadeck. The blocks are only executed once a jump to them may be taken, and the value of each register
+ * is unknown until it is computed, then a constant, then overdefined, so that a phi only merges the values coming
+ * from the jumps which may be taken and a condition constant on every path reaching it takes a single target.
+ * The registers found constant are replaced by their value, the jumps on a constant condition by unconditional jumps,
+ * and the blocks never executed are removed. The memory is not tracked: a load or a call is overdefined.
+ */
+public class SCCP extends Pass {
+    // the value of a register which may hold several values, a register not yet computed having none
+    private static final Object OVERDEFINED = new Object();
+
+    private int foldedInstructions = 0;
+    private int foldedBranches = 0;
+    private int removedBlocks = 0;
+
+    private Map<Instruction, Object> values;
+    private Map<Instruction, List<Instruction>> users;
+    private Map<BasicBlock, List<BasicBlock>> executedEdges;
+    private Deque<BasicBlock[]> edgeWorklist;
+    private Deque<Instruction> valueWorklist;
+
+
+    //Getters
+    public int getFoldedInstructions(){return foldedInstructions;}
+    public int getFoldedBranches(){return foldedBranches;}
+    public int getRemovedBlocks(){return removedBlocks;}
+
+
+    @Override
+    public String getName(){return "sccp";}
+
+
+    @Override
+    public String getStatistics(){
+        return super.getStatistics() + ": folded " + foldedInstructions + " constant registers and " + foldedBranches
+                + " branches and removed " + removedBlocks + " unreachable blocks";
+    }
+
+
+    /**
+     * This method propagates the constants of a function and removes its code never executed,
+     * whose registers are then numbered again
+     *
+     * @param function the function rewritten
+     */
+    @Override
+    protected void transform(Function function){
+        values = new IdentityHashMap<>();
+        users = new IdentityHashMap<>();
+        executedEdges = new IdentityHashMap<>();
+        edgeWorklist = new ArrayDeque<>();
+        valueWorklist = new ArrayDeque<>();
+        for(BasicBlock block : function.getBlocks()){
+            for(Instruction instruction : block.getInstructions()){
+                for(Value operand : instruction.getOperands()){
+                    if(operand instanceof Instruction){users.computeIfAbsent((Instruction) operand, key -> new ArrayList<>(2)).add(instruction);}
+                }
+            }
+        }
+        // the entry is reached by an edge from no block
+        edgeWorklist.add(new BasicBlock[]{null, function.getEntry()});
+        do{solve();}while(resolveUnknownBranches(function));
+        rewrite(function);
+        function.renumber();
+        values = null;
+        users = null;
+        executedEdges = null;
+    }
+
+
+    /**
+     * This method executes the blocks reachable from the entry through the jumps which may be taken, and computes
+     * the value of their registers, until neither changes anymore
+     */
+    private void solve(){
+        while(!edgeWorklist.isEmpty() || !valueWorklist.isEmpty()){
+            while(!edgeWorklist.isEmpty()){
+                BasicBlock[] edge = edgeWorklist.poll();
+                boolean executed = executedEdges.containsKey(edge[1]);
+                List<BasicBlock> sources = executedEdges.computeIfAbsent(edge[1], key -> new ArrayList<>(2));
+                if(sources.contains(edge[0])){continue;}
+                sources.add(edge[0]);
+                for(Instruction instruction : edge[1].getInstructions()){
+                    // the phi nodes receive a new value, the other instructions are only evaluated when the block is first executed
+                    if(executed && instruction.getOpcode() != Opcode.PHI){break;}
+                    evaluate(instruction);
+                }
+            }
+            while(!valueWorklist.isEmpty()){
+                List<Instruction> instructionUsers = users.get(valueWorklist.poll());
+                if(instructionUsers == null){continue;}
+                for(Instruction user : instructionUsers){
+                    if(executedEdges.containsKey(user.getParent())){evaluate(user);}
+                }
+            }
+        }
+    }
+
+
+    /**
+     * This method makes the conditions of the jumps of the blocks executed which are not yet computed overdefined,
+     * a cycle of phi nodes receiving no value otherwise leaving both targets of such a jump unexecuted
+     *
+     * @param function the function
+     * @return true if a condition was not computed, the jumps which may be taken being then added
+     */
+    private boolean resolveUnknownBranches(Function function){
+        boolean resolved = false;
+        for(BasicBlock block : function.getBlocks()){
+            Instruction terminator = block.getTerminator();
+            if(!executedEdges.containsKey(block) || terminator == null || terminator.getOpcode() != Opcode.BR
+                    || terminator.getOperands().isEmpty() || valueOf(terminator.getOperand(0)) != null){continue;}
+            values.put((Instruction) terminator.getOperand(0), OVERDEFINED);
+            valueWorklist.add((Instruction) terminator.getOperand(0));
+            resolved = true;
+        }
+        return resolved;
+    }
+
+
+    /**
+     * This method evaluates an instruction of a block executed: a jump adds the edges which may be taken
+     * and the value of a register is lowered, the users of the register being evaluated again if it changes
+     *
+     * @param instruction the instruction
+     */
+    private void evaluate(Instruction instruction){
+        Opcode opcode = instruction.getOpcode();
+        if(opcode == Opcode.BR){
+            List<BasicBlock> targets = instruction.getBlocks();
+            if(targets.size() == 1){edgeWorklist.add(new BasicBlock[]{instruction.getParent(), targets.get(0)});}
+            else{
+                Object condition = valueOf(instruction.getOperand(0));
+                if(condition instanceof Constant){
+                    BasicBlock target = targets.get(((Constant) condition).getValue() != 0 ? 0 : 1);
+                    edgeWorklist.add(new BasicBlock[]{instruction.getParent(), target});
+                }
+                else if(condition == OVERDEFINED){
+                    for(BasicBlock target : targets){edgeWorklist.add(new BasicBlock[]{instruction.getParent(), target});}
+                }
+            }
+            return;
+        }
+        if(instruction.getType() == Type.VOID){return;}
+        Object value;
+        if(opcode == Opcode.PHI){value = meet(instruction);}
+        else if(opcode.isBinary() || opcode.isComparison()){value = fold(instruction);}
+        // the allocations, the loads and the calls are not tracked
+        else{value = OVERDEFINED;}
+        Object previous = values.get(instruction);
+        if(value == null || previous == OVERDEFINED || value.equals(previous)){return;}
+        // a register holding two constants is overdefined
+        values.put(instruction, previous == null ? value : OVERDEFINED);
+        valueWorklist.add(instruction);
+    }
+
+
+    /**
+     * This method returns the value of an operand
+     *
+     * @param operand the operand
+     * @return the operand if it is a constant, the value of a register, null if it is not yet computed,
+     * or OVERDEFINED for an undefined value
+     */
+    private Object valueOf(Value operand){
+        if(operand instanceof Constant){return operand;}
+        if(operand instanceof Instruction){return values.get(operand);}
+        return OVERDEFINED;
+    }
+
+
+    /**
+     * This method merges the values a phi receives from the predecessors whose jump to its block may be taken
+     *
+     * @param phi the phi
+     * @return the constant received from every one of them, null if none is computed yet, or OVERDEFINED
+     */
+    private Object meet(Instruction phi){
+        List<BasicBlock> sources = executedEdges.get(phi.getParent());
+        Object result = null;
+        for(int i = 0; i < phi.getOperands().size(); i++){
+            if(!sources.contains(phi.getBlocks().get(i))){continue;}
+            Object value = valueOf(phi.getOperand(i));
+            if(value == null){continue;}
+            if(value == OVERDEFINED || (result != null && !result.equals(value))){return OVERDEFINED;}
+            result = value;
+        }
+        return result;
+    }
+
+
+    /**
+     * This method computes the value of a binary operation or a comparison, wrapping around as the 32 bits integers.
+     * A division by zero, or of the smallest integer by -1, is left to the program
+     *
+     * @param instruction the operation
+     * @return the constant computed, null if an operand is not yet computed, or OVERDEFINED
+     */
+    private Object fold(Instruction instruction){
+        Object left = valueOf(instruction.getOperand(0)), right = valueOf(instruction.getOperand(1));
+        if(left == OVERDEFINED || right == OVERDEFINED){return OVERDEFINED;}
+        if(left == null || right == null){return null;}
+        int a = ((Constant) left).getValue(), b = ((Constant) right).getValue();
+        int result;
+        switch(instruction.getOpcode()){
+            case ADD: result = a + b; break;
+            case SUB: result = a - b; break;
+            case MUL: result = a * b; break;
+            case SDIV:
+                if(b == 0 || (a == Integer.MIN_VALUE && b == -1)){return OVERDEFINED;}
+                result = a / b;
+                break;
+            case AND: result = a & b; break;
+            case OR: result = a | b; break;
+            case EQ: result = a == b ? 1 : 0; break;
+            default: result = a < b ? 1 : 0;
+        }
+        return new Constant(instruction.getType(), result);
+    }
+
+
+    /**
+     * This method replaces the registers found constant by their value and the jumps on a constant condition
+     * by unconditional jumps, then removes the blocks never executed
+     *
+     * @param function the function
+     */
+    private void rewrite(Function function){
+        for(BasicBlock block : function.getBlocks()){
+            if(!executedEdges.containsKey(block)){continue;}
+            List<Instruction> instructions = block.getInstructions();
+            int kept = 0;
+            for(Instruction instruction : instructions){
+                for(int i = 0; i < instruction.getOperands().size(); i++){
+                    Value operand = instruction.getOperand(i);
+                    if(operand instanceof Instruction && values.get(operand) instanceof Constant){
+                        instruction.setOperand(i, (Constant) values.get(operand));
+                    }
+                }
+                // the loads and the calls are never constant, so that the instructions removed have no effect
+                if(values.get(instruction) instanceof Constant){
+                    foldedInstructions++;
+                    continue;
+                }
+                instructions.set(kept++, instruction);
+            }
+            instructions.subList(kept, instructions.size()).clear();
+            Instruction terminator = block.getTerminator();
+            if(terminator != null && terminator.getOpcode() == Opcode.BR && terminator.getOperands().size() == 1
+                    && terminator.getOperand(0) instanceof Constant){
+                List<BasicBlock> targets = terminator.getBlocks();
+                int taken = ((Constant) terminator.getOperand(0)).getValue() != 0 ? 0 : 1;
+                block.unlink(targets.get(1 - taken));
+                block.replaceTerminator(new Instruction(Opcode.BR, Type.VOID, null, new Value[0], new BasicBlock[]{targets.get(taken)}, null));
+                foldedBranches++;
+            }
+        }
+        int blocks = function.getBlocks().size();
+        function.removeBlocks(block -> !executedEdges.containsKey(block));
+        removedBlocks += blocks - function.getBlocks().size();
+    }
+
+}
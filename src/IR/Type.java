@@ -0,0 +1,26 @@
+package IR;
+
+/**
+ * The types of the values of the code: the integers, the booleans, the pointers to an integer and the absence of value
+ */
+public enum Type {
+    I1("i1"),
+    I32("i32"),
+    POINTER("i32*"),
+    VOID("void");
+
+    private final String text;
+
+
+    /**
+     * Constructs a type
+     *
+     * @param text the text of the type in the LLVM code
+     */
+    Type(String text){this.text = text;}
+
+
+    @Override
+    public String toString(){return text;}
+
+}
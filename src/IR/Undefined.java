@@ -0,0 +1,21 @@
+package IR;
+
+/**
+ * The undefined value of a type, such as the value of a variable read before being written
+ */
+public final class Undefined extends Value {
+    public static final Undefined I32 = new Undefined(Type.I32);
+
+
+    /**
+     * Constructs the undefined value of a type
+     *
+     * @param type the type of the value
+     */
+    private Undefined(Type type){super(type);}
+
+
+    @Override
+    public String getReference(){return "undef";}
+
+}
@@ -0,0 +1,29 @@
+package IR;
+
+/**
+ * A value of the code, used as the operand of an instruction: a constant or the result of an instruction
+ */
+public abstract class Value {
+    private final Type type;
+
+
+    /**
+     * Constructs a value
+     *
+     * @param type the type of the value
+     */
+    protected Value(Type type){this.type = type;}
+
+
+    //Getters
+    public Type getType(){return type;}
+
+
+    /**
+     * This method returns the text of the value when it is the operand of an instruction
+     *
+     * @return the name of the register holding the value prefixed by "%", or the constant
+     */
+    public abstract String getReference();
+
+}
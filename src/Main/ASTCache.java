@@ -0,0 +1,102 @@
+package Main;
+
+import Nodes.BinaryAST;
+import Nodes.Block;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A directory of encoded abstract trees, each file being named by the SHA-256 hash of the compiler version
+ * and of the source it was built from. An unchanged source compiled by the same compiler finds its tree
+ * in the cache and skips the lexing, the parsing and the passes building the tree.
+ */
+public class ASTCache {
+    /**
+     * The version of the compiler front end, to change whenever the trees it builds for a given source change
+     */
+    public static final String COMPILER_VERSION = "part3-ast-" + BinaryAST.FORMAT_VERSION + ".1";
+    private Path directory;
+
+
+    /**
+     * Constructs a cache
+     *
+     * @param directory the directory of the cache, created if needed
+     */
+    public ASTCache(Path directory){
+        this.directory = directory;
+    }
+
+
+    //Getters
+    public Path getDirectory(){return directory;}
+
+
+    /**
+     * This method computes the key of a source in the cache
+     *
+     * @param source the content of the source file
+     * @return the hexadecimal SHA-256 hash of the compiler version and of the source
+     */
+    public static String key(byte[] source){
+        try{
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(COMPILER_VERSION.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            byte[] hash = digest.digest(source);
+            StringBuilder key = new StringBuilder();
+            for(byte b : hash){key.append(String.format("%02x", b));}
+            return key.toString();
+        }
+        catch(NoSuchAlgorithmException e){throw new IllegalStateException("SHA-256 is not available", e);}
+    }
+
+
+    /**
+     * This method returns the file of a key
+     *
+     * @param key the key of a source
+     * @return the path of the file of the key
+     */
+    private Path file(String key){return directory.resolve(key + ".ast");}
+
+
+    /**
+     * This method loads the tree of a source from the cache
+     *
+     * @param key the key of the source
+     * @return the tree of the source, or null if it is not in the cache or if its file is invalid
+     */
+    public Block load(String key){
+        Path file = file(key);
+        if(!Files.isRegularFile(file)){return null;}
+        try{return BinaryAST.decode(Files.readAllBytes(file));}
+        catch(IOException e){return null;}
+    }
+
+
+    /**
+     * This method stores the tree of a source in the cache. The tree is written to a temporary file
+     * which is then renamed, so that concurrent compilations never read a partially written file
+     *
+     * @param key the key of the source
+     * @param program the tree of the source
+     * @throws IOException the exception raised if the file cannot be written
+     */
+    public void store(String key, Block program) throws IOException{
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, key, ".tmp");
+        try{
+            Files.write(temporary, BinaryAST.encode(program));
+            Files.move(temporary, file(key), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally{Files.deleteIfExists(temporary);}
+    }
+
+}
@@ -2,28 +2,56 @@ package Main;
 
 import Grammar.Grammar;
 import Grammar.PmpGrammar;
+import IR.AllocaHoisting;
+import IR.GVN;
+import IR.LICM;
+import IR.Mem2Reg;
+import IR.Module;
+import IR.Pass;
+import IR.Peephole;
+import IR.Printer;
+import IR.SCCP;
+import Nodes.Block;
+import Nodes.ConstantFolder;
+import Parser.AST;
 import Parser.LLVMCreator;
+import Parser.NodeBuilder;
+import Parser.ParallelParser;
+import Parser.ParallelPassRunner;
+import Parser.ParseProfiler;
 import Parser.ParseTree;
 import Parser.Parser;
+import Parser.TreeExporter;
 
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class Main {
+    // the number of top-level instructions under which the passes after the parser are run serially
+    private static final int PARALLEL_THRESHOLD = 256;
+
     /**
      * This method reads the file given as argument and writes on the standard output stream the corresponding llvm code
      *
-     * @param args the arguments of the program arg[0] = inputFile
+     * @param args the arguments of the program, the options followed by the input file
      * @throws Exception the exception thrown if a problem occurs during the execution of the method
      */
     public static void main(String[] args) throws Exception{
-        if(args.length != 1){
-            System.out.println("Usage: java -jar part3.jar inputFile");
+        Options options = Options.parse(args);
+        if(options == null){
+            System.out.println(Options.usage());
             System.exit(0);
         }
-        parseFile(args[args.length - 1]);
+        parseFile(options);
     }
 
     /**
@@ -47,6 +75,17 @@ public class Main {
         return tokenList;
     }
 
+    /**
+     * This method reads the content of a source and extracts the tokens to put them in a list
+     *
+     * @param reader the reader providing the source code
+     * @return an array of symbols containing the tokens extracted from the source
+     */
+    public static ArrayList<Symbol> tokenize(java.io.Reader reader){
+        return getTokens(new LexicalAnalyzer(reader));
+    }
+
+
     /**
      * This method prints the tokens of a given symbol list
      *
@@ -102,7 +141,7 @@ public class Main {
      *
      * @return the terminal map built
      */
-    private static Map<String, LexicalUnit> getTerminalsMap(){
+    public static Map<String, LexicalUnit> getTerminalsMap(){
         Map<String, LexicalUnit> terminalsMap = new HashMap<String, LexicalUnit>(){
             {
                 put("begin", LexicalUnit.BEG);
@@ -137,23 +176,136 @@ public class Main {
     }
 
     /**
-     * This method parses a given file, produces and prints the corresponding llvm code
+     * This method writes a parse tree to a file, in the format given by the extension of the file
      *
-     * @param fileName the name of the file that is parsed
+     * @param tree the parse tree
+     * @param fileName the name of the file, ending with .tex, .tikz, .dot or .json
+     * @throws java.io.IOException the exception raised if the file cannot be written
+     */
+    private static void writeTree(ParseTree tree, String fileName) throws java.io.IOException{
+        try(Writer writer = Files.newBufferedWriter(Paths.get(fileName))){
+            String extension = fileName.substring(fileName.lastIndexOf('.') + 1);
+            switch(extension){
+                case "tex": TreeExporter.writeLaTeX(tree, writer); break;
+                case "tikz": TreeExporter.writeTikZPicture(tree, writer); break;
+                case "dot": TreeExporter.writeDot(tree, writer); break;
+                default: TreeExporter.writeJSON(tree, writer);
+            }
+        }
+    }
+
+
+    /**
+     * This method lexes and parses a source and builds its abstract tree, folding its constants
+     *
+     * @param options the options of the compiler
+     * @param reader the reader providing the source code
+     * @return the block of the instructions of the program
      * @throws Exception the exception that may be thrown during the parsing process
      */
-    private static void parseFile(String fileName) throws Exception{
-        LexicalAnalyzer analyzer  = new LexicalAnalyzer(new java.io.FileReader(fileName));
-        ArrayList<Symbol> symbolList = getTokens(analyzer);
+    private static Block buildProgram(Options options, java.io.Reader reader) throws Exception{
+        ArrayList<Symbol> symbolList = tokenize(reader);
         Grammar G = new PmpGrammar();
         Map<String, LexicalUnit> terminalsMap = getTerminalsMap();
         Parser parser = new Parser(G, symbolList, terminalsMap);
-        ParseTree parseTree = parser.parse();
-        parser.buildAST(parseTree);
-        
-        LLVMCreator llvmCreator = new LLVMCreator(parseTree);
-        System.out.println(llvmCreator.getCode());
+        ParseProfiler profiler = null;
+        if(options.isProfile()){
+            profiler = new ParseProfiler(parser);
+            parser.setProfiler(profiler);
+        }
+        ParseTree parseTree;
+        if(options.isParallel()){parseTree = new ParallelParser(parser, ForkJoinPool.commonPool()).parse();}
+        else{parseTree = parser.parse();}
+        if(options.getTreeFile() != null){writeTree(parseTree, options.getTreeFile());}
+        Block program;
+        if(options.isParallel()){
+            ParallelPassRunner runner = new ParallelPassRunner(ForkJoinPool.commonPool(), PARALLEL_THRESHOLD);
+            AST.lower(parseTree, runner);
+            program = NodeBuilder.build(parseTree, runner);
+        }
+        else{
+            parser.buildAST(parseTree);
+            program = NodeBuilder.build(parseTree);
+        }
+        ConstantFolder folder = new ConstantFolder();
+        program = folder.fold(program);
+        if(profiler != null){
+            profiler.countProductions(parser.getRulesSequence());
+            System.err.print(profiler);
+        }
+        if(options.isStats()){
+            System.err.println(options.getInputFile() + ": constant folding eliminated " + folder.getEliminatedNodes() + " of " + folder.getNodesBefore() + " nodes");
+        }
+        return program;
     }
 
-}
 
+    /**
+     * This method parses a given file, produces and prints the corresponding llvm code.
+     * When a cache directory is given, the abstract tree of an unchanged file is loaded from the cache instead
+     *
+     * @param options the options of the compiler, containing the name of the file that is parsed
+     * @throws Exception the exception that may be thrown during the parsing process
+     */
+    private static void parseFile(Options options) throws Exception{
+        Block program;
+        if(options.getCacheDirectory() == null){
+            program = buildProgram(options, new java.io.FileReader(options.getInputFile()));
+        }
+        else{
+            ASTCache cache = new ASTCache(Paths.get(options.getCacheDirectory()));
+            byte[] source = Files.readAllBytes(Paths.get(options.getInputFile()));
+            String key = ASTCache.key(source);
+            // the parse tree is only built, and the parser only profiled, when the source is parsed
+            program = options.getTreeFile() == null && !options.isProfile() ? cache.load(key) : null;
+            if(program != null){
+                if(options.isStats()){System.err.println(options.getInputFile() + ": abstract tree loaded from the cache, its constants were folded when it was stored");}
+            }
+            else{
+                program = buildProgram(options, new java.io.InputStreamReader(new java.io.ByteArrayInputStream(source)));
+                try{cache.store(key, program);}
+                catch(java.io.IOException e){System.err.println("Warning: the abstract tree could not be cached: " + e.getMessage());}
+            }
+        }
+        // the code is streamed block by block, unless passes rewrite the whole module, followed by an empty line
+        Writer out = new java.io.BufferedWriter(new java.io.OutputStreamWriter(System.out));
+        boolean optimized = options.getOptimizationLevel() > 0;
+        Set<LLVMCreator.Mode> modes = EnumSet.noneOf(LLVMCreator.Mode.class);
+        if(options.isSsa() || optimized){modes.add(LLVMCreator.Mode.REGISTERS);}
+        if(options.isShortCircuit() || optimized){modes.add(LLVMCreator.Mode.SHORT_CIRCUIT);}
+        if(options.isBufferedIO()){modes.add(LLVMCreator.Mode.BUFFERED_IO);}
+        List<Pass> passes = passes(options);
+        if(!passes.isEmpty()){
+            Module module = new LLVMCreator(program, modes).getModule();
+            for(Pass pass : passes){
+                pass.run(module);
+                if(options.isStats()){System.err.println(options.getInputFile() + ": " + pass.getStatistics());}
+            }
+            Printer.write(module, out);
+        }
+        else{new LLVMCreator(program, out, modes);}
+        out.write(System.lineSeparator());
+        out.flush();
+    }
+
+
+    /**
+     * This method builds the passes rewriting the code, in the order they are run, from the passes
+     * selected and the optimization level
+     *
+     * @param options the options of the compiler
+     * @return the passes run, none if the code is streamed
+     */
+    private static List<Pass> passes(Options options){
+        List<Pass> passes = new ArrayList<>();
+        int level = options.getOptimizationLevel();
+        if(options.isHoistAllocas()){passes.add(new AllocaHoisting());}
+        if(options.isMem2reg() || level >= 1){passes.add(new Mem2Reg());}
+        if(level >= 2){passes.add(new SCCP());}
+        if(options.isGvn() || level >= 2){passes.add(new GVN());}
+        if(options.isLicm() || level >= 2){passes.add(new LICM());}
+        if(options.isPeephole() || level >= 1){passes.add(new Peephole());}
+        return passes;
+    }
+
+}
@@ -0,0 +1,123 @@
+package Main;
+
+/**
+ * The options of the compiler, read from the command line arguments
+ */
+public class Options {
+    private String inputFile = null;
+    private boolean parallel = false;
+    private boolean profile = false;
+    private boolean stats = false;
+    private boolean ssa = false;
+    private boolean mem2reg = false;
+    private boolean hoistAllocas = false;
+    private boolean shortCircuit = false;
+    private boolean gvn = false;
+    private boolean licm = false;
+    private boolean peephole = false;
+    private boolean bufferedIO = false;
+    private int optimizationLevel = 0;
+    private String cacheDirectory = null;
+    private String treeFile = null;
+
+
+    //Getters
+    public String getInputFile(){return inputFile;}
+    public boolean isParallel(){return parallel;}
+    public boolean isProfile(){return profile;}
+    public boolean isStats(){return stats;}
+    public boolean isSsa(){return ssa;}
+    public boolean isMem2reg(){return mem2reg;}
+    public boolean isHoistAllocas(){return hoistAllocas;}
+    public boolean isShortCircuit(){return shortCircuit;}
+    public boolean isGvn(){return gvn;}
+    public boolean isLicm(){return licm;}
+    public boolean isPeephole(){return peephole;}
+    public boolean isBufferedIO(){return bufferedIO;}
+    public int getOptimizationLevel(){return optimizationLevel;}
+    public String getCacheDirectory(){return cacheDirectory;}
+    public String getTreeFile(){return treeFile;}
+
+    //Setters
+    public void setInputFile(String inputFile){this.inputFile = inputFile;}
+    public void setParallel(boolean parallel){this.parallel = parallel;}
+    public void setProfile(boolean profile){this.profile = profile;}
+    public void setStats(boolean stats){this.stats = stats;}
+    public void setSsa(boolean ssa){this.ssa = ssa;}
+    public void setMem2reg(boolean mem2reg){this.mem2reg = mem2reg;}
+    public void setHoistAllocas(boolean hoistAllocas){this.hoistAllocas = hoistAllocas;}
+    public void setShortCircuit(boolean shortCircuit){this.shortCircuit = shortCircuit;}
+    public void setGvn(boolean gvn){this.gvn = gvn;}
+    public void setLicm(boolean licm){this.licm = licm;}
+    public void setPeephole(boolean peephole){this.peephole = peephole;}
+    public void setBufferedIO(boolean bufferedIO){this.bufferedIO = bufferedIO;}
+    public void setOptimizationLevel(int optimizationLevel){this.optimizationLevel = optimizationLevel;}
+    public void setCacheDirectory(String cacheDirectory){this.cacheDirectory = cacheDirectory;}
+    public void setTreeFile(String treeFile){this.treeFile = treeFile;}
+
+
+    /**
+     * This method reads the options given as arguments of the program
+     *
+     * @param args the arguments of the program, the options followed by the input file
+     * @return the options read, or null if the arguments are not valid
+     */
+    public static Options parse(String[] args){
+        Options options = new Options();
+        for(int i = 0; i < args.length; i++){
+            String arg = args[i];
+            if(arg.equals("--parallel")){options.setParallel(true);}
+            else if(arg.equals("--profile")){options.setProfile(true);}
+            else if(arg.equals("--stats")){options.setStats(true);}
+            else if(arg.equals("--ssa")){options.setSsa(true);}
+            else if(arg.equals("--mem2reg")){options.setMem2reg(true);}
+            else if(arg.equals("--hoist-allocas")){options.setHoistAllocas(true);}
+            else if(arg.equals("--short-circuit")){options.setShortCircuit(true);}
+            else if(arg.equals("--gvn")){options.setGvn(true);}
+            else if(arg.equals("--licm")){options.setLicm(true);}
+            else if(arg.equals("--peephole")){options.setPeephole(true);}
+            else if(arg.equals("--buffered-io")){options.setBufferedIO(true);}
+            else if(arg.matches("-O[0-2]")){options.setOptimizationLevel(arg.charAt(2) - '0');}
+            else if(arg.equals("--cache")){
+                if(i + 1 == args.length){return null;}
+                options.setCacheDirectory(args[++i]);
+            }
+            else if(arg.equals("--tree")){
+                if(i + 1 == args.length || !args[i + 1].matches(".*\\.(tex|tikz|dot|json)")){return null;}
+                options.setTreeFile(args[++i]);
+            }
+            else if(arg.startsWith("-") || options.getInputFile() != null){return null;}
+            else{options.setInputFile(arg);}
+        }
+        if(options.getInputFile() == null){return null;}
+        return options;
+    }
+
+
+    /**
+     * This method builds the usage message of the program
+     *
+     * @return the usage message
+     */
+    public static String usage(){
+        return "Usage: java -jar part3.jar [options] inputFile\n" +
+                "Options:\n" +
+                "  --parallel    parse and lower the top-level instructions in parallel\n" +
+                "  --profile     print the productions applied and the parse time per variable on the error stream\n" +
+                "  --stats       print the statistics of the optimization passes on the error stream\n" +
+                "  --ssa         hold the values of the expressions in registers instead of stack slots\n" +
+                "  --mem2reg     promote the variables and the stack slots to registers, with phi nodes, removing their allocations\n" +
+                "  --hoist-allocas  allocate every stack slot in the entry block, so that the loops don't grow the stack\n" +
+                "  --short-circuit  jump on the conditions, evaluating the right operand of and/or only when it is needed\n" +
+                "  --gvn         remove the computations and the loads of the variables done again along the dominator tree\n" +
+                "  --licm        compute the expressions which don't change in a loop once, before the loop\n" +
+                "  --peephole    rewrite the local patterns of the code, such as a store followed by a load of the same variable\n" +
+                "  --buffered-io  print and read the integers through buffers instead of printf and scanf, writing only the runtime used\n" +
+                "  -O0           run no optimization pass, the default\n" +
+                "  -O1           promote the variables to registers and rewrite the local patterns, as --ssa --short-circuit --mem2reg --peephole\n" +
+                "  -O2           propagate the constants, number the values and hoist the loop invariants too\n" +
+                "  --cache dir   reuse the abstract trees of the unchanged input files, stored in dir, unless --tree or --profile is given\n" +
+                "  --tree file   write the parse tree to file, in LaTeX, TikZ, DOT or JSON after its extension (.tex, .tikz, .dot, .json)";
+    }
+
+}
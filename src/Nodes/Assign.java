@@ -0,0 +1,31 @@
+package Nodes;
+
+/**
+ * The assignment of the value of an expression to a variable
+ */
+public final class Assign extends Statement {
+    private final VarRef target;
+    private final Expression value;
+
+
+    /**
+     * Constructs an assignment
+     *
+     * @param target the variable assigned
+     * @param value the expression whose value is assigned
+     */
+    public Assign(VarRef target, Expression value){
+        this.target = target;
+        this.value = value;
+    }
+
+
+    //Getters
+    public VarRef getTarget(){return target;}
+    public Expression getValue(){return value;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
@@ -0,0 +1,37 @@
+package Nodes;
+
+import Main.LexicalUnit;
+
+/**
+ * An arithmetic operation on two expressions
+ */
+public final class BinOp extends Expression {
+    private final LexicalUnit operator;
+    private final Expression left;
+    private final Expression right;
+
+
+    /**
+     * Constructs an arithmetic operation
+     *
+     * @param operator the operator, one of PLUS, MINUS, TIMES and DIVIDE
+     * @param left the left operand
+     * @param right the right operand
+     */
+    public BinOp(LexicalUnit operator, Expression left, Expression right){
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+
+    //Getters
+    public LexicalUnit getOperator(){return operator;}
+    public Expression getLeft(){return left;}
+    public Expression getRight(){return right;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
@@ -0,0 +1,285 @@
+package Nodes;
+
+import Main.LexicalUnit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact binary encoding of an abstract tree. The encoding starts with a magic number and a format version,
+ * followed by the table of the variable names and by the nodes in postfix order, so that both the encoding
+ * and the decoding use an explicit stack. Every integer (node kind, number of statements, index in the table
+ * of names, literal) is written as a varint, the literals being zigzag-encoded so that small negative values stay short.
+ */
+public class BinaryAST {
+    public static final int FORMAT_VERSION = 2;
+    private static final byte[] MAGIC = {'P', 'M', 'P', 'A'};
+
+    private static final int BLOCK = 0, ASSIGN = 1, IF = 2, IF_ELSE = 3, WHILE = 4, FOR = 5, PRINT = 6, READ = 7;
+    private static final int ADD = 8, SUB = 9, MUL = 10, DIV = 11, NEG = 12, VAR = 13, INT = 14;
+    private static final int EQUAL = 15, SMALLER = 16, AND = 17, OR = 18;
+
+
+    /**
+     * This method writes a non-negative integer as a varint: 7 bits per byte, the high bit marking the bytes that are followed by another one
+     *
+     * @param out the stream written
+     * @param value the integer written
+     */
+    private static void writeVarint(ByteArrayOutputStream out, int value){
+        while((value & ~0x7F) != 0){
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+
+    /**
+     * This method encodes an abstract tree
+     *
+     * @param program the block of the instructions of the program
+     * @return the encoding of the tree
+     */
+    public static byte[] encode(Block program){
+        Encoder encoder = new Encoder();
+        encoder.walk(program);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(encoder.nodes.size() + 16 * encoder.names.size() + 16);
+        out.write(MAGIC, 0, MAGIC.length);
+        writeVarint(out, FORMAT_VERSION);
+        writeVarint(out, encoder.names.size());
+        for(String name : encoder.names){
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarint(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+        out.writeBytes(encoder.nodes.toByteArray());
+        return out.toByteArray();
+    }
+
+
+    /**
+     * A walker writing the nodes of a tree in postfix order and filling the table of the variable names.
+     * The kind of a node follows its children; a variable and a block also write the index of the name
+     * and the number of statements
+     */
+    private static class Encoder extends Walker<Void> {
+        private final ByteArrayOutputStream nodes = new ByteArrayOutputStream();
+        private final List<String> names = new ArrayList<>();
+        private final Map<String, Integer> nameIndexes = new HashMap<>();
+
+        private Void write(int kind){
+            writeVarint(nodes, kind);
+            return null;
+        }
+
+        @Override
+        public Void visit(Block block){
+            write(BLOCK);
+            writeVarint(nodes, block.getStatements().size());
+            return null;
+        }
+
+        @Override
+        public Void visit(Assign assign){return write(ASSIGN);}
+
+        @Override
+        public Void visit(If ifStatement){return write(ifStatement.getElseBlock() == null ? IF : IF_ELSE);}
+
+        @Override
+        public Void visit(While whileStatement){return write(WHILE);}
+
+        @Override
+        public Void visit(For forStatement){return write(FOR);}
+
+        @Override
+        public Void visit(Print print){return write(PRINT);}
+
+        @Override
+        public Void visit(Read read){return write(READ);}
+
+        @Override
+        public Void visit(BinOp binOp){
+            switch(binOp.getOperator()){
+                case PLUS: return write(ADD);
+                case MINUS: return write(SUB);
+                case TIMES: return write(MUL);
+                default: return write(DIV);
+            }
+        }
+
+        @Override
+        public Void visit(Negate negate){return write(NEG);}
+
+        @Override
+        public Void visit(Cond cond){
+            switch(cond.getOperator()){
+                case EQUAL: return write(EQUAL);
+                case SMALLER: return write(SMALLER);
+                case AND: return write(AND);
+                default: return write(OR);
+            }
+        }
+
+        @Override
+        public Void visit(VarRef varRef){
+            Integer index = nameIndexes.get(varRef.getName());
+            if(index == null){
+                index = names.size();
+                names.add(varRef.getName());
+                nameIndexes.put(varRef.getName(), index);
+            }
+            write(VAR);
+            writeVarint(nodes, index);
+            return null;
+        }
+
+        @Override
+        public Void visit(IntLit intLit){
+            write(INT);
+            writeVarint(nodes, (intLit.getValue() << 1) ^ (intLit.getValue() >> 31));
+            return null;
+        }
+    }
+
+
+    /**
+     * This method decodes an abstract tree
+     *
+     * @param bytes the encoding of the tree
+     * @return the block of the instructions of the program
+     * @throws IOException the exception raised if the bytes are not a valid encoding
+     */
+    public static Block decode(byte[] bytes) throws IOException{
+        return new Decoder(bytes).decode();
+    }
+
+
+    /**
+     * A reader of the nodes of an encoded tree
+     */
+    private static class Decoder {
+        private final byte[] bytes;
+        private int position = 0;
+        private VarRef[] names;
+
+        Decoder(byte[] bytes){this.bytes = bytes;}
+
+        private int readVarint() throws IOException{
+            int value = 0;
+            for(int shift = 0; shift < 35; shift += 7){
+                if(position >= bytes.length){throw new IOException("Truncated abstract tree");}
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if((b & 0x80) == 0){return value;}
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        Block decode() throws IOException{
+            if(bytes.length < MAGIC.length){throw new IOException("Not an abstract tree");}
+            for(int i = 0; i < MAGIC.length; i++){
+                if(bytes[i] != MAGIC[i]){throw new IOException("Not an abstract tree");}
+            }
+            position = MAGIC.length;
+            if(readVarint() != FORMAT_VERSION){throw new IOException("Unsupported abstract tree format");}
+            int count = readVarint();
+            if(count < 0 || count > bytes.length){throw new IOException("Malformed table of names");}
+            names = new VarRef[count];
+            for(int i = 0; i < count; i++){
+                int length = readVarint();
+                if(length < 0 || position + length > bytes.length){throw new IOException("Truncated abstract tree");}
+                // a single node per variable: the references to a variable are shared
+                names[i] = new VarRef(new String(bytes, position, length, StandardCharsets.UTF_8));
+                position += length;
+            }
+            List<Node> stack = new ArrayList<>();
+            while(position < bytes.length){stack.add(readNode(stack));}
+            if(stack.size() != 1 || !(stack.get(0) instanceof Block)){throw new IOException("Malformed abstract tree");}
+            return (Block) stack.get(0);
+        }
+
+        /**
+         * This method removes the node on the top of the stack of the decoded nodes, checking its type
+         *
+         * @param stack the decoded nodes whose father is not decoded yet
+         * @param type the expected type of the node
+         * @return the node removed
+         * @throws IOException the exception raised if the stack is empty or if the node has another type
+         */
+        private static <T extends Node> T pop(List<Node> stack, Class<T> type) throws IOException{
+            if(stack.isEmpty()){throw new IOException("Missing " + type.getSimpleName());}
+            Node node = stack.remove(stack.size() - 1);
+            if(!type.isInstance(node)){throw new IOException("Unexpected node " + node.getClass().getSimpleName());}
+            return type.cast(node);
+        }
+
+        /**
+         * This method reads a node, its children being on the top of the stack of the decoded nodes
+         *
+         * @param stack the decoded nodes whose father is not decoded yet
+         * @return the node read
+         * @throws IOException the exception raised if the node is malformed
+         */
+        private Node readNode(List<Node> stack) throws IOException{
+            int kind = readVarint();
+            switch(kind){
+                case BLOCK:
+                    int count = readVarint();
+                    if(count < 0 || count > stack.size()){throw new IOException("Malformed block");}
+                    Statement[] statements = new Statement[count];
+                    for(int i = count - 1; i >= 0; i--){statements[i] = pop(stack, Statement.class);}
+                    return new Block(new ArrayList<>(Arrays.asList(statements)));
+                case ASSIGN:
+                    Expression value = pop(stack, Expression.class);
+                    return new Assign(pop(stack, VarRef.class), value);
+                case IF: case IF_ELSE:
+                    Block elseBlock = kind == IF_ELSE ? pop(stack, Block.class) : null;
+                    Block thenBlock = pop(stack, Block.class);
+                    return new If(pop(stack, Cond.class), thenBlock, elseBlock);
+                case WHILE:
+                    Block body = pop(stack, Block.class);
+                    return new While(pop(stack, Cond.class), body);
+                case FOR:
+                    Block forBody = pop(stack, Block.class);
+                    Cond forCondition = pop(stack, Cond.class);
+                    Assign step = pop(stack, Assign.class);
+                    return new For(pop(stack, Assign.class), step, forCondition, forBody);
+                case PRINT:
+                    return new Print(pop(stack, VarRef.class));
+                case READ:
+                    return new Read(pop(stack, VarRef.class));
+                case ADD: case SUB: case MUL: case DIV:
+                    LexicalUnit operator = kind == ADD ? LexicalUnit.PLUS : kind == SUB ? LexicalUnit.MINUS : kind == MUL ? LexicalUnit.TIMES : LexicalUnit.DIVIDE;
+                    Expression right = pop(stack, Expression.class);
+                    return new BinOp(operator, pop(stack, Expression.class), right);
+                case NEG:
+                    return new Negate(pop(stack, Expression.class));
+                case VAR:
+                    int index = readVarint();
+                    if(index < 0 || index >= names.length){throw new IOException("Unknown variable " + index);}
+                    return names[index];
+                case INT:
+                    int zigzag = readVarint();
+                    return new IntLit((zigzag >>> 1) ^ -(zigzag & 1));
+                case EQUAL: case SMALLER:
+                    LexicalUnit comparison = kind == EQUAL ? LexicalUnit.EQUAL : LexicalUnit.SMALLER;
+                    Expression rightExpression = pop(stack, Expression.class);
+                    return new Cond(comparison, pop(stack, Expression.class), rightExpression);
+                case AND: case OR:
+                    LexicalUnit connective = kind == AND ? LexicalUnit.AND : LexicalUnit.OR;
+                    Cond rightCondition = pop(stack, Cond.class);
+                    return new Cond(connective, pop(stack, Cond.class), rightCondition);
+                default:
+                    throw new IOException("Unknown node kind " + kind);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,29 @@
+package Nodes;
+
+import java.util.List;
+
+/**
+ * A list of instructions executed in order
+ */
+public final class Block extends Statement {
+    private final List<Statement> statements;
+
+
+    /**
+     * Constructs a block
+     *
+     * @param statements the instructions of the block
+     */
+    public Block(List<Statement> statements){
+        this.statements = statements;
+    }
+
+
+    //Getters
+    public List<Statement> getStatements(){return statements;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
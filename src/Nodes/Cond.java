@@ -0,0 +1,46 @@
+package Nodes;
+
+import Main.LexicalUnit;
+
+/**
+ * A boolean condition: the comparison of two expressions (EQUAL, SMALLER)
+ * or the conjunction or disjunction of two conditions (AND, OR)
+ */
+public final class Cond extends Node {
+    private final LexicalUnit operator;
+    private final Node left;
+    private final Node right;
+
+
+    /**
+     * Constructs a condition
+     *
+     * @param operator the operator, one of EQUAL, SMALLER, AND and OR
+     * @param left the left operand, an expression for a comparison and a condition otherwise
+     * @param right the right operand, an expression for a comparison and a condition otherwise
+     */
+    public Cond(LexicalUnit operator, Node left, Node right){
+        this.operator = operator;
+        this.left = left;
+        this.right = right;
+    }
+
+
+    //Getters
+    public LexicalUnit getOperator(){return operator;}
+    public Node getLeft(){return left;}
+    public Node getRight(){return right;}
+
+
+    /**
+     * This method checks whether the condition is a comparison of two expressions
+     *
+     * @return true if the operator is EQUAL or SMALLER
+     */
+    public boolean isComparison(){return operator == LexicalUnit.EQUAL || operator == LexicalUnit.SMALLER;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
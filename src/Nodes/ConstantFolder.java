@@ -0,0 +1,307 @@
+package Nodes;
+
+import Main.LexicalUnit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A pass folding the constant subexpressions of an abstract tree with the 32-bit wraparound semantics of i32,
+ * applying the identities x*1, x/1, x+0, x-0, x*0, x-x, 0-x and -(-x), and removing the branches of the
+ * if, while and for instructions whose condition is constant. The pass builds a new tree, the nodes that
+ * are not simplified being shared with the original tree.
+ */
+public class ConstantFolder extends Walker<Node> {
+    /**
+     * The conditions standing for the folded conditions that always or never hold
+     */
+    private static final Cond TRUE = new Cond(LexicalUnit.EQUAL, new IntLit(0), new IntLit(0));
+    private static final Cond FALSE = new Cond(LexicalUnit.SMALLER, new IntLit(0), new IntLit(0));
+    private ExpressionDAG dag;
+    private int nodesBefore = 0;
+    private int nodesAfter = 0;
+
+
+    /**
+     * Constructs a constant folder
+     */
+    public ConstantFolder(){
+        this.dag = new ExpressionDAG();
+    }
+
+
+    //Getters
+    public int getNodesBefore(){return nodesBefore;}
+    public int getNodesAfter(){return nodesAfter;}
+    public int getEliminatedNodes(){return nodesBefore - nodesAfter;}
+
+
+    /**
+     * This method folds the constants of a program
+     *
+     * @param program the block of the instructions of the program
+     * @return the block of the folded program
+     */
+    public Block fold(Block program){
+        this.nodesBefore += countNodes(program);
+        Block folded = (Block) walk(program);
+        this.nodesAfter += countNodes(folded);
+        return folded;
+    }
+
+
+    /**
+     * This method counts the nodes of a tree
+     *
+     * @param node the root of the tree
+     * @return the number of nodes of the tree
+     */
+    public static int countNodes(Node node){return new NodeCounter().walk(node);}
+
+
+    /**
+     * A walker counting the nodes of a tree
+     */
+    private static class NodeCounter extends Walker<Integer> {
+
+        /**
+         * This method counts the nodes of the subtree of the node being visited
+         *
+         * @return one plus the numbers of nodes of the subtrees of the children
+         */
+        private Integer count(){
+            int count = 1;
+            for(int childCount : results()){count += childCount;}
+            return count;
+        }
+
+        @Override
+        public Integer visit(Block block){return count();}
+
+        @Override
+        public Integer visit(Assign assign){return count();}
+
+        @Override
+        public Integer visit(If ifStatement){return count();}
+
+        @Override
+        public Integer visit(While whileStatement){return count();}
+
+        @Override
+        public Integer visit(For forStatement){return count();}
+
+        @Override
+        public Integer visit(Print print){return count();}
+
+        @Override
+        public Integer visit(Read read){return count();}
+
+        @Override
+        public Integer visit(BinOp binOp){return count();}
+
+        @Override
+        public Integer visit(Negate negate){return count();}
+
+        @Override
+        public Integer visit(Cond cond){return count();}
+
+        @Override
+        public Integer visit(VarRef varRef){return 1;}
+
+        @Override
+        public Integer visit(IntLit intLit){return 1;}
+    }
+
+
+    /**
+     * This method checks whether an expression is a given integer literal
+     *
+     * @param expression the expression checked
+     * @param value the value of the literal
+     * @return true if the expression is a literal of the given value
+     */
+    private static boolean isLiteral(Expression expression, int value){
+        return expression instanceof IntLit && ((IntLit) expression).getValue() == value;
+    }
+
+
+    /**
+     * This method returns the value of a folded condition
+     *
+     * @param cond the folded condition
+     * @return the value of the condition if it is constant, null otherwise
+     */
+    private static Boolean valueOf(Node cond){
+        if(cond == TRUE){return true;}
+        if(cond == FALSE){return false;}
+        return null;
+    }
+
+
+    /**
+     * This method computes an arithmetic operation on two constants with the semantics of i32
+     *
+     * @param operator the operator of the operation
+     * @param left the left operand
+     * @param right the right operand
+     * @return the result of the operation, or null if the operation is undefined (division by 0 or overflow)
+     */
+    private static Integer compute(LexicalUnit operator, int left, int right){
+        switch(operator){
+            case PLUS: return left + right;
+            case MINUS: return left - right;
+            case TIMES: return left * right;
+            case DIVIDE:
+                if(right == 0 || (left == Integer.MIN_VALUE && right == -1)){return null;}
+                return left / right;
+            default: return null;
+        }
+    }
+
+
+    @Override
+    public Node visit(Block block){
+        List<Statement> statements = new ArrayList<>();
+        for(Node folded : results()){
+            if(folded instanceof Block){statements.addAll(((Block) folded).getStatements());}
+            else{statements.add((Statement) folded);}
+        }
+        return new Block(statements);
+    }
+
+    @Override
+    public Node visit(Assign assign){
+        Expression value = (Expression) result(1);
+        return value == assign.getValue() ? assign : new Assign(assign.getTarget(), value);
+    }
+
+    @Override
+    public Node visit(If ifStatement){
+        Node condition = result(0);
+        Block thenBlock = (Block) result(1);
+        Block elseBlock = ifStatement.getElseBlock() == null ? null : (Block) result(2);
+        if(valueOf(condition) != null){
+            if(valueOf(condition)){return thenBlock;}
+            return elseBlock == null ? new Block(new ArrayList<>()) : elseBlock;
+        }
+        return new If((Cond) condition, thenBlock, elseBlock);
+    }
+
+    @Override
+    public Node visit(While whileStatement){
+        Node condition = result(0);
+        if(valueOf(condition) != null && !valueOf(condition)){return new Block(new ArrayList<>());}
+        // a condition that always holds is kept, the loop being infinite
+        Cond cond = valueOf(condition) == null ? (Cond) condition : whileStatement.getCondition();
+        return new While(cond, (Block) result(1));
+    }
+
+    @Override
+    public Node visit(For forStatement){
+        Assign init = (Assign) result(0);
+        Node condition = result(2);
+        if(valueOf(condition) != null && !valueOf(condition)){
+            List<Statement> statements = new ArrayList<>();
+            statements.add(init);
+            return new Block(statements);
+        }
+        Cond cond = valueOf(condition) == null ? (Cond) condition : forStatement.getCondition();
+        return new For(init, (Assign) result(1), cond, (Block) result(3));
+    }
+
+    @Override
+    public Node visit(Print print){return print;}
+
+    @Override
+    public Node visit(Read read){return read;}
+
+    @Override
+    public Node visit(BinOp binOp){
+        Expression left = (Expression) result(0);
+        Expression right = (Expression) result(1);
+        LexicalUnit operator = binOp.getOperator();
+        if(left instanceof IntLit && right instanceof IntLit){
+            Integer value = compute(operator, ((IntLit) left).getValue(), ((IntLit) right).getValue());
+            if(value != null){return new IntLit(value);}
+        }
+        switch(operator){
+            case PLUS:
+                if(isLiteral(right, 0)){return left;}
+                if(isLiteral(left, 0)){return right;}
+                break;
+            case MINUS:
+                if(isLiteral(right, 0)){return left;}
+                if(dag.intern(left) == dag.intern(right)){return new IntLit(0);}
+                if(isLiteral(left, 0)){return negate(right);}
+                break;
+            case TIMES:
+                if(isLiteral(right, 1)){return left;}
+                if(isLiteral(left, 1)){return right;}
+                if(isLiteral(left, 0) || isLiteral(right, 0)){return new IntLit(0);}
+                break;
+            case DIVIDE:
+                if(isLiteral(right, 1)){return left;}
+                break;
+            default:
+        }
+        if(left == binOp.getLeft() && right == binOp.getRight()){return binOp;}
+        return new BinOp(operator, left, right);
+    }
+
+    /**
+     * This method builds the folded opposite of a folded expression
+     *
+     * @param operand the folded expression whose opposite is built
+     * @return the folded opposite
+     */
+    private static Expression negate(Expression operand){
+        if(operand instanceof IntLit){return new IntLit(-((IntLit) operand).getValue());}
+        if(operand instanceof Negate){return ((Negate) operand).getOperand();}
+        return new Negate(operand);
+    }
+
+    @Override
+    public Node visit(Negate negate){
+        Expression operand = (Expression) result(0);
+        if(operand == negate.getOperand() && !(operand instanceof IntLit) && !(operand instanceof Negate)){return negate;}
+        return negate(operand);
+    }
+
+    /**
+     * This method folds a condition, the folded conditions that always or never hold being TRUE and FALSE
+     *
+     * @param cond the condition to fold
+     * @return the folded condition
+     */
+    @Override
+    public Node visit(Cond cond){
+        if(cond.isComparison()){
+            Expression left = (Expression) result(0);
+            Expression right = (Expression) result(1);
+            if(left instanceof IntLit && right instanceof IntLit){
+                int a = ((IntLit) left).getValue();
+                int b = ((IntLit) right).getValue();
+                return (cond.getOperator() == LexicalUnit.EQUAL ? a == b : a < b) ? TRUE : FALSE;
+            }
+            if(dag.intern(left) == dag.intern(right)){return cond.getOperator() == LexicalUnit.EQUAL ? TRUE : FALSE;}
+            if(left == cond.getLeft() && right == cond.getRight()){return cond;}
+            return new Cond(cond.getOperator(), left, right);
+        }
+        Node left = result(0);
+        Node right = result(1);
+        // the operands have no side effect, so the constant operand decides regardless of its position
+        Cond absorbing = cond.getOperator() == LexicalUnit.OR ? TRUE : FALSE;
+        if(left == absorbing || right == absorbing){return absorbing;}
+        if(valueOf(left) != null){return right;}
+        if(valueOf(right) != null){return left;}
+        if(left == cond.getLeft() && right == cond.getRight()){return cond;}
+        return new Cond(cond.getOperator(), left, right);
+    }
+
+    @Override
+    public Node visit(VarRef varRef){return varRef;}
+
+    @Override
+    public Node visit(IntLit intLit){return intLit;}
+
+}
@@ -0,0 +1,7 @@
+package Nodes;
+
+/**
+ * An arithmetic expression, whose value is an integer
+ */
+public abstract sealed class Expression extends Node permits BinOp, Negate, VarRef, IntLit {
+}
@@ -0,0 +1,192 @@
+package Nodes;
+
+import Main.LexicalUnit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hash-consing table turning the expressions of an abstract tree into a DAG: each expression receives
+ * an id keyed by its operator and the ids of its operands, so that structurally identical expressions
+ * share the same id and the same canonical node. The variables read by each expression are kept,
+ * so that the users of the DAG know which expressions are killed when a variable is written.
+ */
+public class ExpressionDAG {
+    private Map<List<Object>, Integer> ids;
+    private List<Expression> nodes;
+    private List<Set<String>> variables;
+    private Map<Expression, Integer> internedNodes;
+    private Interner interner;
+
+
+    /**
+     * Constructs an empty DAG
+     */
+    public ExpressionDAG(){
+        this.ids = new HashMap<>();
+        this.nodes = new ArrayList<>();
+        this.variables = new ArrayList<>();
+        this.internedNodes = new IdentityHashMap<>();
+        this.interner = new Interner();
+    }
+
+
+    //Getters
+    public int size(){return nodes.size();}
+
+
+    /**
+     * This method returns the canonical node of an id
+     *
+     * @param id the id of an expression of the DAG
+     * @return the node shared by all the expressions having this id
+     */
+    public Expression getNode(int id){return nodes.get(id);}
+
+
+    /**
+     * This method returns the variables read by the expression of an id
+     *
+     * @param id the id of an expression of the DAG
+     * @return the names of the variables read by the expression
+     */
+    public Set<String> getVariables(int id){return variables.get(id);}
+
+
+    /**
+     * This method returns the id of an expression, adding the expression and its operands to the DAG if needed
+     *
+     * @param expression the expression to intern
+     * @return the id of the expression
+     */
+    public int intern(Expression expression){
+        Integer id = internedNodes.get(expression);
+        return id == null ? interner.walk(expression) : id;
+    }
+
+
+    /**
+     * This method returns the id of a key, creating a new id and its canonical node if the key is new
+     *
+     * @param key the operator and the operand ids of an expression
+     * @param expression the expression whose canonical node is built if the key is new
+     * @param operands the ids of the operands of the expression
+     * @return the id of the key
+     */
+    private int intern(List<Object> key, Expression expression, int... operands){
+        Integer id = ids.get(key);
+        if(id != null){return id;}
+        id = nodes.size();
+        ids.put(key, id);
+        Set<String> read = expression instanceof VarRef ? Collections.singleton(((VarRef) expression).getName()) : Collections.emptySet();
+        for(int operand : operands){read = union(read, variables.get(operand));}
+        nodes.add(expression);
+        variables.add(read);
+        return id;
+    }
+
+
+    /**
+     * This method returns the union of two sets of variables, reusing one of them when it contains the other
+     * so that the expressions of a long chain reading the same variables share a single set
+     *
+     * @param a the first set
+     * @param b the second set
+     * @return the unmodifiable union of the sets
+     */
+    private static Set<String> union(Set<String> a, Set<String> b){
+        if(a.containsAll(b)){return a;}
+        if(b.containsAll(a)){return b;}
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        return Collections.unmodifiableSet(union);
+    }
+
+
+    /**
+     * A walker computing the id of an expression from the ids of its operands, the ids of the nodes
+     * already interned being reused without walking their operands again
+     */
+    private class Interner extends Walker<Integer> {
+
+        @Override
+        protected Integer enter(Node node){return internedNodes.get(node);}
+
+        /**
+         * This method records the id of a node
+         *
+         * @param expression the node interned
+         * @param id the id of the node
+         * @return the id of the node
+         */
+        private Integer interned(Expression expression, int id){
+            internedNodes.put(expression, id);
+            return id;
+        }
+
+        @Override
+        public Integer visit(BinOp binOp){
+            int left = result(0);
+            int right = result(1);
+            List<Object> key = Arrays.asList(binOp.getOperator(), left, right);
+            if(ids.containsKey(key)){return interned(binOp, ids.get(key));}
+            return interned(binOp, intern(key, new BinOp(binOp.getOperator(), nodes.get(left), nodes.get(right)), left, right));
+        }
+
+        @Override
+        public Integer visit(Negate negate){
+            int operand = result(0);
+            List<Object> key = Arrays.asList(LexicalUnit.MINUS, operand);
+            if(ids.containsKey(key)){return interned(negate, ids.get(key));}
+            return interned(negate, intern(key, new Negate(nodes.get(operand)), operand));
+        }
+
+        @Override
+        public Integer visit(VarRef varRef){
+            return interned(varRef, intern(Arrays.asList(LexicalUnit.VARNAME, varRef.getName()), varRef));
+        }
+
+        @Override
+        public Integer visit(IntLit intLit){
+            return interned(intLit, intern(Arrays.asList(LexicalUnit.NUMBER, intLit.getValue()), intLit));
+        }
+
+        @Override
+        protected List<Node> children(Node node){
+            if(!(node instanceof Expression)){throw new IllegalArgumentException("Only expressions can be interned");}
+            return super.children(node);
+        }
+
+        @Override
+        public Integer visit(Block block){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(Assign assign){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(If ifStatement){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(While whileStatement){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(For forStatement){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(Print print){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(Read read){throw new IllegalArgumentException("Only expressions can be interned");}
+
+        @Override
+        public Integer visit(Cond cond){throw new IllegalArgumentException("Only expressions can be interned");}
+    }
+
+}
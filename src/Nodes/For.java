@@ -0,0 +1,39 @@
+package Nodes;
+
+/**
+ * A for loop: an initial assignment, then the body and the step assignment as long as the condition holds
+ */
+public final class For extends Statement {
+    private final Assign init;
+    private final Assign step;
+    private final Cond condition;
+    private final Block body;
+
+
+    /**
+     * Constructs a for loop
+     *
+     * @param init the assignment executed before the loop
+     * @param step the assignment executed after each iteration
+     * @param condition the condition of the loop
+     * @param body the instructions of the loop
+     */
+    public For(Assign init, Assign step, Cond condition, Block body){
+        this.init = init;
+        this.step = step;
+        this.condition = condition;
+        this.body = body;
+    }
+
+
+    //Getters
+    public Assign getInit(){return init;}
+    public Assign getStep(){return step;}
+    public Cond getCondition(){return condition;}
+    public Block getBody(){return body;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
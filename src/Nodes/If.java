@@ -0,0 +1,35 @@
+package Nodes;
+
+/**
+ * A conditional instruction, with an optional else branch
+ */
+public final class If extends Statement {
+    private final Cond condition;
+    private final Block thenBlock;
+    private final Block elseBlock;
+
+
+    /**
+     * Constructs a conditional instruction
+     *
+     * @param condition the condition of the instruction
+     * @param thenBlock the instructions executed if the condition holds
+     * @param elseBlock the instructions executed otherwise, or null if there is no else branch
+     */
+    public If(Cond condition, Block thenBlock, Block elseBlock){
+        this.condition = condition;
+        this.thenBlock = thenBlock;
+        this.elseBlock = elseBlock;
+    }
+
+
+    //Getters
+    public Cond getCondition(){return condition;}
+    public Block getThenBlock(){return thenBlock;}
+    public Block getElseBlock(){return elseBlock;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
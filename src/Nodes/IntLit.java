@@ -0,0 +1,27 @@
+package Nodes;
+
+/**
+ * An integer literal
+ */
+public final class IntLit extends Expression {
+    private final int value;
+
+
+    /**
+     * Constructs an integer literal
+     *
+     * @param value the value of the literal
+     */
+    public IntLit(int value){
+        this.value = value;
+    }
+
+
+    //Getters
+    public int getValue(){return value;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
@@ -0,0 +1,27 @@
+package Nodes;
+
+/**
+ * The opposite of an expression
+ */
+public final class Negate extends Expression {
+    private final Expression operand;
+
+
+    /**
+     * Constructs the opposite of an expression
+     *
+     * @param operand the expression whose opposite is computed
+     */
+    public Negate(Expression operand){
+        this.operand = operand;
+    }
+
+
+    //Getters
+    public Expression getOperand(){return operand;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
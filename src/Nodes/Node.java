@@ -0,0 +1,18 @@
+package Nodes;
+
+/**
+ * A node of the abstract tree of a PASCALMP program. The node types are sealed, so that a visitor
+ * handles every one of them and the passes dispatch on the type of a node instead of comparing labels.
+ */
+public abstract sealed class Node permits Statement, Expression, Cond {
+
+    /**
+     * This method calls the method of a visitor corresponding to the type of the node
+     *
+     * @param visitor the visitor of the node
+     * @param <R> the type of the values returned by the visitor
+     * @return the value returned by the visitor
+     */
+    public abstract <R> R accept(Visitor<R> visitor);
+
+}
@@ -0,0 +1,27 @@
+package Nodes;
+
+/**
+ * The printing of the value of a variable
+ */
+public final class Print extends Statement {
+    private final VarRef variable;
+
+
+    /**
+     * Constructs a print instruction
+     *
+     * @param variable the variable printed
+     */
+    public Print(VarRef variable){
+        this.variable = variable;
+    }
+
+
+    //Getters
+    public VarRef getVariable(){return variable;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
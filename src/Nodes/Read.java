@@ -0,0 +1,27 @@
+package Nodes;
+
+/**
+ * The reading of an integer into a variable
+ */
+public final class Read extends Statement {
+    private final VarRef variable;
+
+
+    /**
+     * Constructs a read instruction
+     *
+     * @param variable the variable read
+     */
+    public Read(VarRef variable){
+        this.variable = variable;
+    }
+
+
+    //Getters
+    public VarRef getVariable(){return variable;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
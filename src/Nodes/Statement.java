@@ -0,0 +1,7 @@
+package Nodes;
+
+/**
+ * An instruction of a PASCALMP program
+ */
+public abstract sealed class Statement extends Node permits Block, Assign, If, While, For, Print, Read {
+}
@@ -0,0 +1,27 @@
+package Nodes;
+
+/**
+ * A reference to a variable
+ */
+public final class VarRef extends Expression {
+    private final String name;
+
+
+    /**
+     * Constructs a reference to a variable
+     *
+     * @param name the name of the variable
+     */
+    public VarRef(String name){
+        this.name = name;
+    }
+
+
+    //Getters
+    public String getName(){return name;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
@@ -0,0 +1,21 @@
+package Nodes;
+
+/**
+ * A visitor of the abstract tree, having one method per type of node
+ *
+ * @param <R> the type of the values returned by the visitor
+ */
+public interface Visitor<R> {
+    R visit(Block block);
+    R visit(Assign assign);
+    R visit(If ifStatement);
+    R visit(While whileStatement);
+    R visit(For forStatement);
+    R visit(Print print);
+    R visit(Read read);
+    R visit(BinOp binOp);
+    R visit(Negate negate);
+    R visit(Cond cond);
+    R visit(VarRef varRef);
+    R visit(IntLit intLit);
+}
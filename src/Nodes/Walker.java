@@ -0,0 +1,175 @@
+package Nodes;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A visitor walking an abstract tree with an explicit stack, so that the depth of the tree is not limited
+ * by the call stack. The children of a node are walked first, in the order given by children, and the visit
+ * method of the node is then called with the results of its children available through result and results.
+ * A pass may also act when entering a node, possibly skipping its subtree, and before each child of a node.
+ *
+ * @param <R> the type of the values computed for the nodes
+ */
+public abstract class Walker<R> implements Visitor<R> {
+    private static final Children CHILDREN = new Children();
+    private Frame current;
+    private List<R> results;
+
+
+    /**
+     * A node being walked: its children, the index of the next child to walk and the position
+     * of the results of its walked children in the stack of the results
+     */
+    private static final class Frame {
+        final Node node;
+        final List<Node> children;
+        final int base;
+        int next = 0;
+
+        Frame(Node node, List<Node> children, int base){
+            this.node = node;
+            this.children = children;
+            this.base = base;
+        }
+    }
+
+
+    /**
+     * This method walks a tree
+     *
+     * @param root the root of the tree
+     * @return the value computed for the root
+     */
+    public R walk(Node root){
+        Frame caller = current;
+        List<R> callerResults = results;
+        try{
+            R known = enter(root);
+            if(known != null){return known;}
+            Deque<Frame> stack = new ArrayDeque<>();
+            results = new ArrayList<>();
+            stack.push(new Frame(root, children(root), 0));
+            while(true){
+                Frame frame = stack.peek();
+                current = frame;
+                if(frame.next < frame.children.size()){
+                    beforeChild(frame.node, frame.next);
+                    Node child = frame.children.get(frame.next++);
+                    known = enter(child);
+                    if(known != null){results.add(known);}
+                    else{stack.push(new Frame(child, children(child), results.size()));}
+                    continue;
+                }
+                R result = frame.node.accept(this);
+                stack.pop();
+                results.subList(frame.base, results.size()).clear();
+                if(stack.isEmpty()){return result;}
+                results.add(result);
+            }
+        }
+        finally{
+            current = caller;
+            results = callerResults;
+        }
+    }
+
+
+    /**
+     * This method returns the result of a child of the node being visited
+     *
+     * @param index the index of the child in the list returned by children
+     * @return the value computed for the child
+     */
+    protected R result(int index){return results.get(current.base + index);}
+
+
+    /**
+     * This method returns the results of the children of the node being visited
+     *
+     * @return the values computed for the children, in the order of the list returned by children,
+     * a view which is only valid during the visit
+     */
+    protected List<R> results(){return Collections.unmodifiableList(results.subList(current.base, results.size()));}
+
+
+    /**
+     * This method is called when a node is reached, before its children are walked
+     *
+     * @param node the node reached
+     * @return the value of the node if it is known without walking its subtree, which is then skipped, or null
+     */
+    protected R enter(Node node){return null;}
+
+
+    /**
+     * This method is called before a child of a node is walked, the results of the previous children being available
+     *
+     * @param node the node whose child is walked
+     * @param index the index of the child in the list returned by children
+     */
+    protected void beforeChild(Node node, int index){}
+
+
+    /**
+     * This method returns the children of a node in the order they are walked. By default, they are walked
+     * in the order of the fields of the node; a pass may change the order, leave out or repeat children
+     *
+     * @param node the node whose children are walked
+     * @return the children of the node
+     */
+    protected List<Node> children(Node node){return node.accept(CHILDREN);}
+
+
+    /**
+     * A visitor listing the children of a node in the order of its fields
+     */
+    private static class Children implements Visitor<List<Node>> {
+
+        @Override
+        public List<Node> visit(Block block){return Collections.unmodifiableList(block.getStatements());}
+
+        @Override
+        public List<Node> visit(Assign assign){return Arrays.asList(assign.getTarget(), assign.getValue());}
+
+        @Override
+        public List<Node> visit(If ifStatement){
+            if(ifStatement.getElseBlock() == null){return Arrays.asList(ifStatement.getCondition(), ifStatement.getThenBlock());}
+            return Arrays.asList(ifStatement.getCondition(), ifStatement.getThenBlock(), ifStatement.getElseBlock());
+        }
+
+        @Override
+        public List<Node> visit(While whileStatement){return Arrays.asList(whileStatement.getCondition(), whileStatement.getBody());}
+
+        @Override
+        public List<Node> visit(For forStatement){
+            return Arrays.asList(forStatement.getInit(), forStatement.getStep(), forStatement.getCondition(), forStatement.getBody());
+        }
+
+        @Override
+        public List<Node> visit(Print print){return Collections.singletonList(print.getVariable());}
+
+        @Override
+        public List<Node> visit(Read read){return Collections.singletonList(read.getVariable());}
+
+        @Override
+        public List<Node> visit(BinOp binOp){return Arrays.asList(binOp.getLeft(), binOp.getRight());}
+
+        @Override
+        public List<Node> visit(Negate negate){return Collections.singletonList(negate.getOperand());}
+
+        @Override
+        public List<Node> visit(Cond cond){return Arrays.asList(cond.getLeft(), cond.getRight());}
+
+        @Override
+        public List<Node> visit(VarRef varRef){return Collections.emptyList();}
+
+        @Override
+        public List<Node> visit(IntLit intLit){return Collections.emptyList();}
+    }
+
+}
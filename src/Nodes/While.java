@@ -0,0 +1,31 @@
+package Nodes;
+
+/**
+ * A loop executing its body as long as its condition holds
+ */
+public final class While extends Statement {
+    private final Cond condition;
+    private final Block body;
+
+
+    /**
+     * Constructs a while loop
+     *
+     * @param condition the condition of the loop
+     * @param body the instructions of the loop
+     */
+    public While(Cond condition, Block body){
+        this.condition = condition;
+        this.body = body;
+    }
+
+
+    //Getters
+    public Cond getCondition(){return condition;}
+    public Block getBody(){return body;}
+
+
+    @Override
+    public <R> R accept(Visitor<R> visitor){return visitor.visit(this);}
+
+}
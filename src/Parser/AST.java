@@ -1,11 +1,16 @@
 package Parser;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import Main.LexicalUnit;
+import Main.Symbol;
 
 public class AST{
     /**
@@ -43,27 +48,23 @@ public class AST{
             changed = false;
             for(int i = 0; i < tree.getChildren().size(); i++){
                 ParseTree child = tree.getChildren().get(i);
-                if(child.getLabel().getValue().equals("<Code>")){
-                    if(!(child.getFather().getLabel().getValue().equals("<Program>"))){
+                if(child.getLabel().isTerminal()){continue;}
+                switch((String) child.getLabel().getValue()){
+                    case "<Code>":
+                        if(!(child.getFather().getLabel().getValue().equals("<Program>"))){
+                            changed = true;
+                            removeChild(tree, child);
+                        }
+                        break;
+                    case "<Instruction>": case "<Comp>": case "<ExprArith>":
                         changed = true;
                         removeChild(tree, child);
-                    }
-                }
-                else if(child.getLabel().getValue().equals("<Instruction>")){
-                    changed = true;
-                    removeChild(tree, child);
-                }
-                else if(child.getLabel().getValue().equals("<Comp>")){
-                    changed = true;
-                    removeChild(tree, child);
-                }
-                else if(child.getLabel().getValue().equals("<If>'")){
-                    tree.getChildren().remove(child);
-                    if(child.getChildren().size() != 0){tree.getChildren().add(child);}
-                }
-                else if(child.getLabel().getValue().equals("<ExprArith>")){
-                    changed = true;
-                    removeChild(tree, child);
+                        break;
+                    case "<If>'":
+                        tree.getChildren().remove(child);
+                        if(child.getChildren().size() != 0){tree.getChildren().add(child);}
+                        break;
+                    default:
                 }
             }
         }
@@ -78,16 +79,15 @@ public class AST{
      * @param T the set of terminals of the considered grammar
      */
     private static void removeTerminals(ParseTree tree, Set<String> V, Set<LexicalUnit> terminalUnits, Set<String> T){
-        for(int i = tree.getChildren().size() - 1; i >= 0; i--){
-            ParseTree child = tree.getChildren().get(i);
-            boolean notNull = child.getLabel().getType() != null;
-            boolean inTerminalUnits = terminalUnits.contains(child.getLabel().getType());
-            boolean inTerminals = T.contains(child.getLabel().getValue());
-            if(notNull && (inTerminalUnits || inTerminals)){tree.getChildren().remove(child);}
-            else{
-                if(V.contains(child.getLabel().getValue())){removeTerminals(child, V, terminalUnits, T);}
+        TreeWalker.preOrder(tree, node -> {
+            for(int i = node.getChildren().size() - 1; i >= 0; i--){
+                ParseTree child = node.getChildren().get(i);
+                boolean notNull = child.getLabel().getType() != null;
+                boolean inTerminalUnits = terminalUnits.contains(child.getLabel().getType());
+                boolean inTerminals = T.contains(child.getLabel().getValue());
+                if(notNull && (inTerminalUnits || inTerminals)){node.getChildren().remove(child);}
             }
-        }
+        });
     } 
 
 
@@ -98,14 +98,12 @@ public class AST{
      * @param operators the set of operators of the considered grammar
      */
     private static void pullOperatorsUp(ParseTree tree, Set<String> operators){
-        if(operators.contains(tree.getLabel().getValue())){
-            tree.getFather().getFather().setLabel(tree.getLabel());
-            tree.getFather().getChildren().remove(tree);
-        }
-        for(int i = tree.getChildren().size() - 1; i >= 0; i--){
-            ParseTree child = tree.getChildren().get(i);
-            pullOperatorsUp(child, operators);
-        }
+        TreeWalker.preOrder(tree, node -> {
+            if(operators.contains(node.getLabel().getValue())){
+                node.getFather().getFather().setLabel(node.getLabel());
+                node.getFather().getChildren().remove(node);
+            }
+        });
     }
 
 
@@ -116,33 +114,43 @@ public class AST{
      * @param uselessVariables the set of useless variables to remove from the parse tree
      */
     private static void removeUselessVariable(ParseTree tree, Set<String> uselessVariables){
-        boolean uselessVariablesLeft = true;
-        while(uselessVariablesLeft){
-            uselessVariablesLeft = false;
-            for(int i = 0; i < tree.getChildren().size(); i++){
-                ParseTree child = tree.getChildren().get(i);
-                if(uselessVariables.contains(child.getLabel().getValue())){
-                    uselessVariablesLeft = true;
-                    removeChild(tree, child);
+        TreeWalker.preOrder(tree, node -> {
+            boolean uselessVariablesLeft = true;
+            while(uselessVariablesLeft){
+                uselessVariablesLeft = false;
+                for(int i = 0; i < node.getChildren().size(); i++){
+                    ParseTree child = node.getChildren().get(i);
+                    if(uselessVariables.contains(child.getLabel().getValue())){
+                        uselessVariablesLeft = true;
+                        removeChild(node, child);
+                    }
                 }
             }
-        }
-        for(int i = tree.getChildren().size() - 1; i >= 0; i--){
-            ParseTree child = tree.getChildren().get(i);
-            removeUselessVariable(child, uselessVariables);
-        }
+        });
     } // in this function we simply iterate over the children of a given tree and remove the useless variables from it (the useless variables are the ones that are in the set of useless variables) and we do this until there are no more useless variables left in the tree 
 
 
     /**
-     * here we handle the left associativity of the operators
-     * @param tree the parse tree to handle the left associativity of
+     * A node whose children are walked by handleLeftAssociativity, with the index of its next child
+     */
+    private static final class Frame {
+        final ParseTree tree;
+        int next = 0;
+
+        Frame(ParseTree tree){this.tree = tree;}
+    }
+
+
+    /**
+     * This method rotates a node whose operator and right child's operator are both multiplicative or both additive,
+     * the right child taking the place of the node and the node becoming the first child of the right child
+     *
+     * @param tree the node that may be rotated
      * @param multiplyOperators the set of multiply operators of the considered grammar
      * @param addOperators the set of add operators of the considered grammar
-     * @param booleanOperators the set of boolean operators of the considered grammar
-     * @return the parse tree with the left associativity handled
+     * @return the node whose children are walked next: the father of the node if it was rotated, the node otherwise
      */
-    private static void handleLeftAssociativity(ParseTree tree, Set<String> multiplyOperators, Set<String> addOperators){
+    private static ParseTree rotate(ParseTree tree, Set<String> multiplyOperators, Set<String> addOperators){
         if(tree.getChildren().size() > 1){
             Object value = tree.getLabel().getValue();
             Object rightChildValue = tree.getChildren().get(1).getLabel().getValue();
@@ -169,13 +177,31 @@ public class AST{
                     rightTree.getChildren().removeAll(rightTree.getChildren());
                     rightTree.getChildren().addAll(newRightChildren);
                     tree.setFather(rightTree);
-                    tree = rightTree.getFather();
+                    return rightTree.getFather();
                 }
             }
         }
-        for(int i = 0; i < tree.getChildren().size(); i++){
-            ParseTree child = tree.getChildren().get(i);
-            handleLeftAssociativity(child, multiplyOperators, addOperators);
+        return tree;
+    }
+
+
+    /**
+     * here we handle the left associativity of the operators. The nodes are walked in pre-order with an explicit stack,
+     * the walk going on with the children of the father of a rotated node, whose children change during the walk
+     * @param tree the parse tree to handle the left associativity of
+     * @param multiplyOperators the set of multiply operators of the considered grammar
+     * @param addOperators the set of add operators of the considered grammar
+     */
+    private static void handleLeftAssociativity(ParseTree tree, Set<String> multiplyOperators, Set<String> addOperators){
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(rotate(tree, multiplyOperators, addOperators)));
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            if(frame.next < frame.tree.getChildren().size()){
+                ParseTree child = frame.tree.getChildren().get(frame.next++);
+                stack.push(new Frame(rotate(child, multiplyOperators, addOperators)));
+            }
+            else{stack.pop();}
         }
     } 
 
@@ -186,15 +212,13 @@ public class AST{
      * @param tree the parse tree to be cleaned
      */
     private static void cleanTree(ParseTree tree){
-        for(int i = tree.getChildren().size() - 1; i >= 0; i--){
-            ParseTree child = tree.getChildren().get(i);
-            cleanTree(child);
-        }
-        int numberChildren = 0;
-        while(numberChildren != tree.getChildren().size()){
-            numberChildren = tree.getChildren().size();
-            clean(tree);
-        }
+        TreeWalker.postOrder(tree, node -> {
+            int numberChildren = 0;
+            while(numberChildren != node.getChildren().size()){
+                numberChildren = node.getChildren().size();
+                clean(node);
+            }
+        });
     }
 
 
@@ -220,4 +244,202 @@ public class AST{
     }
 
 
+    /**
+     * This method builds a node of the abstract tree
+     *
+     * @param label the label of the node
+     * @param children the children of the node
+     * @return the node built
+     */
+    private static ParseTree node(Symbol label, List<ParseTree> children){
+        return new ParseTree(label, children);
+    }
+
+
+    /**
+     * This method lowers a chain of binary operations X -&gt; X' X'', X'' -&gt; op Y X'' | epsilon.
+     * The arithmetic operations are left-associative, while the "and" and "or" chains are kept right-nested
+     *
+     * @param tree the root X of the chain
+     * @param operands the lowered operands of the chain, the X'' nodes being spliced
+     * @param leftAssociative whether the operations of the chain are left-associative
+     * @return the node of the abstract tree computing the chain
+     */
+    private static ParseTree lowerChain(ParseTree tree, List<ParseTree> operands, boolean leftAssociative){
+        List<Symbol> operators = new ArrayList<>();
+        ParseTree tail = tree.getChildren().size() > 1 ? tree.getChildren().get(1) : null;
+        while(tail != null){
+            operators.add(tail.getChildren().get(0).getLabel());
+            tail = tail.getChildren().size() > 2 ? tail.getChildren().get(2) : null;
+        }
+        if(leftAssociative){
+            ParseTree result = operands.get(0);
+            for(int i = 0; i < operators.size(); i++){
+                result = node(operators.get(i), new ArrayList<>(Arrays.asList(result, operands.get(i + 1))));
+            }
+            return result;
+        }
+        ParseTree result = operands.get(operands.size() - 1);
+        for(int i = operators.size() - 1; i >= 0; i--){
+            result = node(operators.get(i), new ArrayList<>(Arrays.asList(operands.get(i), result)));
+        }
+        return result;
+    }
+
+
+    /**
+     * This method replaces the nodes of the abstract tree on the top of a stack by a single node
+     *
+     * @param lowered the stack of the nodes of the abstract tree
+     * @param base the position of the first node replaced
+     * @param node the node replacing them
+     */
+    private static void replace(List<ParseTree> lowered, int base, ParseTree node){
+        lowered.subList(base, lowered.size()).clear();
+        lowered.add(node);
+    }
+
+
+    /**
+     * This method lowers a node of the parse tree, its children being lowered: the nodes of the abstract tree
+     * replacing its children, on the top of the stack, are replaced by the nodes replacing the node. The keywords
+     * and punctuation are dropped, the variables introduced by the grammar transformations are replaced by their
+     * children and the operators become the fathers of their operands
+     *
+     * @param tree the node of the parse tree to lower
+     * @param lowered the stack of the nodes of the abstract tree
+     * @param base the position in the stack of the nodes replacing the first child of the node
+     */
+    private static void lower(ParseTree tree, List<ParseTree> lowered, int base){
+        Symbol label = tree.getLabel();
+        if(label.isTerminal()){
+            if(label.getType() == LexicalUnit.VARNAME || label.getType() == LexicalUnit.NUMBER){lowered.add(new ParseTree(label));}
+            return;
+        }
+        List<ParseTree> children = tree.getChildren();
+        switch((String) label.getValue()){
+            case "<ExprArith>": case "<T>":
+                replace(lowered, base, lowerChain(tree, lowered.subList(base, lowered.size()), true));
+                break;
+            case "<Cond>": case "<V>":
+                replace(lowered, base, lowerChain(tree, lowered.subList(base, lowered.size()), false));
+                break;
+            case "<SimpleCond>":
+                // the <Comp> node is lowered to a node without children, between the operands
+                Symbol comparison = children.get(1).getChildren().get(0).getLabel();
+                replace(lowered, base, node(comparison, new ArrayList<>(Arrays.asList(lowered.get(base), lowered.get(base + 2)))));
+                break;
+            case "<U>":
+                if(children.size() == 2){replace(lowered, base, node(children.get(0).getLabel(), new ArrayList<>(Arrays.asList(lowered.get(base)))));}
+                break;
+            case "<Instruction>": case "<ExprArith>'": case "<T>'": case "<Cond>'": case "<V>'": case "<W>":
+                break;
+            case "<ExprArith>''": case "<T>''": case "<Cond>''": case "<V>''":
+                // the tail of a chain is replaced by its operands, its operator being read by lowerChain
+                break;
+            default:
+                replace(lowered, base, node(label, new ArrayList<>(lowered.subList(base, lowered.size()))));
+        }
+    }
+
+
+    /**
+     * This method transforms a given parse tree into an abstract tree in a single pass, linear in the size of the tree,
+     * walking the parse tree with an explicit stack.
+     * It builds the same abstract tree as toAST, except that the operands of a left-associative chain
+     * always keep their position and that parenthesized groups are never regrouped
+     *
+     * @param tree the parse tree to transform into an AST
+     */
+    public static void lower(ParseTree tree){
+        ParseTree root = TreeWalker.<ParseTree>postOrder(tree, ParseTree::getChildren, AST::lower).get(0);
+        tree.setLabel(root.getLabel());
+        tree.setChildren(root.getChildren());
+        for(ParseTree child : root.getChildren()){child.setFather(tree);}
+    }
+
+
+    /**
+     * This method transforms a given parse tree into an abstract tree as lower does, the top-level instructions
+     * being lowered in parallel. The lowering only builds new nodes, so the instructions share no mutable state
+     *
+     * @param tree the parse tree to transform into an AST
+     * @param runner the runner walking the top-level instructions in parallel
+     */
+    public static void lower(ParseTree tree, ParallelPassRunner runner){
+        ParseTree root = runner.<ParseTree>postOrder(tree, AST::lower).get(0);
+        tree.setLabel(root.getLabel());
+        tree.setChildren(root.getChildren());
+        for(ParseTree child : root.getChildren()){child.setFather(tree);}
+    }
+
+
+    /**
+     * This method builds a chain of binary operations from its operands and operators, in alternation
+     *
+     * @param items the first operand, then each operator followed by its right operand
+     * @param leftAssociative whether the chain is built left-nested, or right-nested
+     * @return the node of the abstract tree computing the chain
+     */
+    private static ParseTree chain(List<ParseTree> items, boolean leftAssociative){
+        if(leftAssociative){
+            ParseTree result = items.get(0);
+            for(int i = 1; i < items.size(); i += 2){
+                result = node(items.get(i).getLabel(), new ArrayList<>(Arrays.asList(result, items.get(i + 1))));
+            }
+            return result;
+        }
+        ParseTree result = items.get(items.size() - 1);
+        for(int i = items.size() - 2; i > 0; i -= 2){
+            result = node(items.get(i).getLabel(), new ArrayList<>(Arrays.asList(items.get(i - 1), result)));
+        }
+        return result;
+    }
+
+
+    /**
+     * This method builds the rewrite rules expressing the passes of toAST: the keywords and punctuation are deleted,
+     * the variables introduced by the grammar transformations are spliced, and the operators become the fathers
+     * of their operands, the chains of operations being built from their spliced tails, left-nested for the
+     * arithmetic operations and right-nested for "and" and "or"
+     *
+     * @return the rules, in the order in which they are tried
+     */
+    public static List<RewriteRule> rewriteRules(){
+        TreePattern any = TreePattern.any();
+        return Arrays.asList(
+                RewriteRule.delete("keyword", TreePattern.unit(LexicalUnit.BEG, LexicalUnit.END, LexicalUnit.DOTS, LexicalUnit.ASSIGN,
+                        LexicalUnit.LPAREN, LexicalUnit.RPAREN, LexicalUnit.LBRACK, LexicalUnit.RBRACK, LexicalUnit.IF, LexicalUnit.THEN,
+                        LexicalUnit.ELSE, LexicalUnit.WHILE, LexicalUnit.FOR, LexicalUnit.DO, LexicalUnit.PRINT, LexicalUnit.READ)),
+                RewriteRule.delete("empty else", TreePattern.variable("<If>'").withChildren()),
+                RewriteRule.replace("negation", TreePattern.variable("<U>").withChildren(TreePattern.unit(LexicalUnit.MINUS), any),
+                        tree -> Collections.singletonList(node(tree.getChildren().get(0).getLabel(), new ArrayList<>(tree.getChildren().subList(1, 2))))),
+                RewriteRule.splice("grouping", TreePattern.variable("<Instruction>", "<U>", "<Comp>", "<W>",
+                        "<ExprArith>'", "<T>'", "<Cond>'", "<V>'", "<ExprArith>''", "<T>''", "<Cond>''", "<V>''")),
+                RewriteRule.splice("single operand", TreePattern.variable("<ExprArith>", "<T>", "<Cond>", "<V>").withChildren(any)),
+                RewriteRule.replace("arithmetic chain", TreePattern.variable("<ExprArith>", "<T>"),
+                        tree -> Collections.singletonList(chain(tree.getChildren(), true))),
+                RewriteRule.replace("condition chain", TreePattern.variable("<Cond>", "<V>"),
+                        tree -> Collections.singletonList(chain(tree.getChildren(), false))),
+                RewriteRule.replace("comparison", TreePattern.variable("<SimpleCond>").withChildren(any, TreePattern.unit(LexicalUnit.EQUAL, LexicalUnit.SMALLER), any),
+                        tree -> Collections.singletonList(chain(tree.getChildren(), true))));
+    }
+
+
+    /**
+     * This method transforms a given parse tree into an abstract tree by applying the rules of rewriteRules in
+     * a single traversal. It builds the same abstract tree as lower, which is the tree built by toAST except
+     * that the operands of a left-associative chain always keep their position and that parenthesized groups
+     * are never regrouped
+     *
+     * @param tree the parse tree to transform into an AST
+     */
+    public static void rewrite(ParseTree tree){
+        ParseTree root = new RewriteEngine(rewriteRules()).rewrite(tree).get(0);
+        tree.setLabel(root.getLabel());
+        tree.setChildren(root.getChildren());
+        for(ParseTree child : root.getChildren()){child.setFather(tree);}
+    }
+
+
 }
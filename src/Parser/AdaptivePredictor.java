@@ -0,0 +1,303 @@
+package Parser;
+
+import Grammar.Grammar;
+import Main.LexicalUnit;
+import Main.Symbol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An ALL(*)-style predictor choosing the rule of a variable when the current token leads to a conflicting
+ * cell of the action table. The rules of the variable are simulated on the following tokens until a single
+ * rule remains viable. The simulation states are cached as a lookahead DFA per variable, built lazily,
+ * so that the next predictions of a decision only walk the DFA.
+ * When the simulation leaves the decision, the context is approximated by every position following the
+ * variable in the grammar (SLL prediction); an ambiguity is resolved in favour of the first rule.
+ */
+public class AdaptivePredictor {
+    private Grammar grammar;
+    private Map<String, LexicalUnit> terminalsMap;
+    private Map<String, List<Position>> followPositions;
+    private Map<String, DFAState> decisions;
+
+
+    /**
+     * A position in a rule of the grammar. A position without variable stands for the end of the input
+     */
+    private static final class Position {
+        final String variable;
+        final int rule;
+        final int dot;
+
+        Position(String variable, int rule, int dot){
+            this.variable = variable;
+            this.rule = rule;
+            this.dot = dot;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Position)){return false;}
+            Position p = (Position) o;
+            return Objects.equals(variable, p.variable) && rule == p.rule && dot == p.dot;
+        }
+
+        @Override
+        public int hashCode(){return Objects.hash(variable, rule, dot);}
+    }
+
+
+    /**
+     * An immutable stack of the positions to return to once the current rule is fully matched
+     */
+    private static final class Stack {
+        final Position top;
+        final Stack next;
+        final int hash;
+
+        Stack(Position top, Stack next){
+            this.top = top;
+            this.next = next;
+            this.hash = 31 * top.hashCode() + (next == null ? 0 : next.hash);
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(this == o){return true;}
+            if(!(o instanceof Stack)){return false;}
+            Stack s = (Stack) o;
+            return hash == s.hash && top.equals(s.top) && Objects.equals(next, s.next);
+        }
+
+        @Override
+        public int hashCode(){return hash;}
+    }
+
+
+    /**
+     * A configuration of the simulation: a rule of the decision, the position reached and the return stack
+     */
+    private static final class Configuration {
+        final int alternative;
+        final Position position;
+        final Stack stack;
+
+        Configuration(int alternative, Position position, Stack stack){
+            this.alternative = alternative;
+            this.position = position;
+            this.stack = stack;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Configuration)){return false;}
+            Configuration c = (Configuration) o;
+            return alternative == c.alternative && position.equals(c.position) && Objects.equals(stack, c.stack);
+        }
+
+        @Override
+        public int hashCode(){return Objects.hash(alternative, position, stack);}
+    }
+
+
+    /**
+     * A state of a lookahead DFA: the configurations reached after reading some tokens,
+     * and the rule predicted if the state is accepting (-1 otherwise)
+     */
+    private static final class DFAState {
+        final Set<Configuration> configurations;
+        final int prediction;
+        final Map<LexicalUnit, DFAState> edges = new ConcurrentHashMap<>();
+
+        DFAState(Set<Configuration> configurations, int prediction){
+            this.configurations = configurations;
+            this.prediction = prediction;
+        }
+    }
+
+
+    /**
+     * Constructs an adaptive predictor for a grammar
+     *
+     * @param grammar the grammar whose decisions are predicted
+     * @param terminalsMap a map having the terminals of the grammar as keys and the corresponding lexical units as values
+     */
+    public AdaptivePredictor(Grammar grammar, Map<String, LexicalUnit> terminalsMap){
+        this.grammar = grammar;
+        this.terminalsMap = terminalsMap;
+        this.decisions = new ConcurrentHashMap<>();
+        this.followPositions = new HashMap<>();
+        for(String A : grammar.getVariables()){followPositions.put(A, new ArrayList<>());}
+        for(Map.Entry<String, ArrayList<ArrayList<String>>> P : grammar.getRules().entrySet()){
+            for(int r = 0; r < P.getValue().size(); r++){
+                ArrayList<String> rule = P.getValue().get(r);
+                for(int dot = 0; dot < rule.size(); dot++){
+                    List<Position> positions = followPositions.get(rule.get(dot));
+                    if(positions != null){positions.add(new Position(P.getKey(), r, dot + 1));}
+                }
+            }
+        }
+    }
+
+
+    /**
+     * This method returns the number of symbols of a rule, epsilon rules having no symbol
+     *
+     * @param position a position in the rule
+     * @return the length of the rule
+     */
+    private int ruleLength(Position position){
+        ArrayList<String> rule = grammar.getRulesOf(position.variable).get(position.rule);
+        return rule.size() == 1 && rule.get(0).isEmpty() ? 0 : rule.size();
+    }
+
+
+    /**
+     * This method adds to a set the configurations waiting for a token that can be reached from a configuration
+     * without reading any token
+     *
+     * @param configuration the configuration from which the closure is computed
+     * @param closure the set of configurations waiting for a token
+     * @param visited the configurations already explored
+     */
+    private void closure(Configuration configuration, Set<Configuration> closure, Set<Configuration> visited){
+        if(!visited.add(configuration)){return;}
+        Position position = configuration.position;
+        if(position.variable == null){
+            closure.add(configuration);
+            return;
+        }
+        if(position.dot == ruleLength(position)){
+            if(configuration.stack != null){
+                closure(new Configuration(configuration.alternative, configuration.stack.top, configuration.stack.next), closure, visited);
+                return;
+            }
+            for(Position follow : followPositions.get(position.variable)){
+                closure(new Configuration(configuration.alternative, follow, null), closure, visited);
+            }
+            if(position.variable.equals(grammar.getStartSymbol())){
+                closure.add(new Configuration(configuration.alternative, new Position(null, 0, 0), null));
+            }
+            return;
+        }
+        String symbol = grammar.getRulesOf(position.variable).get(position.rule).get(position.dot);
+        if(grammar.getVariables().contains(symbol)){
+            Stack stack = new Stack(new Position(position.variable, position.rule, position.dot + 1), configuration.stack);
+            for(int r = 0; r < grammar.getRulesOf(symbol).size(); r++){
+                closure(new Configuration(configuration.alternative, new Position(symbol, r, 0), stack), closure, visited);
+            }
+        }
+        else{closure.add(configuration);}
+    }
+
+
+    /**
+     * This method builds a DFA state from a set of configurations, deciding whether it predicts a rule:
+     * either a single rule remains, or every position is reached by the same rules (an ambiguity)
+     *
+     * @param configurations the configurations of the state
+     * @return the state built
+     */
+    private static DFAState buildState(Set<Configuration> configurations){
+        Set<Integer> alternatives = new HashSet<>();
+        Map<List<Object>, Set<Integer>> alternativesPerPosition = new HashMap<>();
+        for(Configuration configuration : configurations){
+            alternatives.add(configuration.alternative);
+            List<Object> key = new ArrayList<>();
+            key.add(configuration.position);
+            key.add(configuration.stack);
+            alternativesPerPosition.computeIfAbsent(key, k -> new HashSet<>()).add(configuration.alternative);
+        }
+        if(alternatives.isEmpty()){return new DFAState(configurations, -1);}
+        int first = alternatives.stream().min(Integer::compare).get();
+        if(alternatives.size() == 1){return new DFAState(configurations, first);}
+        for(Set<Integer> alternativesOfPosition : alternativesPerPosition.values()){
+            if(!alternativesOfPosition.equals(alternatives)){return new DFAState(configurations, -1);}
+        }
+        return new DFAState(configurations, first);
+    }
+
+
+    /**
+     * This method builds the start state of the lookahead DFA of a variable
+     *
+     * @param A the variable whose decision is predicted
+     * @return the start state of the decision
+     */
+    private DFAState startState(String A){
+        Set<Configuration> configurations = new LinkedHashSet<>();
+        Set<Configuration> visited = new HashSet<>();
+        for(int r = 0; r < grammar.getRulesOf(A).size(); r++){
+            closure(new Configuration(r, new Position(A, r, 0), null), configurations, visited);
+        }
+        return buildState(configurations);
+    }
+
+
+    /**
+     * This method computes the state reached from a state by reading a token
+     *
+     * @param state the state from which the token is read
+     * @param type the lexical unit of the token
+     * @return the state reached, having no configuration if no rule is viable
+     */
+    private DFAState move(DFAState state, LexicalUnit type){
+        Set<Configuration> configurations = new LinkedHashSet<>();
+        Set<Configuration> visited = new HashSet<>();
+        for(Configuration configuration : state.configurations){
+            Position position = configuration.position;
+            if(position.variable == null){
+                if(type == LexicalUnit.EOS){configurations.add(configuration);}
+                continue;
+            }
+            String terminal = grammar.getRulesOf(position.variable).get(position.rule).get(position.dot);
+            if(terminalsMap.get(terminal) == type){
+                Position next = new Position(position.variable, position.rule, position.dot + 1);
+                closure(new Configuration(configuration.alternative, next, configuration.stack), configurations, visited);
+            }
+        }
+        return buildState(configurations);
+    }
+
+
+    /**
+     * This method predicts the rule of a variable to apply at a given position of a token list
+     *
+     * @param A the variable whose rule is predicted
+     * @param symbolList the token list
+     * @param index the index of the current token
+     * @return the index of the predicted rule among the rules of A, or -1 if no rule is viable
+     */
+    public int predict(String A, ArrayList<Symbol> symbolList, int index){
+        DFAState state = decisions.computeIfAbsent(A, this::startState);
+        for(int i = index; state.prediction < 0; i++){
+            if(state.configurations.isEmpty()){return -1;}
+            LexicalUnit type = i < symbolList.size() ? symbolList.get(i).getType() : LexicalUnit.EOS;
+            DFAState next = state.edges.get(type);
+            if(next == null){
+                next = move(state, type);
+                DFAState previous = state.edges.putIfAbsent(type, next);
+                if(previous != null){next = previous;}
+            }
+            if(type == LexicalUnit.EOS && next.prediction < 0){
+                // the input ends: the first rule still viable is chosen
+                int first = -1;
+                for(Configuration configuration : next.configurations){
+                    if(first < 0 || configuration.alternative < first){first = configuration.alternative;}
+                }
+                return first;
+            }
+            state = next;
+        }
+        return state.prediction;
+    }
+
+}
@@ -0,0 +1,398 @@
+package Parser;
+
+import Main.Symbol;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A parser keeping the parse tree of the last version of a token list, so that an edit of the tokens
+ * only reparses the smallest &lt;Instruction&gt; or &lt;InstList&gt; enclosing it. The subtrees outside of
+ * that region are reused by reference, only the token spans of the ancestors of the region are updated.
+ * The top-level instructions are indexed by their token counts, so that the instruction holding an edit is found
+ * without walking the right-nested list of instructions, whose spans are only updated when the tree is read.
+ */
+public class IncrementalParser {
+    private Parser parser;
+    private ArrayList<Symbol> symbolList;
+    private ParseTree parseTree;
+    private Map<ParseTree, List<ParseTree>> loweredTrees;
+    private int reparsedTokens = 0;
+    // the nodes from the root to the last top-level <InstList>, the top-level instructions, the token counts
+    // of the instructions followed by their separator in a Fenwick tree, and the index of the first one
+    private List<ParseTree> spine;
+    private List<ParseTree> instructions;
+    private List<ParseTree> lists;
+    private int[] counts;
+    private int listStart;
+    private boolean spineStale = false;
+
+
+    /**
+     * Constructs an incremental parser
+     *
+     * @param parser the parser used to parse the whole token list and the edited regions
+     */
+    public IncrementalParser(Parser parser){
+        this.parser = parser;
+        this.symbolList = parser.getSymbolList();
+        this.loweredTrees = new HashMap<>();
+    }
+
+
+    //Getters
+    public ArrayList<Symbol> getSymbolList(){return symbolList;}
+    public int getReparsedTokens(){return reparsedTokens;}
+
+
+    /**
+     * This method returns the parse tree of the current version of the token list, the spans of the list
+     * of the top-level instructions being updated first if they were shifted by edits
+     *
+     * @return the parse tree
+     */
+    public ParseTree getParseTree(){
+        if(spineStale){
+            // the spans of a node of the list are the sums of the spans of its children
+            for(int i = spine.size() - 1; i >= 0; i--){
+                ParseTree node = spine.get(i);
+                int offset = 0;
+                for(ParseTree child : node.getChildren()){
+                    child.setTokenOffset(offset);
+                    offset += child.getTokenCount();
+                }
+                node.setTokenCount(offset);
+            }
+            spineStale = false;
+        }
+        return parseTree;
+    }
+
+
+    /**
+     * This method parses the whole token list of the parser
+     *
+     * @return the parse tree that is built
+     * @throws Exception the exception raised if the tokens don't match the grammar
+     */
+    public ParseTree parse() throws Exception{
+        this.parseTree = parser.parseFrom(parser.getGrammar().getStartSymbol(), symbolList, 0);
+        this.reparsedTokens = symbolList.size();
+        this.loweredTrees.clear();
+        index();
+        return parseTree;
+    }
+
+
+    /**
+     * This method indexes the top-level instructions of the parse tree, following the list of instructions
+     * from the root
+     */
+    private void index(){
+        this.spine = new ArrayList<>();
+        this.instructions = new ArrayList<>();
+        this.lists = new ArrayList<>();
+        this.spineStale = false;
+        this.listStart = 0;
+        ParseTree tree = parseTree;
+        int start = parseTree.getTokenOffset();
+        while(tree != null){
+            spine.add(tree);
+            ParseTree next = null;
+            for(ParseTree child : tree.getChildren()){
+                Object label = child.getLabel().getValue();
+                if("<Instruction>".equals(label) && "<InstList>".equals(tree.getLabel().getValue())){
+                    if(instructions.isEmpty()){listStart = start + child.getTokenOffset();}
+                    instructions.add(child);
+                    lists.add(tree);
+                }
+                else if("<Code>".equals(label) || "<InstList>".equals(label) || "<InstList>'".equals(label)){
+                    next = child;
+                    start += child.getTokenOffset();
+                }
+            }
+            tree = next;
+        }
+        this.counts = new int[instructions.size() + 1];
+        for(int k = 0; k < instructions.size(); k++){add(k, span(k));}
+    }
+
+
+    /**
+     * This method returns the number of tokens of a top-level instruction, followed by its separator but the last one
+     *
+     * @param k the index of the instruction
+     * @return the number of tokens from the first token of the instruction to the first token of the next one
+     */
+    private int span(int k){return instructions.get(k).getTokenCount() + (k < instructions.size() - 1 ? 1 : 0);}
+
+
+    /**
+     * This method adds a number of tokens to the span of a top-level instruction in the Fenwick tree
+     *
+     * @param k the index of the instruction
+     * @param delta the number of tokens added
+     */
+    private void add(int k, int delta){
+        for(int i = k + 1; i < counts.length; i += i & -i){counts[i] += delta;}
+    }
+
+
+    /**
+     * This method computes the index of the first token of a top-level instruction
+     *
+     * @param k the index of the instruction
+     * @return the absolute index of its first token
+     */
+    private int startOf(int k){
+        int start = listStart;
+        for(int i = k; i > 0; i -= i & -i){start += counts[i];}
+        return start;
+    }
+
+
+    /**
+     * This method finds the top-level instruction holding a token, searching the Fenwick tree
+     *
+     * @param token the absolute index of the token
+     * @return the index of the last instruction starting at or before the token, or -1 if there is none
+     */
+    private int find(int token){
+        int k = 0, left = token - listStart;
+        if(left < 0){return -1;}
+        for(int step = Integer.highestOneBit(Math.max(1, counts.length - 1)); step > 0; step >>= 1){
+            if(k + step < counts.length && counts[k + step] <= left){
+                k += step;
+                left -= counts[k];
+            }
+        }
+        return Math.min(k, instructions.size() - 1);
+    }
+
+
+    /**
+     * This method checks whether two tokens have the same lexical unit and the same value
+     *
+     * @param a the first token
+     * @param b the second token
+     * @return true if the tokens are equivalent for the parser
+     */
+    private static boolean sameToken(Symbol a, Symbol b){
+        return a.getType() == b.getType() && Objects.equals(a.getValue(), b.getValue());
+    }
+
+
+    /**
+     * This method reparses a new version of the token list, the edited region being found by comparing
+     * the common prefix and suffix of the old and new token lists
+     *
+     * @param newSymbolList the edited token list
+     * @return the updated parse tree
+     * @throws Exception the exception raised if the new tokens don't match the grammar
+     */
+    public ParseTree reparse(ArrayList<Symbol> newSymbolList) throws Exception{
+        int prefix = 0;
+        int maxPrefix = Math.min(symbolList.size(), newSymbolList.size());
+        while(prefix < maxPrefix && sameToken(symbolList.get(prefix), newSymbolList.get(prefix))){prefix++;}
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while(suffix < maxSuffix && sameToken(symbolList.get(symbolList.size() - 1 - suffix), newSymbolList.get(newSymbolList.size() - 1 - suffix))){suffix++;}
+        return reparse(newSymbolList, prefix, symbolList.size() - suffix, newSymbolList.size() - suffix);
+    }
+
+
+    /**
+     * This method reparses a new version of the token list in which the tokens [editStart, oldEditEnd[
+     * of the previous version have been replaced by the tokens [editStart, newEditEnd[.
+     * Only the smallest enclosing &lt;Instruction&gt; or &lt;InstList&gt; of the top-level instruction holding
+     * the edit whose reparse ends exactly where its old version ended is rebuilt, the rest of the tree being kept as is.
+     * An edit which is not inside a top-level instruction, or which changes its first token, reparses the whole list
+     *
+     * @param newSymbolList the edited token list
+     * @param editStart the index of the first edited token
+     * @param oldEditEnd the index following the last edited token in the previous token list
+     * @param newEditEnd the index following the last edited token in the new token list
+     * @return the updated parse tree
+     * @throws Exception the exception raised if the new tokens don't match the grammar
+     */
+    public ParseTree reparse(ArrayList<Symbol> newSymbolList, int editStart, int oldEditEnd, int newEditEnd) throws Exception{
+        int delta = newEditEnd - oldEditEnd;
+        this.symbolList = newSymbolList;
+        int k = instructions.isEmpty() ? -1 : find(editStart);
+        if(k < 0){return parse();}
+        ParseTree instruction = instructions.get(k);
+        int instructionStart = startOf(k);
+        // the decision to enter a region only depends on its first token, which must not be edited
+        if(editStart <= instructionStart || instructionStart + instruction.getTokenCount() < oldEditEnd){return parse();}
+        ArrayList<ParseTree> path = new ArrayList<>();
+        ArrayList<Integer> starts = new ArrayList<>();
+        path.add(lists.get(k));
+        starts.add(instructionStart - instruction.getTokenOffset());
+        ParseTree tree = instruction;
+        int start = instructionStart;
+        while(tree != null){
+            path.add(tree);
+            starts.add(start);
+            ParseTree next = null;
+            int nextStart = 0;
+            for(ParseTree child : tree.getChildren()){
+                int childStart = start + child.getTokenOffset();
+                if(childStart <= editStart && oldEditEnd <= childStart + child.getTokenCount()){
+                    next = child;
+                    nextStart = childStart;
+                    break;
+                }
+            }
+            tree = next;
+            start = nextStart;
+        }
+        for(int i = path.size() - 1; i > 0; i--){
+            ParseTree region = path.get(i);
+            Object label = region.getLabel().getValue();
+            boolean isRegion = label.equals("<Instruction>") || label.equals("<InstList>");
+            int regionStart = starts.get(i);
+            if(isRegion && regionStart < editStart){
+                ParseTree newRegion = parser.parseFrom((String) label, newSymbolList, regionStart);
+                if(newRegion.getTokenCount() == region.getTokenCount() + delta){
+                    List<ParseTree> lowered = loweredTrees.get(instruction);
+                    splice(path, i, newRegion, delta);
+                    if(i == 1){instructions.set(k, newRegion);}
+                    add(k, delta);
+                    spineStale |= delta != 0;
+                    relower(k, lowered);
+                    this.reparsedTokens = newRegion.getTokenCount();
+                    return parseTree;
+                }
+            }
+        }
+        return parse();
+    }
+
+
+    /**
+     * This method replaces a node of a top-level instruction by its reparsed version and shifts the spans following it
+     * in the instruction, the spans of the list of instructions being left to getParseTree
+     *
+     * @param path the nodes from the &lt;InstList&gt; holding the instruction to the replaced node
+     * @param depth the position of the replaced node in the path
+     * @param newRegion the reparsed version of the node
+     * @param delta the difference between the number of tokens of the new and the old versions
+     */
+    private void splice(ArrayList<ParseTree> path, int depth, ParseTree newRegion, int delta){
+        ParseTree oldRegion = path.get(depth);
+        ParseTree father = path.get(depth - 1);
+        int position = father.getChildren().indexOf(oldRegion);
+        newRegion.setTokenOffset(oldRegion.getTokenOffset());
+        newRegion.setFather(father);
+        father.getChildren().set(position, newRegion);
+        for(int i = depth - 1; i > 0; i--){
+            ParseTree ancestor = path.get(i);
+            ParseTree onPath = i == depth - 1 ? newRegion : path.get(i + 1);
+            ancestor.setTokenCount(ancestor.getTokenCount() + delta);
+            List<ParseTree> children = ancestor.getChildren();
+            for(int j = children.size() - 1; j >= 0 && children.get(j) != onPath; j--){
+                children.get(j).setTokenOffset(children.get(j).getTokenOffset() + delta);
+            }
+            loweredTrees.remove(ancestor);
+        }
+        forget(oldRegion);
+    }
+
+
+    /**
+     * This method replaces the abstract tree of a top-level instruction which was reparsed in the abstract tree
+     * of its &lt;InstList&gt;, if they were built, so that the abstract trees of the other instructions and of the list
+     * are kept as they are
+     *
+     * @param k the index of the instruction
+     * @param oldLowered the abstract tree of the instruction before it was reparsed, or null if it was not built
+     */
+    private void relower(int k, List<ParseTree> oldLowered){
+        List<ParseTree> listLowered = loweredTrees.get(lists.get(k));
+        if(listLowered == null){return;}
+        List<ParseTree> children = listLowered.get(0).getChildren();
+        int position = oldLowered == null || oldLowered.isEmpty() ? -1 : children.indexOf(oldLowered.get(0));
+        if(position < 0){
+            // the abstract tree of the instruction can't be found, the whole abstract tree is built again
+            loweredTrees.clear();
+            return;
+        }
+        List<ParseTree> newLowered = lower(instructions.get(k));
+        children.subList(position, position + oldLowered.size()).clear();
+        children.addAll(position, newLowered);
+        for(ParseTree child : newLowered){child.setFather(listLowered.get(0));}
+    }
+
+
+    /**
+     * This method removes the cached abstract trees of the nodes of a tree that is no longer used
+     *
+     * @param tree the tree that was replaced
+     */
+    private void forget(ParseTree tree){
+        if(loweredTrees.remove(tree) != null){
+            for(ParseTree child : tree.getChildren()){forget(child);}
+        }
+    }
+
+
+    /**
+     * This method copies a parse tree, the labels being shared with the original tree
+     *
+     * @param tree the tree to copy
+     * @return the copy of the tree
+     */
+    private static ParseTree copy(ParseTree tree){
+        ArrayList<ParseTree> children = new ArrayList<>();
+        for(ParseTree child : tree.getChildren()){children.add(copy(child));}
+        ParseTree copy = new ParseTree(tree.getLabel(), children);
+        copy.setTokenOffset(tree.getTokenOffset());
+        copy.setTokenCount(tree.getTokenCount());
+        return copy;
+    }
+
+
+    /**
+     * This method builds the abstract tree of a node of the parse tree, reusing the abstract trees
+     * of the nodes that were neither reparsed nor ancestors of a reparsed region since the previous call
+     *
+     * @param tree the node whose abstract tree is built
+     * @return the nodes replacing the given node in the abstract tree
+     */
+    private List<ParseTree> lower(ParseTree tree){
+        if(tree.getLabel().isTerminal()){return new ArrayList<>();}
+        List<ParseTree> lowered = loweredTrees.get(tree);
+        if(lowered != null){return lowered;}
+        if(tree.getLabel().getValue().equals("<Instruction>")){
+            ArrayList<ParseTree> wrapped = new ArrayList<>();
+            wrapped.add(copy(tree));
+            ParseTree wrapper = new ParseTree(new Symbol(null, "<InstList>"), wrapped);
+            parser.buildAST(wrapper);
+            lowered = new ArrayList<>(wrapper.getChildren());
+        }
+        else{
+            ArrayList<ParseTree> children = new ArrayList<>();
+            for(ParseTree child : tree.getChildren()){children.addAll(lower(child));}
+            lowered = new ArrayList<>();
+            lowered.add(new ParseTree(tree.getLabel(), children));
+        }
+        loweredTrees.put(tree, lowered);
+        return lowered;
+    }
+
+
+    /**
+     * This method builds the abstract tree of the current parse tree without modifying it.
+     * The abstract trees of the nodes are cached, so that only the reparsed regions are lowered again:
+     * the abstract tree returned is the same one, in which the reparsed top-level instructions are replaced
+     *
+     * @return the abstract tree of the current version of the token list
+     */
+    public ParseTree buildAST(){
+        return lower(parseTree).get(0);
+    }
+
+}
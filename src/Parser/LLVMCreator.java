@@ -1,54 +1,433 @@
 package Parser;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import IR.BasicBlock;
+import IR.Builder;
+import IR.Constant;
+import IR.Function;
+import IR.Instruction;
+import IR.Module;
+import IR.Opcode;
+import IR.Printer;
+import IR.Type;
+import IR.Value;
 import Main.FileCreator;
 import Main.LexicalUnit;
 import Main.Symbol;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.ExpressionDAG;
+import Nodes.For;
+import Nodes.If;
+import Nodes.IntLit;
+import Nodes.Node;
+import Nodes.Negate;
+import Nodes.Print;
+import Nodes.Read;
+import Nodes.VarRef;
+import Nodes.Walker;
+import Nodes.While;
 
-public class LLVMCreator{
-    ParseTree parseTree;
-    Map<String, String> operationsMap;
-    Set<String> variables;
-    String code = "";
+/**
+ * Lowers the abstract tree of a program into the in-memory representation of the IR package, a module whose
+ * main function is made of the program, and writes it as LLVM code. The code of each basic block is built
+ * while the tree is walked, the blocks being placed in the function in the order their labels are written.
+ */
+public class LLVMCreator extends Walker<Value> {
+    /**
+     * The modes of the code generation
+     */
+    public enum Mode {
+        // the values of the expressions are held in registers, in SSA form, instead of being stored in a new stack
+        // slot each: the variables of the program are then the only values kept in memory
+        REGISTERS,
+        // the conditions of the statements are lowered into conditional jumps, the right operand of an and/or being
+        // only evaluated when the left one doesn't decide the condition, instead of being computed as booleans
+        SHORT_CIRCUIT,
+        // the integers are printed and read through buffers by the runtime instead of printf and scanf, the functions
+        // of the runtime being then only written if the program prints or reads
+        BUFFERED_IO
+    }
+
+    // the value of the conditions which are not evaluated but lowered into jumps when their statement branches on them
+    private static final Value SHORT_CIRCUITED = new Constant(Type.I1, 1);
+    // the uses of the runtime by a program, found before its code is written
+    private static final int PRINTS = 1, READS = 2;
+    // the buffered runtime: the integers printed are formatted into a buffer written when it is full and at the end
+    // of the main function, and the integers read are parsed from a buffer filled by blocks
+    private static final String BUFFERED_OUTPUT = "@.outBuffer = internal global [65536 x i8] zeroinitializer, align 1\n" +
+            "@.outLength = internal global i32 0, align 4\n" +
+            "\n" +
+            "declare i64 @write(i32, i8*, i64) #1\n" +
+            "\n" +
+            "; Function Attrs: nounwind uwtable\n" +
+            "define void @flushOutput() #0 {\n" +
+            "entry:\n" +
+            "  %length = load i32, i32* @.outLength, align 4\n" +
+            "  br label %loop\n" +
+            "loop:\n" +
+            "  %written = phi i32 [ 0, %entry ], [ %next, %write ]\n" +
+            "  %left = sub i32 %length, %written\n" +
+            "  %empty = icmp sle i32 %left, 0\n" +
+            "  br i1 %empty, label %exit, label %write\n" +
+            "write:\n" +
+            "  %from = getelementptr inbounds [65536 x i8], [65536 x i8]* @.outBuffer, i64 0, i32 %written\n" +
+            "  %size = sext i32 %left to i64\n" +
+            "  %count = call i64 @write(i32 1, i8* %from, i64 %size)\n" +
+            "  %failed = icmp sle i64 %count, 0\n" +
+            "  %count32 = trunc i64 %count to i32\n" +
+            "  %next = add i32 %written, %count32\n" +
+            "  br i1 %failed, label %exit, label %loop\n" +
+            "exit:\n" +
+            "  store i32 0, i32* @.outLength, align 4\n" +
+            "  ret void\n" +
+            "}\n" +
+            "\n" +
+            "; Function Attrs: nounwind uwtable\n" +
+            "define void @println(i32 %x) #0 {\n" +
+            "entry:\n" +
+            "  %length = load i32, i32* @.outLength, align 4\n" +
+            "  %full = icmp sgt i32 %length, 65524\n" +
+            "  br i1 %full, label %flush, label %format\n" +
+            "flush:\n" +
+            "  call void @flushOutput()\n" +
+            "  br label %format\n" +
+            "format:\n" +
+            "  %start = phi i32 [ %length, %entry ], [ 0, %flush ]\n" +
+            "  %negative = icmp slt i32 %x, 0\n" +
+            "  %wide = sext i32 %x to i64\n" +
+            "  %opposite = sub i64 0, %wide\n" +
+            "  %magnitude = select i1 %negative, i64 %opposite, i64 %wide\n" +
+            "  br label %count\n" +
+            "count:\n" +
+            "  %rest = phi i64 [ %magnitude, %format ], [ %quotient, %count ]\n" +
+            "  %digits = phi i32 [ 1, %format ], [ %digitsNext, %count ]\n" +
+            "  %quotient = udiv i64 %rest, 10\n" +
+            "  %more = icmp uge i64 %rest, 10\n" +
+            "  %digitsNext = add i32 %digits, 1\n" +
+            "  br i1 %more, label %count, label %sign\n" +
+            "sign:\n" +
+            "  %signLength = zext i1 %negative to i32\n" +
+            "  %first = add i32 %start, %signLength\n" +
+            "  %end = add i32 %first, %digits\n" +
+            "  br i1 %negative, label %minus, label %digit\n" +
+            "minus:\n" +
+            "  %minusAt = getelementptr inbounds [65536 x i8], [65536 x i8]* @.outBuffer, i64 0, i32 %start\n" +
+            "  store i8 45, i8* %minusAt, align 1\n" +
+            "  br label %digit\n" +
+            "digit:\n" +
+            "  %value = phi i64 [ %magnitude, %sign ], [ %magnitude, %minus ], [ %valueNext, %digit ]\n" +
+            "  %after = phi i32 [ %end, %sign ], [ %end, %minus ], [ %at, %digit ]\n" +
+            "  %valueNext = udiv i64 %value, 10\n" +
+            "  %remainder = urem i64 %value, 10\n" +
+            "  %remainder8 = trunc i64 %remainder to i8\n" +
+            "  %character = add i8 %remainder8, 48\n" +
+            "  %at = sub i32 %after, 1\n" +
+            "  %digitAt = getelementptr inbounds [65536 x i8], [65536 x i8]* @.outBuffer, i64 0, i32 %at\n" +
+            "  store i8 %character, i8* %digitAt, align 1\n" +
+            "  %nonzero = icmp ne i64 %valueNext, 0\n" +
+            "  br i1 %nonzero, label %digit, label %newline\n" +
+            "newline:\n" +
+            "  %newlineAt = getelementptr inbounds [65536 x i8], [65536 x i8]* @.outBuffer, i64 0, i32 %end\n" +
+            "  store i8 10, i8* %newlineAt, align 1\n" +
+            "  %lengthNext = add i32 %end, 1\n" +
+            "  store i32 %lengthNext, i32* @.outLength, align 4\n" +
+            "  ret void\n" +
+            "}\n" +
+            "\n";
+    private static final String BUFFERED_INPUT = "@.inBuffer = internal global [65536 x i8] zeroinitializer, align 1\n" +
+            "@.inLength = internal global i32 0, align 4\n" +
+            "@.inPosition = internal global i32 0, align 4\n" +
+            "\n" +
+            "declare i64 @read(i32, i8*, i64) #1\n" +
+            "\n" +
+            "; Function Attrs: nounwind uwtable\n" +
+            "define internal i32 @readByte() #0 {\n" +
+            "entry:\n" +
+            "  %position = load i32, i32* @.inPosition, align 4\n" +
+            "  %length = load i32, i32* @.inLength, align 4\n" +
+            "  %empty = icmp sge i32 %position, %length\n" +
+            "  br i1 %empty, label %fill, label %take\n" +
+            "fill:\n" +
+            "  %count = call i64 @read(i32 0, i8* getelementptr inbounds ([65536 x i8], [65536 x i8]* @.inBuffer, i64 0, i64 0), i64 65536)\n" +
+            "  %count32 = trunc i64 %count to i32\n" +
+            "  store i32 %count32, i32* @.inLength, align 4\n" +
+            "  store i32 0, i32* @.inPosition, align 4\n" +
+            "  %ended = icmp sle i64 %count, 0\n" +
+            "  br i1 %ended, label %eof, label %take\n" +
+            "take:\n" +
+            "  %at = phi i32 [ %position, %entry ], [ 0, %fill ]\n" +
+            "  %byteAt = getelementptr inbounds [65536 x i8], [65536 x i8]* @.inBuffer, i64 0, i32 %at\n" +
+            "  %byte = load i8, i8* %byteAt, align 1\n" +
+            "  %next = add i32 %at, 1\n" +
+            "  store i32 %next, i32* @.inPosition, align 4\n" +
+            "  %character = zext i8 %byte to i32\n" +
+            "  ret i32 %character\n" +
+            "eof:\n" +
+            "  ret i32 -1\n" +
+            "}\n" +
+            "\n" +
+            "; Function Attrs: nounwind uwtable\n" +
+            "define i32 @readInt() #0 {\n" +
+            "entry:\n" +
+            "  br label %skip\n" +
+            "skip:\n" +
+            "  %c = call i32 @readByte()\n" +
+            "  %space = icmp eq i32 %c, 32\n" +
+            "  %control = sub i32 %c, 9\n" +
+            "  %isControl = icmp ult i32 %control, 5\n" +
+            "  %blank = or i1 %space, %isControl\n" +
+            "  br i1 %blank, label %skip, label %sign\n" +
+            "sign:\n" +
+            "  %minus = icmp eq i32 %c, 45\n" +
+            "  %plus = icmp eq i32 %c, 43\n" +
+            "  %signed = or i1 %minus, %plus\n" +
+            "  br i1 %signed, label %skipSign, label %number\n" +
+            "skipSign:\n" +
+            "  %afterSign = call i32 @readByte()\n" +
+            "  br label %number\n" +
+            "number:\n" +
+            "  %first = phi i32 [ %c, %sign ], [ %afterSign, %skipSign ]\n" +
+            "  br label %digit\n" +
+            "digit:\n" +
+            "  %d = phi i32 [ %first, %number ], [ %dNext, %accumulate ]\n" +
+            "  %value = phi i32 [ 0, %number ], [ %valueNext, %accumulate ]\n" +
+            "  %offset = sub i32 %d, 48\n" +
+            "  %isDigit = icmp ult i32 %offset, 10\n" +
+            "  br i1 %isDigit, label %accumulate, label %done\n" +
+            "accumulate:\n" +
+            "  %times = mul i32 %value, 10\n" +
+            "  %valueNext = add i32 %times, %offset\n" +
+            "  %dNext = call i32 @readByte()\n" +
+            "  br label %digit\n" +
+            "done:\n" +
+            "  %ended = icmp eq i32 %d, -1\n" +
+            "  br i1 %ended, label %result, label %unread\n" +
+            "unread:\n" +
+            "  %position = load i32, i32* @.inPosition, align 4\n" +
+            "  %back = sub i32 %position, 1\n" +
+            "  store i32 %back, i32* @.inPosition, align 4\n" +
+            "  br label %result\n" +
+            "result:\n" +
+            "  %opposite = sub i32 0, %value\n" +
+            "  %read = select i1 %minus, i32 %opposite, i32 %value\n" +
+            "  ret i32 %read\n" +
+            "}\n" +
+            "\n";
+    Block program;
+    Map<LexicalUnit, Opcode> operationsMap;
+    Map<String, Instruction> variables;
+    Module module;
+    Function main;
+    Map<String, BasicBlock> blocks;
+    Builder code;
+    Writer out;
+    boolean registers;
+    boolean shortCircuit;
+    boolean bufferedIO;
     int tmpCounter = 0;
+    int shortCircuitCounter = 0;
     int condCounter = 0;
+    ExpressionDAG dag;
+    Map<Integer, Value> availableExpressions;
+    Map<String, Set<Integer>> expressionsReading;
+    Deque<Integer> labelNumbers;
 
 
     public LLVMCreator(ParseTree parseTree){
-        this.parseTree = parseTree;
-        this.variables = new HashSet<>();
+        this(NodeBuilder.build(parseTree), EnumSet.noneOf(Mode.class));
+    }
+
+
+    /**
+     * Constructs the llvm code of a program
+     *
+     * @param program the block of the instructions of the program
+     * @param modes the modes of the code generation, none of them being the default one
+     */
+    public LLVMCreator(Block program, Set<Mode> modes){
+        this.code = new Builder();
+        this.program = program;
+        setModes(modes);
+        writeProgram();
+    }
+
+
+    /**
+     * Constructs the llvm code of a program and writes it to a writer, each function and basic block being written
+     * as soon as it is complete and its instructions being then released, so that only the block being built is held
+     * in memory. The writer is flushed, not closed, and getCode returns an empty string
+     *
+     * @param program the block of the instructions of the program
+     * @param out the writer to which the code is written
+     * @param modes the modes of the code generation, none of them being the default one
+     * @throws IOException the exception raised if the code cannot be written
+     */
+    public LLVMCreator(Block program, Writer out, Set<Mode> modes) throws IOException{
+        this.code = new Builder();
+        this.out = out;
+        this.program = program;
+        setModes(modes);
+        try{writeProgram();}
+        catch(UncheckedIOException e){throw e.getCause();}
+        out.flush();
+    }
+
+
+    /**
+     * This method sets the modes of the code generation
+     *
+     * @param modes the modes
+     */
+    private void setModes(Set<Mode> modes){
+        this.registers = modes.contains(Mode.REGISTERS);
+        this.shortCircuit = modes.contains(Mode.SHORT_CIRCUIT);
+        this.bufferedIO = modes.contains(Mode.BUFFERED_IO);
+    }
+
+
+    /**
+     * This method writes the code of the runtime functions and of the main function, made of the program
+     */
+    private void writeProgram(){
+        this.variables = new HashMap<>();
+        this.blocks = new HashMap<>();
+        this.dag = new ExpressionDAG();
+        this.availableExpressions = new HashMap<>();
+        this.expressionsReading = new HashMap<>();
+        this.labelNumbers = new ArrayDeque<>();
         buildOperationsMap();
-        buildCode();
-        mapping(parseTree);
-        this.code += "ret i32 0\n" + "}\n";
+        int uses = bufferedIO ? new RuntimeUses().walk(program) : PRINTS | READS;
+        buildCode(uses);
+        walk(program);
+        // the integers left in the buffer are written before the program returns
+        if(bufferedIO && (uses & PRINTS) != 0){code.callVoid("flushOutput");}
+        code.ret(new Constant(0));
+        endBlock();
+        if(out != null){
+            try{out.append("}\n");}
+            catch(IOException e){throw new UncheckedIOException(e);}
+        }
     }
 
 
     //Getters
-    public String getCode(){return code;}
+    public String getCode(){return out == null ? module.toString() : "";}
+
+    /**
+     * This method returns the module of the program, whose main function has no blocks left when it is streamed
+     *
+     * @return the module whose main function is made of the program
+     */
+    public Module getModule(){return module;}
 
 
     private void buildOperationsMap(){
         this.operationsMap = new HashMap<>(){{
-            put("+", "add");
-            put("-", "sub");
-            put("*", "mul");
-            put("/", "sdiv");
-            put("=","eq");
-            put("<","slt");
-            put("and","and");  
-            put("or","or");           
+            put(LexicalUnit.PLUS, Opcode.ADD);
+            put(LexicalUnit.MINUS, Opcode.SUB);
+            put(LexicalUnit.TIMES, Opcode.MUL);
+            put(LexicalUnit.DIVIDE, Opcode.SDIV);
+            put(LexicalUnit.EQUAL, Opcode.EQ);
+            put(LexicalUnit.SMALLER, Opcode.SLT);
+            put(LexicalUnit.AND, Opcode.AND);
+            put(LexicalUnit.OR, Opcode.OR);
         }};
     }
 
 
-    private void buildCode(){
-        this.code += "@.strR = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n" +
+    /**
+     * A walker finding whether a program prints or reads, the expressions being skipped
+     */
+    private static class RuntimeUses extends Walker<Integer> {
+
+        /**
+         * This method merges the uses of the runtime by the children of the node being visited
+         *
+         * @return the uses of the runtime by the subtree, PRINTS and READS
+         */
+        private Integer uses(){
+            int uses = 0;
+            for(int childUses : results()){uses |= childUses;}
+            return uses;
+        }
+
+        @Override
+        protected Integer enter(Node node){return node instanceof Nodes.Expression || node instanceof Cond ? 0 : null;}
+
+        @Override
+        public Integer visit(Block block){return uses();}
+
+        @Override
+        public Integer visit(Assign assign){return uses();}
+
+        @Override
+        public Integer visit(If ifStatement){return uses();}
+
+        @Override
+        public Integer visit(While whileStatement){return uses();}
+
+        @Override
+        public Integer visit(For forStatement){return uses();}
+
+        @Override
+        public Integer visit(Print print){return PRINTS;}
+
+        @Override
+        public Integer visit(Read read){return READS;}
+
+        @Override
+        public Integer visit(BinOp binOp){return 0;}
+
+        @Override
+        public Integer visit(Negate negate){return 0;}
+
+        @Override
+        public Integer visit(Cond cond){return 0;}
+
+        @Override
+        public Integer visit(VarRef varRef){return 0;}
+
+        @Override
+        public Integer visit(IntLit intLit){return 0;}
+    }
+
+
+    /**
+     * This method returns the functions of the buffered runtime used by a program
+     *
+     * @param uses the uses of the runtime by the program, PRINTS and READS
+     * @return the code of the functions reading the integers if the program reads, then of the functions printing them
+     * if it prints
+     */
+    private static String bufferedRuntime(int uses){
+        return ((uses & READS) != 0 ? BUFFERED_INPUT : "") + ((uses & PRINTS) != 0 ? BUFFERED_OUTPUT : "") + "\n";
+    }
+
+
+    /**
+     * This method builds the module, made of the runtime functions, and the entry block of its main function
+     *
+     * @param uses the uses of the runtime by the program, PRINTS and READS, the buffered runtime
+     * being only written for the ones used
+     */
+    private void buildCode(int uses){
+        module = new Module(bufferedIO ? bufferedRuntime(uses) : "@.strR = private unnamed_addr constant [3 x i8] c\"%d\\00\", align 1\n" +
                 "\n" +
                 "; Function Attrs: nounwind uwtable\n" +
                 "define i32 @readInt() #0 {\n" +
@@ -74,9 +453,38 @@ public class LLVMCreator{
                 "declare i32 @printf(i8*, ...) #1\n" +
                 "\n" +
                 "\n" +
-                "\n" +
-                "define i32 @main() { \nentry:\n" +
-                "       ; read a and b\n";
+                "\n");
+        main = module.add(new Function("main", Type.I32));
+        BasicBlock entry = main.add(new BasicBlock("entry"));
+        entry.setComment("read a and b");
+        code.setBlock(entry);
+        if(out != null){
+            try{
+                out.append(module.getHeader());
+                Printer.writeSignature(main, out);
+            }
+            catch(IOException e){throw new UncheckedIOException(e);}
+        }
+    }
+
+
+    /**
+     * This method ends the current basic block, its terminator being built: when the module is streamed,
+     * the block is written to the writer and released, being removed from the main function and emptied of its
+     * instructions and links, so that it is only referred to by the blocks not written yet and the allocations it holds
+     *
+     * @throws UncheckedIOException the exception raised if the code cannot be written
+     */
+    private void endBlock(){
+        if(out == null){return;}
+        BasicBlock block = code.getBlock();
+        try{Printer.write(block, out);}
+        catch(IOException e){throw new UncheckedIOException(e);}
+        // the current block is always the last block of the function
+        main.getBlocks().remove(main.getBlocks().size() - 1);
+        block.getInstructions().clear();
+        block.getPredecessors().clear();
+        block.getSuccessors().clear();
     }
 
 
@@ -97,89 +505,154 @@ public class LLVMCreator{
      * This method loads the integer value pointed by value into the integer variable varName
      * 
      * @param varName the name of the variable in which the value is loaded
-     * @param value the object pointing to the value which is loaded in the variable
+     * @param value the pointer to the value which is loaded in the variable
+     * @return the value loaded
      */
-    private void loadVariable(String varName, Object value){
-        // if value = %condX then it is a binary condition then no need to load it
-        if (value.toString().contains("cond")) {
-
-        }
-        else {
-            this.code += "%" + varName + " = load i32, i32* %" + value + "\n";
-        }
-    }
+    private Instruction loadVariable(String varName, Value value){return code.load(varName, value);}
 
 
     /**
      * This method allocates a new integer whose name is specified by varName
      *
      * @param varName the name of the allocated variable
+     * @return the pointer to the integer
      */
-    private void allocateVariable(String varName){this.code += "%" + varName + " = alloca i32\n";}
+    private Instruction allocateVariable(String varName){return code.alloca(varName);}
 
 
     /**
      * This method stores a given integer value in an integer variable pointer
      *
-     * @param pointer the name of the pointer in which the value is stored
+     * @param pointer the pointer in which the value is stored
      * @param value the value that is stored in the variable pointer
      */
-    private void storeInteger(String pointer, Object value){
-        this.code += "store  i32 " + value +  ", i32* %" + pointer + "\n";
-    }
+    private void storeInteger(Value pointer, int value){code.store(new Constant(value), pointer);}
 
 
     /**
      * This method stores the value of a given variable in another variable pointer
      *
-     * @param pointer the name of the pointer in which the value will be stored
-     * @param value the name of the variable which contained the value to store in another variable
+     * @param pointer the pointer in which the value will be stored
+     * @param value the value to store in the variable pointer
      */
-    private void storeVariable(String pointer, String value){storeInteger(pointer, "%" + value);}
+    private void storeVariable(Value pointer, Value value){code.store(value, pointer);}
 
 
     /**
-     * Helper method that evaluates an expression and returns the name of the variable that contains the result of the evaluation
-     * 
-     * @param tree the parse tree containing the expression to be evaluated
-     * @return the name of the variable that contains the result of the evaluation
-     * 
+     * This method returns the pointer to a variable of the program, whose allocation is built
+     * the first time the variable is written, so that a variable read before being written is an undefined pointer
+     *
+     * @param varName the name of the variable
+     * @return the allocation of the variable
      */
-    private String evaluateExpression(ParseTree tree){
-        String varName = null;
-        if(tree.getChildren().size() == 1){
-            String tmpVar1 = evaluateExpression(tree.getChildren().get(0));
-            String tmpVar2 = produceNewVarName();
-            String tmpVar3 = produceNewVarName();
-            loadVariable(tmpVar2, tmpVar1);
-            this.code += "%" + tmpVar3 + " = " + operationsMap.get(tree.getLabel().getValue()) + " i32 0" +  " , %" + tmpVar2 + "\n";
-            varName = produceNewVarName();
-            allocateVariable(varName);
-            storeVariable(varName, tmpVar3);
-        }
-        else if(tree.getChildren().size() > 1){
-            String tmpVar2 = evaluateExpression(tree.getChildren().get(1));
-            String tmpVar1 = evaluateExpression(tree.getChildren().get(0));
-            String tmpVar3 = produceNewVarName();
-            String tmpVar4 = produceNewVarName();
-            String tmpVar5 = produceNewVarName();
-            varName = produceNewVarName();
-            loadVariable(tmpVar3, tmpVar2);
-            loadVariable(tmpVar4, tmpVar1);
-            this.code += "%" + tmpVar5 + " = " + operationsMap.get(tree.getLabel().getValue()) + " i32 %" + tmpVar4 + " , %" + tmpVar3 + "\n";
-            allocateVariable(varName);
-            storeVariable(varName, tmpVar5);
-        }
-        else{
-            if(tree.getLabel().getType() == LexicalUnit.NUMBER){
-                varName = produceNewVarName();
-                allocateVariable(varName);
-                storeInteger(varName, tree.getLabel().getValue());
-            }
-            else{varName = tree.getLabel().getValue() + "";}
+    private Instruction pointer(String varName){
+        return variables.computeIfAbsent(varName, name -> new Instruction(Opcode.ALLOCA, Type.POINTER, name));
+    }
+
+
+    /**
+     * This method records that the value of an expression of the DAG is held by a variable, or by a register
+     * in SSA form, until the end of the current basic block or until one of the variables it reads is written
+     *
+     * @param id the id of the expression in the DAG
+     * @param varName the pointer to the variable holding the value of the expression, or the register in SSA form
+     * @return the pointer to the variable holding the value of the expression, or the register in SSA form
+     */
+    private Value makeAvailable(int id, Value varName){
+        availableExpressions.put(id, varName);
+        for(String variable : dag.getVariables(id)){
+            expressionsReading.computeIfAbsent(variable, v -> new HashSet<>()).add(id);
         }
         return varName;
-    } 
+    }
+
+
+    /**
+     * This method forgets the values of the expressions reading a variable that is written
+     *
+     * @param variable the name of the variable written
+     */
+    private void kill(String variable){
+        Set<Integer> killed = expressionsReading.remove(variable);
+        if(killed != null){availableExpressions.keySet().removeAll(killed);}
+    }
+
+
+    /**
+     * This method writes the code of the opposite of an expression
+     *
+     * @param negate the node of the opposite
+     * @return the pointer to the variable that contains the result of the evaluation, or the register in SSA form
+     */
+    @Override
+    public Value visit(Negate negate){
+        int id = dag.intern(negate);
+        Value tmpVar1 = result(0);
+        if(registers){return makeAvailable(id, code.negate(produceNewVarName(), tmpVar1));}
+        String tmpVar2 = produceNewVarName();
+        String tmpVar3 = produceNewVarName();
+        Instruction loaded = loadVariable(tmpVar2, tmpVar1);
+        Instruction negated = code.negate(tmpVar3, loaded);
+        Instruction pointer = allocateVariable(produceNewVarName());
+        storeVariable(pointer, negated);
+        return makeAvailable(id, pointer);
+    }
+
+
+    /**
+     * This method writes the code of an arithmetic operation
+     *
+     * @param binOp the node of the operation
+     * @return the pointer to the variable that contains the result of the evaluation, or the register in SSA form
+     */
+    @Override
+    public Value visit(BinOp binOp){
+        int id = dag.intern(binOp);
+        Value tmpVar2 = result(0);
+        Value tmpVar1 = result(1);
+        if(registers){return makeAvailable(id, code.binary(produceNewVarName(), operationsMap.get(binOp.getOperator()), tmpVar1, tmpVar2));}
+        String tmpVar3 = produceNewVarName();
+        String tmpVar4 = produceNewVarName();
+        String tmpVar5 = produceNewVarName();
+        String varName = produceNewVarName();
+        Instruction right = loadVariable(tmpVar3, tmpVar2);
+        Instruction left = loadVariable(tmpVar4, tmpVar1);
+        Instruction result = code.binary(tmpVar5, operationsMap.get(binOp.getOperator()), left, right);
+        Instruction pointer = allocateVariable(varName);
+        storeVariable(pointer, result);
+        return makeAvailable(id, pointer);
+    }
+
+
+    /**
+     * This method writes the code storing an integer literal in a new variable, or returns the literal in SSA form
+     *
+     * @param intLit the node of the literal
+     * @return the pointer to the variable that contains the literal, or the literal
+     */
+    @Override
+    public Value visit(IntLit intLit){
+        if(registers){return new Constant(intLit.getValue());}
+        int id = dag.intern(intLit);
+        Instruction pointer = allocateVariable(produceNewVarName());
+        storeInteger(pointer, intLit.getValue());
+        return makeAvailable(id, pointer);
+    }
+
+
+    /**
+     * This method returns the pointer to a variable, whose value needs no evaluation,
+     * or loads the variable in a new register in SSA form
+     *
+     * @param varRef the node of the variable
+     * @return the pointer to the variable, or the register in SSA form
+     */
+    @Override
+    public Value visit(VarRef varRef){
+        if(!registers){return pointer(varRef.getName());}
+        return code.load(produceNewVarName(), pointer(varRef.getName()));
+    }
+
 
     /**
      * This method tries to allocate a new variable if its name was not already met before
@@ -187,116 +660,216 @@ public class LLVMCreator{
      * @param varName the name of the variable that may be allocated
      */
     private void tryAllocateVariable(String varName){
-        if(!variables.contains(varName)){
-            allocateVariable(varName);
-            variables.add(varName);
-        }
+        Instruction pointer = pointer(varName);
+        if(pointer.getParent() == null){code.add(pointer);}
     }
 
 
     /**
      * This method writes the code of an Assign statement
      *
-     * @param tree the parse tree containing the Assign instruction
+     * @param assign the node of the Assign instruction
+     * @return null
      */
-    private void assignStatement(ParseTree tree){
-        String varName = tree.getChildren().get(0).getLabel().getValue() + "";
-        String tmpVar = evaluateExpression(tree.getChildren().get(1));
-        String tmpVar3 = produceNewVarName();
-        loadVariable(tmpVar3, tmpVar);
+    @Override
+    public Value visit(Assign assign){
+        String varName = assign.getTarget().getName();
+        Value tmpVar = result(0);
+        if(registers){
+            tryAllocateVariable(varName);
+            storeVariable(pointer(varName), tmpVar);
+            kill(varName);
+            return null;
+        }
+        Instruction value = loadVariable(produceNewVarName(), tmpVar);
         tryAllocateVariable(varName);
-        storeVariable(varName, tmpVar3);
+        storeVariable(pointer(varName), value);
+        kill(varName);
+        return null;
     }
 
 
     /**
      * This method writes the code of a Print statement
      *
-     * @param tree the parse tree containing the Print instruction
+     * @param print the node of the Print instruction
+     * @return null
      */
-    private void printStatement(ParseTree tree){
-        String varName = tree.getChildren().get(0).getLabel().getValue() + "";
-        String tmpVar3 = produceNewVarName();
-        loadVariable(tmpVar3, varName);
-        this.code += "call void @println(i32 %" + tmpVar3 +  ")" + "\n";
+    @Override
+    public Value visit(Print print){
+        Instruction value = loadVariable(produceNewVarName(), pointer(print.getVariable().getName()));
+        code.callVoid("println", value);
+        return null;
     }
 
 
     /**
      * This method writes the code of a Read statement
      *
-     * @param tree the parse tree containing the Read instruction
+     * @param read the node of the Read instruction
+     * @return null
      */
-    private void readStatement(ParseTree tree){
-        String tmpVar = produceNewVarName();
-        this.code += "%" + tmpVar + " = call i32 @readInt()\n";
-        String varName = tree.getChildren().get(0).getLabel().getValue() + "";
+    @Override
+    public Value visit(Read read){
+        Instruction value = code.call(produceNewVarName(), "readInt");
+        String varName = read.getVariable().getName();
         tryAllocateVariable(varName);
-        this.code += "store i32 %" + tmpVar + ", i32* %" + varName + "\n";
+        storeVariable(pointer(varName), value);
+        kill(varName);
+        return null;
     }
 
 
     /**
      * This method writes the code that evaluates a boolean expression
-     * and returns the name of the variable that contains the evaluation of the condition
-     *
-     * @param condition the parse tree containing the condition to be evaluated
-     * @return the name of the variable that contains the evaluation of the boolean expression
-     */
-    private String evaluateCondition(ParseTree condition){
-        ParseTree leftTree = condition.getChildren().get(0);
-        ParseTree rightTree = condition.getChildren().get(1);
-
-        // Check if the children are conditions themselves
-        String left, right;
-        if (leftTree.getLabel().getValue().equals("and") || leftTree.getLabel().getValue().equals("or") || leftTree.getLabel().getValue().equals("=") || leftTree.getLabel().getValue().equals("<")) {
-            left = evaluateCondition(leftTree);
-            } 
-        else {
-                left = evaluateExpression(leftTree);
+     * and returns the boolean register that contains the evaluation of the condition
+     *
+     * @param condition the node of the condition to be evaluated
+     * @return the boolean register that contains the evaluation of the boolean expression
+     */
+    @Override
+    public Value visit(Cond condition){
+        // the operands are conditions themselves for and/or, expressions for comparisons
+        Value left = result(0);
+        Value right = result(1);
+        if(condition.isComparison()){return compare(condition, left, right);}
+        Opcode opcode = operationsMap.get(condition.getOperator());
+        if(registers){return code.binary(produceNewVarName(), opcode, left, right);}
+        this.condCounter++;
+        return code.binary("cond" + tmpCounter + condCounter, opcode, left, right);
+    } 
+
+
+    /**
+     * This method writes the code comparing the values of two expressions
+     *
+     * @param condition the node of the comparison
+     * @param left the pointer to the variable holding the value of the left operand, or the register in SSA form
+     * @param right the pointer to the variable holding the value of the right operand, or the register in SSA form
+     * @return the boolean register that contains the result of the comparison
+     */
+    private Instruction compare(Cond condition, Value left, Value right){
+        Opcode opcode = operationsMap.get(condition.getOperator());
+        if(registers){return code.compare(produceNewVarName(), opcode, left, right);}
+        Instruction newLeft = loadVariable(produceNewVarName(), left);
+        Instruction newRight = loadVariable(produceNewVarName(), right);
+        return code.compare("cond" + tmpCounter, opcode, newLeft, newRight);
+    }
+
+
+    /**
+     * A condition lowered into jumps: the blocks jumped to whether it holds or not, or the label
+     * of the block evaluating the right operand of an and/or, placed once its left operand is lowered
+     */
+    private static final class ConditionJump {
+        final Cond condition;
+        final BasicBlock ifBlock, elseBlock;
+        final String label;
+
+        ConditionJump(Cond condition, BasicBlock ifBlock, BasicBlock elseBlock){
+            this.condition = condition;
+            this.ifBlock = ifBlock;
+            this.elseBlock = elseBlock;
+            this.label = null;
+        }
+
+        ConditionJump(String label){
+            this.condition = null;
+            this.ifBlock = null;
+            this.elseBlock = null;
+            this.label = label;
+        }
+    }
+
+
+    /**
+     * This method writes the code of a condition as conditional jumps: each comparison jumps to the block of the
+     * right operand of the and/or it is the left operand of when it doesn't decide the condition, and to the given
+     * blocks otherwise, so that only the comparisons needed are evaluated. The conditions nested are kept on an explicit stack
+     *
+     * @param condition the node of the condition
+     * @param ifBlock the block jumped to if the condition holds
+     * @param elseBlock the block jumped to otherwise
+     */
+    private void lowerCondition(Cond condition, BasicBlock ifBlock, BasicBlock elseBlock){
+        Deque<ConditionJump> stack = new ArrayDeque<>();
+        stack.push(new ConditionJump(condition, ifBlock, elseBlock));
+        while(!stack.isEmpty()){
+            ConditionJump jump = stack.pop();
+            if(jump.label != null){
+                produceLabel(jump.label);
+                // every jump to the block is written, the ones of the left operand
+                blocks.remove(jump.label);
+                continue;
             }
-        if (rightTree.getLabel().getValue().equals("and") || rightTree.getLabel().getValue().equals("or") || rightTree.getLabel().getValue().equals("=") || rightTree.getLabel().getValue().equals("<")) {
-            right = evaluateCondition(rightTree);
-            } 
-        else {
-                right = evaluateExpression(rightTree);
+            Cond cond = jump.condition;
+            if(cond.isComparison()){
+                Value left = walk(cond.getLeft());
+                Value right = walk(cond.getRight());
+                code.branch(compare(cond, left, right), jump.ifBlock, jump.elseBlock);
+                endBlock();
+                continue;
             }
-        
-        if (condition.getLabel().getValue().equals("and") || condition.getLabel().getValue().equals("or")) {
-            this.condCounter++;
-            this.code += "%cond" + tmpCounter + condCounter + " = " + operationsMap.get(condition.getLabel().getValue()) + " i1 %" + left + " , %" + right + "\n";
-            return "cond" + tmpCounter + condCounter;
-        } 
-        else {
-            String newLeft =  produceNewVarName();
-            loadVariable(newLeft, left);
-            String newRight = produceNewVarName();
-            loadVariable(newRight, right);
-            this.code += "%cond" + tmpCounter + " = icmp " + operationsMap.get(condition.getLabel().getValue()) + " i32 %" + newLeft + " , %" + newRight + "\n";
-            return "cond" + tmpCounter;
+            boolean and = cond.getOperator() == LexicalUnit.AND;
+            String label = (and ? "and" : "or") + shortCircuitCounter++;
+            stack.push(new ConditionJump((Cond) cond.getRight(), jump.ifBlock, jump.elseBlock));
+            stack.push(new ConditionJump(label));
+            if(and){stack.push(new ConditionJump((Cond) cond.getLeft(), block(label), jump.elseBlock));}
+            else{stack.push(new ConditionJump((Cond) cond.getLeft(), jump.ifBlock, block(label)));}
         }
-        
-    } 
+    }
 
 
     /**
      * This method writes the code that makes a conditional jump
      *
-     * @param conditionName the name of the variable containing the condition of the jump
+     * @param condition the node of the condition of the jump
+     * @param conditionName the boolean register containing the condition of the jump, unless it is lowered into jumps
      * @param ifLabel the label name of the if branch
      * @param elseLabel the label name of the else branch
      */
-    private void condjump(String conditionName, String ifLabel, String elseLabel){
-        this.code += "br i1 %" + conditionName + ", label %" + ifLabel +  " ,label %" + elseLabel + "\n";
+    private void condjump(Cond condition, Value conditionName, String ifLabel, String elseLabel){
+        if(shortCircuit){
+            lowerCondition(condition, block(ifLabel), block(elseLabel));
+            return;
+        }
+        code.branch(conditionName, block(ifLabel), block(elseLabel));
+        endBlock();
+    }
+
+
+    /**
+     * This method returns the basic block of a label, built the first time the label is met, by a jump or by the label itself
+     *
+     * @param labelName the name of the label
+     * @return the block starting with the label
+     */
+    private BasicBlock block(String labelName){return blocks.computeIfAbsent(labelName, BasicBlock::new);}
+
+
+    /**
+     * This method forgets the labels of a statement once it is closed, no jump reaching them afterwards,
+     * so that only the labels of the statements being written are kept
+     *
+     * @param number the number of the labels of the statement
+     * @param prefixes the prefixes of the names of the labels of the statement
+     */
+    private void forgetLabels(int number, String... prefixes){
+        for(String prefix : prefixes){blocks.remove(prefix + number);}
     }
 
 
     /**
-     * This method writes the code that produces a new label
+     * This method writes the code that produces a new label, starting its basic block at the end of the main function
      *
      * @param labelName the name of the label that is produced
      */
-    private void produceLabel(String labelName){this.code += labelName + ":" + "\n";}
+    private void produceLabel(String labelName){
+        code.setBlock(main.add(block(labelName)));
+        // the values computed in the previous basic block don't dominate the new one
+        availableExpressions.clear();
+        expressionsReading.clear();
+    }
 
 
     /**
@@ -304,114 +877,150 @@ public class LLVMCreator{
      *
      * @param jumpLabel the name of the label to which the unconditional jump is made
      */
-    private void unCondJump(String jumpLabel){this.code += "br label %" + jumpLabel + "\n";}
+    private void unCondJump(String jumpLabel){
+        code.jump(block(jumpLabel));
+        endBlock();
+    }
 
 
     /**
-     * This method writes the code of an If statement
+     * This method returns the children of a node in the order their code is written: the right operand
+     * of an operation before its left operand, the value of an assignment without its target, and
+     * the condition of a loop twice, since it is evaluated before the first iteration and after each one
      *
-     * @param tree the parse tree containing the If instruction
+     * @param node the node whose code is written
+     * @return the children of the node whose code is written
      */
-    private void ifStatement(ParseTree tree){
-        ParseTree condition = tree.getChildren().get(0);
-        String conditionName = evaluateCondition(condition);
-        int last = tree.getChildren().size();
-        if(tree.getChildren().get(tree.getChildren().size() - 1).getLabel().getValue().equals("<If>'")){
-            last--;
+    @Override
+    protected List<Node> children(Node node){
+        if(node instanceof BinOp){return Arrays.asList(((BinOp) node).getRight(), ((BinOp) node).getLeft());}
+        if(node instanceof Assign){return Collections.singletonList(((Assign) node).getValue());}
+        if(node instanceof Print || node instanceof Read){return Collections.emptyList();}
+        if(node instanceof While){
+            While whileStatement = (While) node;
+            return Arrays.asList(whileStatement.getCondition(), whileStatement.getBody(), whileStatement.getCondition());
         }
-        String ifLabel = "if" + tmpCounter;
-        String elseLabel = "else" + tmpCounter;
-        String exitLabel = "exitIf" + tmpCounter;
-        if(last != tree.getChildren().size()){condjump(conditionName, ifLabel, elseLabel);}
-        else{condjump(conditionName, ifLabel, exitLabel);}
-        produceLabel(ifLabel);
-        for(int i = 1; i < last; i++){
-            ParseTree child = tree.getChildren().get(i);
-            mapping(child);
+        if(node instanceof For){
+            For forStatement = (For) node;
+            return Arrays.asList(forStatement.getInit(), forStatement.getCondition(), forStatement.getBody(), forStatement.getStep(), forStatement.getCondition());
         }
-        unCondJump(exitLabel);
-        if(last != tree.getChildren().size()){
-            produceLabel(elseLabel);
-            ParseTree elseStatements = tree.getChildren().get(tree.getChildren().size() - 1);
-            for(int i = 0; i < elseStatements.getChildren().size(); i++){
-                ParseTree child = elseStatements.getChildren().get(i);
-                mapping(child);
-            }
-            unCondJump(exitLabel);
+        return super.children(node);
+    }
+
+
+    /**
+     * This method reuses the value of an expression that is still available, instead of evaluating it again.
+     * It also numbers the labels of a While statement, since they are numbered before its condition is evaluated,
+     * and skips the conditions lowered into jumps, which are written when their statement branches on them
+     *
+     * @param node the node reached
+     * @return the pointer to the variable holding the value of the node if it is available, null otherwise
+     */
+    @Override
+    protected Value enter(Node node){
+        if(node instanceof Cond && shortCircuit){return SHORT_CIRCUITED;}
+        if(node instanceof BinOp || node instanceof Negate || node instanceof IntLit){
+            return availableExpressions.get(dag.intern((Nodes.Expression) node));
         }
-        produceLabel(exitLabel);
+        if(node instanceof While){labelNumbers.push(tmpCounter);}
+        return null;
     }
 
 
     /**
-     * This method writes the code of a While statement
+     * This method writes the code of the If, While and For statements that comes between their children:
+     * the jumps on the condition and the labels of the branches
      *
-     * @param tree the parse tree containing the While instruction
+     * @param node the node whose child is walked
+     * @param index the index of the child
      */
-    private void whileStatement(ParseTree tree){
-        ParseTree condition = tree.getChildren().get(0);
-        String whileLabel = "while" + tmpCounter;
-        String exitLabel = "exitWhile" + tmpCounter;
-        String conditionName = evaluateCondition(condition);
-        condjump(conditionName, whileLabel, exitLabel);
-        produceLabel(whileLabel);
-        for(int i = 1; i < tree.getChildren().size(); i++){
-            ParseTree child = tree.getChildren().get(i);
-            mapping(child);
+    @Override
+    protected void beforeChild(Node node, int index){
+        if(node instanceof If){
+            if(index == 1){
+                int number = tmpCounter;
+                labelNumbers.push(number);
+                boolean hasElse = ((If) node).getElseBlock() != null;
+                condjump(((If) node).getCondition(), result(0), "if" + number, (hasElse ? "else" : "exitIf") + number);
+                produceLabel("if" + number);
+            }
+            else if(index == 2){
+                unCondJump("exitIf" + labelNumbers.peek());
+                produceLabel("else" + labelNumbers.peek());
+            }
+        }
+        else if(node instanceof While && index == 1){
+            condjump(((While) node).getCondition(), result(0), "while" + labelNumbers.peek(), "exitWhile" + labelNumbers.peek());
+            produceLabel("while" + labelNumbers.peek());
         }
-        conditionName = evaluateCondition(condition);
-        condjump(conditionName, whileLabel, exitLabel);
-        produceLabel(exitLabel);
-    } //
+        else if(node instanceof For){
+            // the labels are numbered once the initial assignment is written
+            if(index == 1){labelNumbers.push(tmpCounter);}
+            else if(index == 2){
+                condjump(((For) node).getCondition(), result(1), "for" + labelNumbers.peek(), "exitFor" + labelNumbers.peek());
+                produceLabel("for" + labelNumbers.peek());
+            }
+        }
+    }
+
+
+    /**
+     * This method writes the code closing an If statement, its condition and branches being written
+     *
+     * @param ifStatement the node of the If instruction
+     * @return null
+     */
+    @Override
+    public Value visit(If ifStatement){
+        int number = labelNumbers.pop();
+        unCondJump("exitIf" + number);
+        produceLabel("exitIf" + number);
+        forgetLabels(number, "if", "else", "exitIf");
+        return null;
+    }
+
+
+    /**
+     * This method writes the code closing a While statement, its condition, body and condition again being written
+     *
+     * @param whileStatement the node of the While instruction
+     * @return null
+     */
+    @Override
+    public Value visit(While whileStatement){
+        int number = labelNumbers.pop();
+        condjump(whileStatement.getCondition(), result(2), "while" + number, "exitWhile" + number);
+        produceLabel("exitWhile" + number);
+        forgetLabels(number, "while", "exitWhile");
+        return null;
+    }
+
 
     /** 
-     * This method writes the code of a For statement
+     * This method writes the code closing a For statement, its initial assignment, condition, body,
+     * step and condition again being written
      * 
-     * @param tree the parse tree containing the For instruction
-     */
-     private void forStatement(ParseTree tree){
-        // "for", "<Assign>", "<ExprArith>", "Cond", "do", "<Instruction>"
-        // first we call initial assignStatement
-        assignStatement(tree.getChildren().get(0));
-        ParseTree condition = tree.getChildren().get(2);
-        String forLabel = "for" + tmpCounter;
-        String exitLabel = "exitFor" + tmpCounter;
-        String conditionName = evaluateCondition(condition);
-        condjump(conditionName, forLabel, exitLabel);
-        produceLabel(forLabel);
-        for(int i = 3; i < tree.getChildren().size(); i++){
-            ParseTree child = tree.getChildren().get(i);
-            mapping(child);
-        } // this is the set of instructions
-
-        assignStatement(tree.getChildren().get(1));
-
-        // then we evaluate the condition again
-        conditionName = evaluateCondition(condition);
-        condjump(conditionName, forLabel, exitLabel);
-        produceLabel(exitLabel);
-
-        } 
-        
-    /**
-     * This method traverses a given parse tree and writes the corresponding llvm code
-     *
-     * @param tree the parse tree whose llvm code is written
-     */
-    private void mapping(ParseTree tree){
-        if(tree.getLabel().getValue().equals("<Assign>")){assignStatement(tree);}
-        else if(tree.getLabel().getValue().equals("<Print>")){printStatement(tree);}
-        else if(tree.getLabel().getValue().equals("<Read>")){readStatement(tree);}
-        else if(tree.getLabel().getValue().equals("<If>")){ifStatement(tree);}
-        else if(tree.getLabel().getValue().equals("<While>")){whileStatement(tree);}
-        else if(tree.getLabel().getValue().equals("<For>")){forStatement(tree);}
-        else{
-            for(int i = 0; i < tree.getChildren().size(); i++){
-                ParseTree child = tree.getChildren().get(i);
-                mapping(child);
-            }
-        }
+     * @param forStatement the node of the For instruction
+     * @return null
+     */
+    @Override
+    public Value visit(For forStatement){
+        int number = labelNumbers.pop();
+        condjump(forStatement.getCondition(), result(4), "for" + number, "exitFor" + number);
+        produceLabel("exitFor" + number);
+        forgetLabels(number, "for", "exitFor");
+        return null;
     }
 
 
+    /**
+     * This method does nothing, the code of the instructions of a block being written when they are walked
+     *
+     * @param block the block whose llvm code is written
+     * @return null
+     */
+    @Override
+    public Value visit(Block block){return null;}
+
+
 }
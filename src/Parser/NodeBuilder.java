@@ -0,0 +1,196 @@
+package Parser;
+
+import Main.LexicalUnit;
+import Nodes.Assign;
+import Nodes.BinOp;
+import Nodes.Block;
+import Nodes.Cond;
+import Nodes.Expression;
+import Nodes.For;
+import Nodes.If;
+import Nodes.IntLit;
+import Nodes.Negate;
+import Nodes.Node;
+import Nodes.Print;
+import Nodes.Read;
+import Nodes.Statement;
+import Nodes.VarRef;
+import Nodes.While;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Converts an abstract tree built by AST.lower, whose nodes are labeled by symbols, into typed nodes.
+ * It is the only place where the labels are inspected: the passes working on the typed nodes dispatch on their types.
+ * The tree is converted bottom-up with an explicit stack, the nodes of the right-nested instruction lists
+ * being replaced by their instructions so that the lists are flattened into blocks.
+ */
+public class NodeBuilder {
+
+    /**
+     * This method converts the abstract tree of a program into typed nodes
+     *
+     * @param tree the abstract tree of the program
+     * @return the block of the instructions of the program
+     */
+    public static Block build(ParseTree tree){
+        List<Node> statements = TreeWalker.postOrder(tree, ParseTree::getChildren, NodeBuilder::convert);
+        return block(statements, 0, statements.size());
+    }
+
+
+    /**
+     * This method converts the abstract tree of a program into typed nodes, the top-level instructions
+     * being converted in parallel
+     *
+     * @param tree the abstract tree of the program
+     * @param runner the runner walking the top-level instructions in parallel
+     * @return the block of the instructions of the program
+     */
+    public static Block build(ParseTree tree, ParallelPassRunner runner){
+        List<Node> statements = runner.postOrder(tree, NodeBuilder::convert);
+        return block(statements, 0, statements.size());
+    }
+
+
+    /**
+     * This method returns a converted node, checking its type
+     *
+     * @param nodes the stack of the converted nodes
+     * @param index the position of the node in the stack
+     * @param type the expected type of the node
+     * @param kind the name of the expected kind of node, used in the error message
+     * @return the converted node
+     * @throws IllegalArgumentException the exception raised if the node has another type
+     */
+    private static <T extends Node> T get(List<Node> nodes, int index, Class<T> type, String kind){
+        if(index >= nodes.size()){throw new IllegalArgumentException("Missing " + kind);}
+        Node node = nodes.get(index);
+        if(!type.isInstance(node)){throw new IllegalArgumentException("Unexpected " + kind + " " + node.getClass().getSimpleName());}
+        return type.cast(node);
+    }
+
+
+    /**
+     * This method builds the block of converted instructions
+     *
+     * @param nodes the stack of the converted nodes
+     * @param from the position of the first instruction
+     * @param to the position after the last instruction
+     * @return the block of the instructions
+     */
+    private static Block block(List<Node> nodes, int from, int to){
+        List<Statement> statements = new ArrayList<>(to - from);
+        for(int i = from; i < to; i++){statements.add(get(nodes, i, Statement.class, "instruction"));}
+        return new Block(statements);
+    }
+
+
+    /**
+     * This method replaces the converted nodes on the top of a stack by a single node
+     *
+     * @param nodes the stack of the converted nodes
+     * @param base the position of the first node replaced
+     * @param node the node replacing them
+     */
+    private static void replace(List<Node> nodes, int base, Node node){
+        nodes.subList(base, nodes.size()).clear();
+        nodes.add(node);
+    }
+
+
+    /**
+     * This method converts a node of the abstract tree, its children being converted: the typed nodes of its
+     * children, on the top of the stack, are replaced by the typed node of the node. The lists of instructions
+     * are replaced by their instructions
+     *
+     * @param tree the node to convert
+     * @param nodes the stack of the converted nodes
+     * @param base the position in the stack of the typed node of the first child of the node
+     */
+    private static void convert(ParseTree tree, List<Node> nodes, int base){
+        LexicalUnit type = tree.getLabel().getType();
+        if(type != null){
+            replace(nodes, base, operation(tree, type, nodes, base));
+            return;
+        }
+        List<ParseTree> children = tree.getChildren();
+        switch((String) tree.getLabel().getValue()){
+            case "<Program>": case "<Code>": case "<InstList>": case "<InstList>'":
+                break;
+            case "<Assign>":
+                replace(nodes, base, assign(nodes, base));
+                break;
+            case "<Print>":
+                replace(nodes, base, new Print(get(nodes, base, VarRef.class, "variable")));
+                break;
+            case "<Read>":
+                replace(nodes, base, new Read(get(nodes, base, VarRef.class, "variable")));
+                break;
+            case "<If>'":
+                replace(nodes, base, block(nodes, base, nodes.size()));
+                break;
+            case "<If>":
+                ParseTree last = children.get(children.size() - 1);
+                boolean hasElse = last.getLabel().isNonTerminal() && last.getLabel().getValue().equals("<If>'");
+                Block elseBlock = hasElse ? get(nodes, nodes.size() - 1, Block.class, "else block") : null;
+                Block thenBlock = block(nodes, base + 1, nodes.size() - (hasElse ? 1 : 0));
+                replace(nodes, base, new If(get(nodes, base, Cond.class, "condition"), thenBlock, elseBlock));
+                break;
+            case "<While>":
+                replace(nodes, base, new While(get(nodes, base, Cond.class, "condition"), block(nodes, base + 1, nodes.size())));
+                break;
+            case "<For>":
+                For forStatement = new For(get(nodes, base, Assign.class, "assignment"), get(nodes, base + 1, Assign.class, "assignment"),
+                        get(nodes, base + 2, Cond.class, "condition"), block(nodes, base + 3, nodes.size()));
+                replace(nodes, base, forStatement);
+                break;
+            default:
+                throw new IllegalArgumentException("Unexpected node " + tree.getLabel().getValue());
+        }
+    }
+
+
+    /**
+     * This method converts an assignment
+     *
+     * @param nodes the stack of the converted nodes
+     * @param base the position of the variable assigned, followed by the expression
+     * @return the typed node of the assignment
+     */
+    private static Assign assign(List<Node> nodes, int base){
+        return new Assign(get(nodes, base, VarRef.class, "variable"), get(nodes, base + 1, Expression.class, "expression"));
+    }
+
+
+    /**
+     * This method converts a leaf or an operation, labeled by a lexical unit
+     *
+     * @param tree the node to convert
+     * @param type the lexical unit of the node
+     * @param nodes the stack of the converted nodes
+     * @param base the position of the typed node of the first operand
+     * @return the typed node of the leaf or operation
+     */
+    private static Node operation(ParseTree tree, LexicalUnit type, List<Node> nodes, int base){
+        switch(type){
+            case VARNAME:
+                return new VarRef((String) tree.getLabel().getValue());
+            case NUMBER:
+                return new IntLit((Integer) tree.getLabel().getValue());
+            case MINUS:
+                if(tree.getChildren().size() == 1){return new Negate(get(nodes, base, Expression.class, "expression"));}
+                return new BinOp(type, get(nodes, base, Expression.class, "expression"), get(nodes, base + 1, Expression.class, "expression"));
+            case PLUS: case TIMES: case DIVIDE:
+                return new BinOp(type, get(nodes, base, Expression.class, "expression"), get(nodes, base + 1, Expression.class, "expression"));
+            case EQUAL: case SMALLER:
+                return new Cond(type, get(nodes, base, Expression.class, "expression"), get(nodes, base + 1, Expression.class, "expression"));
+            case AND: case OR:
+                return new Cond(type, get(nodes, base, Cond.class, "condition"), get(nodes, base + 1, Cond.class, "condition"));
+            default:
+                throw new IllegalArgumentException("Unexpected node " + tree.getLabel().getValue());
+        }
+    }
+
+}
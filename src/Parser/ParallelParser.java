@@ -0,0 +1,246 @@
+package Parser;
+
+import Grammar.Grammar;
+import Main.LexicalUnit;
+import Main.Symbol;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A parser splitting the top-level instruction list of a program at its "..." separators and parsing
+ * the instructions on a ForkJoinPool. The parse tree and the rules sequence produced are identical to
+ * the ones of Parser.parse(), which is used instead whenever the prescan of the tokens or the parse
+ * of an instruction is inconsistent.
+ */
+public class ParallelParser {
+    private Parser parser;
+    private ForkJoinPool pool;
+    private String listTail;
+    private ArrayList<Integer> skeletonRules;
+    private int separatorRule;
+    private int lastRule;
+
+
+    /**
+     * Constructs a parallel parser
+     *
+     * @param parser the parser whose grammar and token list are used
+     * @param pool the pool on which the instructions are parsed
+     */
+    public ParallelParser(Parser parser, ForkJoinPool pool){
+        this.parser = parser;
+        this.pool = pool;
+        findSkeletonRules();
+    }
+
+
+    /**
+     * This method searches for the rules building the top-level instruction list:
+     * &lt;Program&gt; -&gt; begin &lt;Code&gt; end, &lt;Code&gt; -&gt; &lt;InstList&gt;,
+     * &lt;InstList&gt; -&gt; &lt;Instruction&gt; X and X -&gt; ... &lt;InstList&gt; | epsilon.
+     * If the grammar doesn't have this shape, listTail is left null and the parsing is always serial
+     */
+    private void findSkeletonRules(){
+        Grammar grammar = parser.getGrammar();
+        Map<String, Integer> variablesNumbers = parser.getVariablesNumbers();
+        String S = grammar.getStartSymbol();
+        ArrayList<String> epsilon = new ArrayList<>(Arrays.asList(""));
+        ArrayList<ArrayList<String>> rulesOfS = grammar.getRulesOf(S);
+        ArrayList<ArrayList<String>> rulesOfCode = grammar.getRulesOf("<Code>");
+        ArrayList<ArrayList<String>> rulesOfInstList = grammar.getRulesOf("<InstList>");
+        if(rulesOfS == null || rulesOfCode == null || rulesOfInstList == null || variablesNumbers.isEmpty()){return;}
+        int programRule = rulesOfS.indexOf(new ArrayList<>(Arrays.asList("begin", "<Code>", "end")));
+        int codeRule = rulesOfCode.indexOf(new ArrayList<>(Arrays.asList("<InstList>")));
+        if(rulesOfS.size() != 1 || programRule != 0 || codeRule < 0 || rulesOfInstList.size() != 1){return;}
+        ArrayList<String> ruleOfInstList = rulesOfInstList.get(0);
+        if(ruleOfInstList.size() != 2 || !ruleOfInstList.get(0).equals("<Instruction>")){return;}
+        String tail = ruleOfInstList.get(1);
+        ArrayList<ArrayList<String>> rulesOfTail = grammar.getRulesOf(tail);
+        if(rulesOfTail == null){return;}
+        int separator = rulesOfTail.indexOf(new ArrayList<>(Arrays.asList("...", "<InstList>")));
+        int last = rulesOfTail.indexOf(epsilon);
+        if(separator < 0 || last < 0){return;}
+        this.listTail = tail;
+        this.skeletonRules = new ArrayList<>(Arrays.asList(variablesNumbers.get(S), variablesNumbers.get("<Code>") + codeRule, variablesNumbers.get("<InstList>")));
+        this.separatorRule = variablesNumbers.get(tail) + separator;
+        this.lastRule = variablesNumbers.get(tail) + last;
+    }
+
+
+    /**
+     * This method scans the tokens to find the top-level instructions of the program,
+     * tracking the nesting of begin/end blocks and parentheses (the only places where "..." can be nested)
+     *
+     * @param symbolList the tokens of the program
+     * @return the index of the first token of each top-level instruction followed by the index of the token
+     * following the end of the program, or null if the tokens are inconsistent
+     */
+    private static ArrayList<Integer> prescan(ArrayList<Symbol> symbolList){
+        if(symbolList.isEmpty() || symbolList.get(0).getType() != LexicalUnit.BEG){return null;}
+        ArrayList<Integer> bounds = new ArrayList<>();
+        bounds.add(1);
+        int blocks = 1;
+        int parentheses = 0;
+        for(int i = 1; i < symbolList.size(); i++){
+            LexicalUnit type = symbolList.get(i).getType();
+            if(type == LexicalUnit.BEG){blocks++;}
+            else if(type == LexicalUnit.LPAREN){parentheses++;}
+            else if(type == LexicalUnit.RPAREN){
+                parentheses--;
+                if(parentheses < 0){return null;}
+            }
+            else if(type == LexicalUnit.END){
+                blocks--;
+                if(blocks == 0){
+                    if(parentheses != 0 || i == bounds.get(bounds.size() - 1)){return null;}
+                    bounds.add(i + 1);
+                    return bounds;
+                }
+            }
+            else if(type == LexicalUnit.DOTS && blocks == 1 && parentheses == 0){
+                if(i == bounds.get(bounds.size() - 1)){return null;}
+                bounds.add(i + 1);
+            }
+            else if(type == LexicalUnit.EOS){return null;}
+        }
+        return null;
+    }
+
+
+    /**
+     * A task parsing a range of top-level instructions, split in halves above a given number of instructions
+     */
+    private class InstructionsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final ArrayList<Integer> bounds;
+        private final ParseTree[] instructions;
+        private final List<ArrayList<Integer>> rules;
+        private final AtomicBoolean failed;
+        private final List<ParseProfiler> profilers;
+        private final int low, high, threshold;
+
+        InstructionsTask(ArrayList<Integer> bounds, ParseTree[] instructions, List<ArrayList<Integer>> rules, AtomicBoolean failed, List<ParseProfiler> profilers, int low, int high, int threshold){
+            this.bounds = bounds;
+            this.instructions = instructions;
+            this.rules = rules;
+            this.failed = failed;
+            this.profilers = profilers;
+            this.low = low;
+            this.high = high;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute(){
+            if(high - low > threshold){
+                int middle = (low + high) >>> 1;
+                invokeAll(new InstructionsTask(bounds, instructions, rules, failed, profilers, low, middle, threshold),
+                        new InstructionsTask(bounds, instructions, rules, failed, profilers, middle, high, threshold));
+                return;
+            }
+            ParseProfiler profiler = parser.getProfiler() == null ? null : new ParseProfiler(parser);
+            for(int i = low; i < high && !failed.get(); i++){
+                Parser instructionParser = new Parser(parser, parser.getSymbolList());
+                instructionParser.setProfiler(profiler);
+                int start = bounds.get(i);
+                try{
+                    ParseTree instruction = instructionParser.parseFrom("<Instruction>", parser.getSymbolList(), start);
+                    // the instruction must end right before the separator following it
+                    if(instruction.getTokenCount() != bounds.get(i + 1) - 1 - start){failed.set(true);}
+                    instructions[i] = instruction;
+                    rules.set(i, instructionParser.getRulesSequence());
+                }
+                catch(Exception | StackOverflowError e){failed.set(true);}
+            }
+            if(profiler != null){profilers.add(profiler);}
+        }
+    }
+
+
+    /**
+     * This method builds a leaf of the parse tree for a given token
+     *
+     * @param symbol the token of the leaf
+     * @param offset the offset of the token relative to the first token of the father of the leaf
+     * @return the leaf built
+     */
+    private static ParseTree leaf(Symbol symbol, int offset){
+        ParseTree leaf = new ParseTree(symbol);
+        leaf.setTokenOffset(offset);
+        leaf.setTokenCount(1);
+        return leaf;
+    }
+
+
+    /**
+     * This method parses the token list of the parser, the top-level instructions being parsed in parallel
+     *
+     * @return the parse tree that is built, identical to the one built by Parser.parse()
+     * @throws Exception the exception raised by the serial parse if the tokens don't match the grammar
+     */
+    public ParseTree parse() throws Exception{
+        ArrayList<Symbol> symbolList = parser.getSymbolList();
+        ArrayList<Integer> bounds = listTail == null ? null : prescan(symbolList);
+        if(bounds == null || bounds.size() < 3){return parser.parse();}
+        int count = bounds.size() - 1;
+        ParseTree[] instructions = new ParseTree[count];
+        List<ArrayList<Integer>> rules = new ArrayList<>();
+        for(int i = 0; i < count; i++){rules.add(null);}
+        AtomicBoolean failed = new AtomicBoolean(false);
+        List<ParseProfiler> profilers = Collections.synchronizedList(new ArrayList<>());
+        int threshold = Math.max(1, count / (8 * pool.getParallelism()));
+        pool.invoke(new InstructionsTask(bounds, instructions, rules, failed, profilers, 0, count, threshold));
+        if(failed.get()){return parser.parse();}
+        for(ParseProfiler profiler : profilers){parser.getProfiler().merge(profiler);}
+
+        int end = bounds.get(count) - 1;
+        ParseTree instList = null;
+        for(int i = count - 1; i >= 0; i--){
+            int start = bounds.get(i);
+            ArrayList<ParseTree> children = new ArrayList<>();
+            instructions[i].setTokenOffset(0);
+            children.add(instructions[i]);
+            if(instList != null){
+                int separator = bounds.get(i + 1) - 1;
+                ArrayList<ParseTree> tailChildren = new ArrayList<>();
+                tailChildren.add(leaf(symbolList.get(separator), 0));
+                instList.setTokenOffset(1);
+                tailChildren.add(instList);
+                ParseTree tail = new ParseTree(new Symbol(null, listTail), tailChildren);
+                tail.setTokenOffset(separator - start);
+                tail.setTokenCount(end - separator);
+                children.add(tail);
+            }
+            instList = new ParseTree(new Symbol(null, "<InstList>"), children);
+            instList.setTokenCount(end - start);
+        }
+        ArrayList<ParseTree> codeChildren = new ArrayList<>();
+        codeChildren.add(instList);
+        ParseTree code = new ParseTree(new Symbol(null, "<Code>"), codeChildren);
+        code.setTokenOffset(1);
+        code.setTokenCount(end - 1);
+        ArrayList<ParseTree> programChildren = new ArrayList<>();
+        programChildren.add(leaf(symbolList.get(0), 0));
+        programChildren.add(code);
+        programChildren.add(leaf(symbolList.get(end), end));
+        ParseTree program = new ParseTree(new Symbol(null, parser.getGrammar().getStartSymbol()), programChildren);
+        program.setTokenCount(end + 1);
+
+        ArrayList<Integer> rulesSequence = parser.getRulesSequence();
+        rulesSequence.addAll(skeletonRules.subList(0, 2));
+        for(int i = 0; i < count; i++){
+            rulesSequence.add(skeletonRules.get(2));
+            rulesSequence.addAll(rules.get(i));
+            rulesSequence.add(i < count - 1 ? separatorRule : lastRule);
+        }
+        return program;
+    }
+
+}
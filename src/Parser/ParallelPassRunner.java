@@ -0,0 +1,141 @@
+package Parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the passes computing values bottom-up, as TreeWalker.postOrder does, on the top-level instructions
+ * of a program in parallel on a ForkJoinPool. The instructions are the children of the nodes of the
+ * instruction list, &lt;Program&gt;, &lt;Code&gt;, &lt;InstList&gt; and &lt;InstList&gt;', both in the parse tree
+ * and in the abstract tree. Each instruction is walked by a single task, and the nodes of the list are
+ * reduced once all the tasks are joined, on the values of the instructions taken in order, so that the
+ * values are the same as the ones of a serial walk.
+ * A reduction run in parallel must not modify the nodes it is given, nor write any shared state: it may only
+ * build new nodes from the values of the children, the fathers of which are set when they are built.
+ * The nodes shared by the instructions are only built by the reduction of the list, after the tasks.
+ */
+public class ParallelPassRunner {
+    private static final Set<String> LIST_LABELS = new HashSet<>(Arrays.asList("<Program>", "<Code>", "<InstList>", "<InstList>'"));
+
+    private ForkJoinPool pool;
+    private int threshold;
+
+
+    /**
+     * Constructs a parallel pass runner
+     *
+     * @param pool the pool on which the instructions are walked
+     * @param threshold the number of top-level instructions under which the passes are run serially
+     */
+    public ParallelPassRunner(ForkJoinPool pool, int threshold){
+        this.pool = pool;
+        this.threshold = threshold;
+    }
+
+
+    /**
+     * A task walking a range of top-level instructions, split in halves above a given number of instructions
+     *
+     * @param <R> the type of the values computed for the nodes
+     */
+    private static class InstructionsTask<R> extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final List<ParseTree> instructions;
+        private final TreeWalker.Reduction<R> reduction;
+        private final List<List<R>> values;
+        private final int low, high, grain;
+
+        InstructionsTask(List<ParseTree> instructions, TreeWalker.Reduction<R> reduction, List<List<R>> values, int low, int high, int grain){
+            this.instructions = instructions;
+            this.reduction = reduction;
+            this.values = values;
+            this.low = low;
+            this.high = high;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute(){
+            if(high - low > grain){
+                int middle = (low + high) >>> 1;
+                invokeAll(new InstructionsTask<>(instructions, reduction, values, low, middle, grain),
+                        new InstructionsTask<>(instructions, reduction, values, middle, high, grain));
+                return;
+            }
+            for(int i = low; i < high; i++){
+                values.set(i, TreeWalker.postOrder(instructions.get(i), ParseTree::getChildren, reduction));
+            }
+        }
+    }
+
+
+    /**
+     * This method collects the top-level instructions of a program, in order
+     *
+     * @param tree the root of the program
+     * @return the children of the nodes of the instruction list which are not themselves nodes of the list
+     */
+    static List<ParseTree> instructions(ParseTree tree){
+        List<ParseTree> instructions = new ArrayList<>();
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(tree);
+        while(!stack.isEmpty()){
+            ParseTree node = stack.pop();
+            if(node != tree && !isList(node)){
+                instructions.add(node);
+                continue;
+            }
+            List<ParseTree> children = node.getChildren();
+            for(int i = children.size() - 1; i >= 0; i--){stack.push(children.get(i));}
+        }
+        return instructions;
+    }
+
+
+    /**
+     * This method tells whether a node is a node of the instruction list
+     *
+     * @param tree the node
+     * @return true if the node is labeled by a variable of the instruction list
+     */
+    private static boolean isList(ParseTree tree){
+        return tree.getLabel().isNonTerminal() && LIST_LABELS.contains(tree.getLabel().getValue());
+    }
+
+
+    /**
+     * This method computes values for every node of a program from the values of its children, as
+     * TreeWalker.postOrder does with the children in order, the top-level instructions being walked in parallel
+     *
+     * @param tree the root of the program
+     * @param reduction the computation of the values of a node, which must not modify the nodes it is given
+     * @param <R> the type of the values computed for the nodes
+     * @return the values of the root
+     */
+    public <R> List<R> postOrder(ParseTree tree, TreeWalker.Reduction<R> reduction){
+        if(!isList(tree)){return TreeWalker.postOrder(tree, ParseTree::getChildren, reduction);}
+        List<ParseTree> instructions = instructions(tree);
+        int count = instructions.size();
+        if(count < threshold){return TreeWalker.postOrder(tree, ParseTree::getChildren, reduction);}
+        List<List<R>> values = new ArrayList<>(Collections.nCopies(count, null));
+        int grain = Math.max(1, count / (8 * pool.getParallelism()));
+        pool.invoke(new InstructionsTask<>(instructions, reduction, values, 0, count, grain));
+
+        // the instructions are seen as leaves, whose values are already computed, and are reached in the order they were collected
+        int[] next = {0};
+        return TreeWalker.postOrder(tree, node -> isList(node) ? node.getChildren() : Collections.emptyList(),
+                (node, stack, base) -> {
+                    if(isList(node)){reduction.reduce(node, stack, base);}
+                    else{stack.addAll(values.get(next[0]++));}
+                });
+    }
+
+}
@@ -0,0 +1,170 @@
+package Parser;
+
+import Grammar.Grammar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counters describing how a parser spent its time: the number of times each production was applied,
+ * and for each variable the number of calls, of lookahead checks and the time spent in its own rules.
+ * All the counters are primitive arrays indexed by the rule numbers of Grammar.findVariablesNumbers,
+ * a variable using the number of its first rule.
+ */
+public class ParseProfiler {
+    private String[] ruleVariables;
+    private List<List<String>> rules;
+    private long[] productionHits;
+    private long[] calls;
+    private long[] lookaheadChecks;
+    private long[] selfTime;
+    private long[] childrenTime = new long[64];
+    private int depth = 0;
+
+
+    /**
+     * Constructs a profiler for the grammar of a given parser
+     *
+     * @param parser the parser to profile
+     */
+    public ParseProfiler(Parser parser){
+        Grammar grammar = parser.getGrammar();
+        Map<String, Integer> variablesNumbers = parser.getVariablesNumbers();
+        int size = 1;
+        for(String A : grammar.getOrder()){size = Math.max(size, variablesNumbers.get(A) + grammar.getRulesOf(A).size());}
+        this.ruleVariables = new String[size];
+        this.rules = new ArrayList<>(Collections.nCopies(size, null));
+        for(String A : grammar.getOrder()){
+            ArrayList<ArrayList<String>> rulesOfA = grammar.getRulesOf(A);
+            for(int i = 0; i < rulesOfA.size(); i++){
+                ruleVariables[variablesNumbers.get(A) + i] = A;
+                rules.set(variablesNumbers.get(A) + i, rulesOfA.get(i));
+            }
+        }
+        this.productionHits = new long[size];
+        this.calls = new long[size];
+        this.lookaheadChecks = new long[size];
+        this.selfTime = new long[size];
+    }
+
+
+    /**
+     * This method is called by the parser when it starts building the tree of a variable
+     *
+     * @return the time at which the variable was entered
+     */
+    long enter(){
+        depth++;
+        if(depth == childrenTime.length){childrenTime = Arrays.copyOf(childrenTime, 2 * depth);}
+        childrenTime[depth] = 0;
+        return System.nanoTime();
+    }
+
+
+    /**
+     * This method is called by the parser when it has built the tree of a variable
+     *
+     * @param variableNumber the number of the first rule of the variable
+     * @param enterTime the time returned by enter() for this variable
+     * @param checks the number of lookahead checks made to choose the rule of the variable
+     */
+    void exit(int variableNumber, long enterTime, int checks){
+        long elapsed = System.nanoTime() - enterTime;
+        calls[variableNumber]++;
+        lookaheadChecks[variableNumber] += checks;
+        selfTime[variableNumber] += elapsed - childrenTime[depth];
+        depth--;
+        childrenTime[depth] += elapsed;
+    }
+
+
+    /**
+     * This method counts the productions applied in a rules sequence recorded by a parser
+     *
+     * @param rulesSequence the numbers of the rules applied, in order
+     */
+    public void countProductions(List<Integer> rulesSequence){
+        for(int rule : rulesSequence){productionHits[rule]++;}
+    }
+
+
+    /**
+     * This method adds the counters of another profiler of the same grammar to the counters of this profiler
+     *
+     * @param profiler the profiler whose counters are added
+     */
+    public synchronized void merge(ParseProfiler profiler){
+        for(int i = 0; i < calls.length; i++){
+            productionHits[i] += profiler.productionHits[i];
+            calls[i] += profiler.calls[i];
+            lookaheadChecks[i] += profiler.lookaheadChecks[i];
+            selfTime[i] += profiler.selfTime[i];
+        }
+    }
+
+
+    /**
+     * This method builds a bar proportional to a value
+     *
+     * @param value the value represented by the bar
+     * @param max the value represented by a full bar
+     * @return the bar built
+     */
+    private static String bar(long value, long max){
+        int length = max == 0 ? 0 : (int) (40 * value / max);
+        StringBuilder bar = new StringBuilder();
+        for(int i = 0; i < length; i++){bar.append('#');}
+        return bar.toString();
+    }
+
+
+    /**
+     * This method builds a string representation of a rule
+     *
+     * @param rule the number of the rule
+     * @return the string representation of the rule
+     */
+    private String ruleToString(int rule){
+        StringBuilder str = new StringBuilder(ruleVariables[rule]).append(" ->");
+        for(String component : rules.get(rule)){str.append(' ').append(component.isEmpty() ? "epsilon" : component);}
+        return str.toString();
+    }
+
+
+    /**
+     * This method builds the histograms of the productions applied and of the time spent per variable,
+     * sorted by decreasing number of hits and time
+     *
+     * @return a string representation of the counters
+     */
+    @Override
+    public String toString(){
+        StringBuilder str = new StringBuilder("Productions applied:\n");
+        long maxHits = 0;
+        ArrayList<Integer> order = new ArrayList<>();
+        for(int i = 1; i < productionHits.length; i++){
+            if(rules.get(i) != null){order.add(i);}
+            maxHits = Math.max(maxHits, productionHits[i]);
+        }
+        order.sort((a, b) -> Long.compare(productionHits[b], productionHits[a]));
+        for(int rule : order){
+            str.append(String.format("  [%2d] %-60s %10d %s%n", rule, ruleToString(rule), productionHits[rule], bar(productionHits[rule], maxHits)));
+        }
+        str.append("Variables (calls, lookahead checks, self time):\n");
+        long maxTime = 0;
+        order.clear();
+        for(int i = 1; i < calls.length; i++){
+            if(ruleVariables[i] != null && (i == 1 || !ruleVariables[i].equals(ruleVariables[i - 1]))){order.add(i);}
+            maxTime = Math.max(maxTime, selfTime[i]);
+        }
+        order.sort((a, b) -> Long.compare(selfTime[b], selfTime[a]));
+        for(int variable : order){
+            str.append(String.format("  %-16s %10d %10d %10.3f ms %s%n", ruleVariables[variable], calls[variable], lookaheadChecks[variable], selfTime[variable] / 1e6, bar(selfTime[variable], maxTime)));
+        }
+        return str.toString();
+    }
+
+}
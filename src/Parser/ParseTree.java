@@ -2,6 +2,8 @@ package Parser;
 
 import Main.Symbol;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -22,6 +24,8 @@ public class ParseTree {
     private Symbol label; // The label of the root of the tree
     private List<ParseTree> children; // Its children, which are trees themselves
     protected ParseTree father = null;
+    private int tokenOffset = 0; // Index of its first token, relative to the first token of its father
+    private int tokenCount = 0; // Number of tokens it covers
     /**
      * Creates a singleton tree with only a root labeled by lbl.
      * 
@@ -49,11 +53,28 @@ public class ParseTree {
     public Symbol getLabel(){return label;}
     public List<ParseTree> getChildren(){return children;}
     public ParseTree getFather(){return father;}
+    public int getTokenOffset(){return tokenOffset;}
+    public int getTokenCount(){return tokenCount;}
 
     //Setters
     public void setLabel(Symbol label){this.label = label;}
     public void setChildren(List<ParseTree> children){this.children = children;}
     public void setFather(ParseTree father){this.father = father;}
+    public void setTokenOffset(int tokenOffset){this.tokenOffset = tokenOffset;}
+    public void setTokenCount(int tokenCount){this.tokenCount = tokenCount;}
+
+
+    /**
+     * This method computes the index of the first token covered by the tree in the token list it was parsed from.
+     * The offsets being relative to the fathers, the spans of a whole subtree can be shifted by updating its root only
+     *
+     * @return the absolute index of the first token of the tree
+     */
+    public int getFirstToken(){
+        int firstToken = 0;
+        for(ParseTree tree = this; tree != null; tree = tree.getFather()){firstToken += tree.getTokenOffset();}
+        return firstToken;
+    }
 
     
     /**
@@ -61,14 +82,8 @@ public class ParseTree {
      */
     public String toLaTexTree() {
         StringBuilder treeTeX = new StringBuilder();
-        treeTeX.append("[");
-        treeTeX.append("{" + label.toTexString() + "}");
-        treeTeX.append(" ");
-
-        for (ParseTree child : children) {
-            treeTeX.append(child.toLaTexTree());
-        }
-        treeTeX.append("]");
+        try{TreeExporter.writeLaTeXTree(this, treeTeX);}
+        catch(IOException e){throw new UncheckedIOException(e);}
         return treeTeX.toString();
     }
 
@@ -78,14 +93,8 @@ public class ParseTree {
      */
     public String toTikZ() {
         StringBuilder treeTikZ = new StringBuilder();
-        treeTikZ.append("node {");
-        treeTikZ.append(label.toTexString());  // Implement this yourself in Symbol.java
-        treeTikZ.append("}\n");
-        for (ParseTree child : children) {
-            treeTikZ.append("child { ");
-            treeTikZ.append(child.toTikZ());
-            treeTikZ.append(" }\n");
-        }
+        try{TreeExporter.writeTikZ(this, treeTikZ);}
+        catch(IOException e){throw new UncheckedIOException(e);}
         return treeTikZ.toString();
     }
 
@@ -94,7 +103,10 @@ public class ParseTree {
      * LaTeX undertands it.
      */
     public String toTikZPicture() {
-        return "\\begin{tikzpicture}[tree layout]\n\\" + toTikZ() + ";\n\\end{tikzpicture}";
+        StringBuilder picture = new StringBuilder();
+        try{TreeExporter.writeTikZPicture(this, picture);}
+        catch(IOException e){throw new UncheckedIOException(e);}
+        return picture.toString();
     }
 
 
@@ -103,7 +115,10 @@ public class ParseTree {
      * using the latex code of the tree
      */
     public String toForestPicture() {
-        return "\\begin{forest}for tree={rectangle, draw, l sep=20pt}" + toLaTexTree() + ";\n\\end{forest}";
+        StringBuilder picture = new StringBuilder();
+        try{TreeExporter.writeForestPicture(this, picture);}
+        catch(IOException e){throw new UncheckedIOException(e);}
+        return picture.toString();
     }
 
     /**
@@ -117,8 +132,10 @@ public class ParseTree {
      * </pre>
      */
     public String toLaTeX() {
-        return "\\documentclass[border=5pt]{standalone}\n\n\\usepackage{tikz}\n\\usepackage{forest}\n\n\\begin{document}\n\n"
-                + toForestPicture() + "\n\n\\end{document}\n%% Local Variables:\n%% TeX-engine: pdflatex\n%% End:";
+        StringBuilder document = new StringBuilder();
+        try{TreeExporter.writeLaTeX(this, document);}
+        catch(IOException e){throw new UncheckedIOException(e);}
+        return document.toString();
     }
 
     public void addChildren(Collection<? extends ParseTree> children){
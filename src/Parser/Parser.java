@@ -8,6 +8,7 @@ import Main.Symbol;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -21,6 +22,9 @@ public class Parser {
     private Map<String, LexicalUnit> terminalsMap;
     private Map<String, Integer> variablesNumbers;
     private int index = 0;
+    private ParseProfiler profiler = null;
+    private Map<String, Set<LexicalUnit>> conflicts;
+    private AdaptivePredictor predictor = null;
 
 
     /**
@@ -40,9 +44,47 @@ public class Parser {
         this.terminalsMap = terminalsMap;
         this.variablesNumbers =  this.grammar.findVariablesNumbers();
         this.rulesSequence = new ArrayList<>();
+        this.conflicts = new HashMap<>();
+        for(Map.Entry<String, Set<String>> conflict : actionTable.findConflicts().entrySet()){
+            Set<LexicalUnit> units = new HashSet<>();
+            for(String a : conflict.getValue()){units.add(terminalsMap.get(a));}
+            conflicts.put(conflict.getKey(), units);
+        }
+        if(!conflicts.isEmpty()){this.predictor = new AdaptivePredictor(reducedGrammar, terminalsMap);}
+    }
+
+
+    /**
+     * Constructs a Parser sharing the grammar and the action table of another parser,
+     * so that several token lists or regions can be parsed at the same time
+     *
+     * @param parser the parser whose grammar and action table are shared
+     * @param symbolList the list of the symbols to parse
+     */
+    Parser(Parser parser, ArrayList<Symbol> symbolList){
+        this.grammar = parser.grammar;
+        this.actionTable = parser.actionTable;
+        this.symbolList = symbolList;
+        this.terminalsMap = parser.terminalsMap;
+        this.variablesNumbers = parser.variablesNumbers;
+        this.rulesSequence = new ArrayList<>();
+        this.conflicts = parser.conflicts;
+        this.predictor = parser.predictor;
     }
 
 
+    //Getters
+    public Grammar getGrammar(){return grammar;}
+    public ArrayList<Symbol> getSymbolList(){return symbolList;}
+    public ArrayList<Integer> getRulesSequence(){return rulesSequence;}
+    public Map<String, LexicalUnit> getTerminalsMap(){return terminalsMap;}
+    public Map<String, Integer> getVariablesNumbers(){return variablesNumbers;}
+    public ParseProfiler getProfiler(){return profiler;}
+
+    //Setters
+    public void setProfiler(ParseProfiler profiler){this.profiler = profiler;}
+
+
     /**
      * This method checks whether the current symbol's type matches any element of a given set of A
      *
@@ -96,6 +138,63 @@ public class Parser {
     }
 
 
+    /**
+     * This method builds the trees of the components of the rule applied to a variable
+     *
+     * @param ruleOfA the rule applied
+     * @param start the index of the first token of the variable
+     * @param children the list to which the trees of the components are added
+     * @throws Exception the exception raised if the current input doesn't match
+     */
+    private void buildChildren(ArrayList<String> ruleOfA, int start, ArrayList<ParseTree> children) throws Exception {
+        for(String componentOfRule: ruleOfA){
+            int childStart = index;
+            ParseTree child;
+            if(grammar.getVariables().contains(componentOfRule)){
+                child = buildParseTree(componentOfRule);
+            }
+            else{
+                match(componentOfRule);
+                Symbol symbol = symbolList.get(index - 1);
+                child = new ParseTree(symbol);
+                child.setTokenCount(1);
+            }
+            if(child != null){
+                child.setTokenOffset(childStart - start);
+                children.add(child);
+            }
+        }
+    }
+
+
+    /**
+     * This method builds the parse tree of a variable whose current token leads to a conflicting entry
+     * of the action table, the rule being chosen by the adaptive predictor
+     *
+     * @param A the current input variable
+     * @param start the index of the first token of A
+     * @param enterTime the time returned by the profiler when A was entered
+     * @return the parse tree associated to A, or null if an epsilon rule is predicted
+     * @throws Exception the exception raised if the current input doesn't match
+     */
+    private ParseTree buildPredictedParseTree(String A, int start, long enterTime) throws Exception {
+        int rule = predictor.predict(A, symbolList, index);
+        if(rule < 0){throwMismatchException(A);}
+        rulesSequence.add(variablesNumbers.get(A) + rule);
+        ArrayList<String> ruleOfA = grammar.getRulesOf(A).get(rule);
+        if(ruleOfA.equals(Arrays.asList(""))){
+            if(profiler != null){profiler.exit(variablesNumbers.get(A), enterTime, 1);}
+            return null;
+        }
+        ArrayList<ParseTree> children = new ArrayList<>();
+        buildChildren(ruleOfA, start, children);
+        ParseTree parseTree = new ParseTree(new Symbol(null, A), children);
+        parseTree.setTokenCount(index - start);
+        if(profiler != null){profiler.exit(variablesNumbers.get(A), enterTime, 1);}
+        return parseTree;
+    }
+
+
     /**
      * This recursive method reads the current input variable and builds the parse tree associated to it
      *
@@ -104,40 +203,44 @@ public class Parser {
      * @throws Exception the exception raised if the current input doesn't match
      */
     private ParseTree buildParseTree(String A) throws Exception {
+        int start = index;
+        long enterTime = profiler == null ? 0 : profiler.enter();
+        if(predictor != null){
+            Set<LexicalUnit> conflictsOfA = conflicts.get(A);
+            if(conflictsOfA != null && conflictsOfA.contains(symbolList.get(index).getType())){
+                return buildPredictedParseTree(A, start, enterTime);
+            }
+        }
         ArrayList<ArrayList<String>> rulesOfA = grammar.getRulesOf(A);
         ArrayList<String> epsilon = new ArrayList<>(Arrays.asList(""));
-        if(rulesOfA.contains(epsilon)  &&  isIn(A, actionTable.getFollow())){
+        boolean hasEpsilon = rulesOfA.contains(epsilon);
+        if(hasEpsilon  &&  isIn(A, actionTable.getFollow())){
             int ruleNumber = variablesNumbers.get(A) + rulesOfA.indexOf(epsilon);
             rulesSequence.add(ruleNumber);
+            if(profiler != null){profiler.exit(variablesNumbers.get(A), enterTime, 1);}
             return null;
         }
         ParseTree parseTree;
         ArrayList<ParseTree> children = new ArrayList<>();
         boolean matched = false;
+        int checks = hasEpsilon ? 1 : 0;
         for(int i = 0; i < rulesOfA.size(); ++i) {
             ArrayList<String> ruleOfA = rulesOfA.get(i);
             String firstElementOfRule = ruleOfA.get(0);
             if(isIn(firstElementOfRule, actionTable.getFirst())){
                 matched = true;
+                checks += i + 1;
                 int ruleNumber = variablesNumbers.get(A) + i;
                 rulesSequence.add(ruleNumber);
-                for(String componentOfRule: ruleOfA){
-                    if(grammar.getVariables().contains(componentOfRule)){
-                        ParseTree child = buildParseTree(componentOfRule);
-                        if(child != null){children.add(child);}
-                    }
-                    else{
-                        match(componentOfRule);
-                        Symbol symbol = symbolList.get(index - 1);
-                        children.add(new ParseTree(symbol));
-                    }
-                }
+                buildChildren(ruleOfA, start, children);
                 break;
             }
         }
         if(!matched){throwMismatchException(A);}
         Symbol symbol = new Symbol(null, A);
         parseTree = new ParseTree(symbol, children);
+        parseTree.setTokenCount(index - start);
+        if(profiler != null){profiler.exit(variablesNumbers.get(A), enterTime, checks);}
         return parseTree;
     }
 
@@ -155,18 +258,31 @@ public class Parser {
 
 
     /**
-     * This method builds an abstract tree from a given parse tree
+     * This method parses the variable A from the given position of a token list, without reading further than needed.
+     * It is used to reparse a region of a previously parsed token list
+     *
+     * @param A the variable to parse
+     * @param symbolList the token list to read from
+     * @param start the index of the first token of A in the token list
+     * @return the parse tree associated to A, whose token offset is the absolute index of its first token
+     * @throws Exception the exception raised if the tokens don't match A
+     */
+    ParseTree parseFrom(String A, ArrayList<Symbol> symbolList, int start) throws Exception{
+        this.symbolList = symbolList;
+        this.index = start;
+        ParseTree parseTree = buildParseTree(A);
+        parseTree.setTokenOffset(start);
+        return parseTree;
+    }
+
+
+    /**
+     * This method builds an abstract tree from a given parse tree, in a single pass over the tree
      *
      * @param tree the parse tree from which the abstract tree is built
      */
     public void buildAST(ParseTree tree){
-        Set<LexicalUnit> terminalUnits = new HashSet<>();
-        Set<String> terminals = new HashSet<>(Arrays.asList(
-                "begin", "end", "...","for",
-                ":=", "if", "then", "else", "{","}",
-                "while", "print", "read", "do", "(", ")"));
-        for(String terminal : terminals){terminalUnits.add(terminalsMap.get(terminal));}
-        AST.toAST(tree, grammar.getVariables(), terminalUnits, terminals);
+        AST.lower(tree);
     }
 
 }
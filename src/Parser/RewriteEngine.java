@@ -0,0 +1,347 @@
+package Parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a list of rewrite rules to a tree until none of them matches. The patterns of the rules are compiled
+ * into a bottom-up tree automaton: the state of a node is the set of the patterns matching it, computed from
+ * its label and from the states of its children, and the transitions are cached so that each combination of
+ * a label and of states of children is only examined once. The tree is rewritten in a single post-order
+ * traversal with an explicit stack: the children of a node are rewritten first, then the first rule matching
+ * the node is applied, and the nodes built by the rule are rewritten in turn.
+ */
+public class RewriteEngine {
+    private final List<RewriteRule> rules;
+    private final List<TreePattern> patterns = new ArrayList<>();
+    private final Map<TreePattern, Integer> patternNumbers = new IdentityHashMap<>();
+    private final int[][] childPatterns;
+    private final int[] rulePatterns;
+    private final int maxArity;
+    private final Map<Object, int[]> candidates = new HashMap<>();
+    private final Map<BitSet, State> states = new HashMap<>();
+    private final List<State> stateList = new ArrayList<>();
+    private final Map<Transition, State> transitions = new HashMap<>();
+    private final long[] applications;
+
+
+    /**
+     * A state of the automaton: the patterns matching a node and the first rule whose pattern is among them
+     */
+    private static final class State {
+        final int number;
+        final BitSet matched;
+        final int rule;
+
+        State(int number, BitSet matched, int rule){
+            this.number = number;
+            this.matched = matched;
+            this.rule = rule;
+        }
+    }
+
+
+    /**
+     * The input of a transition: the key of the label of a node, its number of children and their states.
+     * The states of the children are left out when no pattern has that many children
+     */
+    private static final class Transition {
+        final Object label;
+        final int arity;
+        final int[] childStates;
+
+        Transition(Object label, int arity, int[] childStates){
+            this.label = label;
+            this.arity = arity;
+            this.childStates = childStates;
+        }
+
+        @Override
+        public boolean equals(Object o){
+            if(!(o instanceof Transition)){return false;}
+            Transition other = (Transition) o;
+            return arity == other.arity && label.equals(other.label) && Arrays.equals(childStates, other.childStates);
+        }
+
+        @Override
+        public int hashCode(){return 31 * (31 * label.hashCode() + arity) + Arrays.hashCode(childStates);}
+    }
+
+
+    /**
+     * A node being rewritten: its children, the index of the next child to rewrite and the position
+     * of the rewritten children in the stack of the rewritten nodes. A frame without a node holds
+     * the nodes built by a rule, which replace the matched node once they are rewritten. The children
+     * of the matched node, already rewritten, are kept with their states by the frames of these nodes
+     */
+    private static final class Frame {
+        final ParseTree tree;
+        final List<ParseTree> children;
+        final int base;
+        final Map<ParseTree, Integer> rewritten;
+        int next = 0;
+
+        Frame(ParseTree tree, List<ParseTree> children, int base, Map<ParseTree, Integer> rewritten){
+            this.tree = tree;
+            this.children = children;
+            this.base = base;
+            this.rewritten = rewritten;
+        }
+    }
+
+
+    /**
+     * The stack of the rewritten nodes, with the numbers of their states
+     */
+    private static final class Values {
+        final List<ParseTree> nodes = new ArrayList<>();
+        int[] states = new int[16];
+
+        void push(ParseTree node, int state){
+            if(nodes.size() == states.length){states = Arrays.copyOf(states, 2 * states.length);}
+            states[nodes.size()] = state;
+            nodes.add(node);
+        }
+    }
+
+
+    /**
+     * Constructs an engine, compiling the patterns of the rules
+     *
+     * @param rules the rules, a node being rewritten by the first rule matching it
+     */
+    public RewriteEngine(List<RewriteRule> rules){
+        this.rules = new ArrayList<>(rules);
+        this.rulePatterns = new int[rules.size()];
+        for(int i = 0; i < rules.size(); i++){rulePatterns[i] = number(rules.get(i).getPattern());}
+        this.childPatterns = new int[patterns.size()][];
+        int arity = 0;
+        for(int i = 0; i < patterns.size(); i++){
+            TreePattern[] children = patterns.get(i).getChildren();
+            if(children == null){continue;}
+            childPatterns[i] = new int[children.length];
+            for(int j = 0; j < children.length; j++){childPatterns[i][j] = patternNumbers.get(children[j]);}
+            arity = Math.max(arity, children.length);
+        }
+        this.maxArity = arity;
+        this.applications = new long[rules.size()];
+    }
+
+
+    /**
+     * This method numbers a pattern and the patterns of its children
+     *
+     * @param pattern the pattern to number
+     * @return the number of the pattern
+     */
+    private int number(TreePattern pattern){
+        Deque<TreePattern> stack = new ArrayDeque<>();
+        stack.push(pattern);
+        while(!stack.isEmpty()){
+            TreePattern next = stack.pop();
+            if(patternNumbers.containsKey(next)){continue;}
+            patternNumbers.put(next, patterns.size());
+            patterns.add(next);
+            if(next.getChildren() != null){
+                for(TreePattern child : next.getChildren()){stack.push(child);}
+            }
+        }
+        return patternNumbers.get(pattern);
+    }
+
+
+    /**
+     * This method returns the patterns accepting a label, regardless of the children
+     *
+     * @param label the key of the label
+     * @return the numbers of the patterns
+     */
+    private int[] candidates(Object label){
+        int[] numbers = candidates.get(label);
+        if(numbers == null){
+            numbers = new int[0];
+            for(int i = 0; i < patterns.size(); i++){
+                if(patterns.get(i).acceptsLabel(label)){
+                    numbers = Arrays.copyOf(numbers, numbers.length + 1);
+                    numbers[numbers.length - 1] = i;
+                }
+            }
+            candidates.put(label, numbers);
+        }
+        return numbers;
+    }
+
+
+    /**
+     * This method computes the state of a node from its label and from the states of its children
+     *
+     * @param transition the label of the node, its number of children and their states
+     * @param arity the number of children of the node
+     * @return the state of the node
+     */
+    private State computeState(Transition transition, int arity){
+        BitSet matched = new BitSet(patterns.size());
+        for(int candidate : candidates(transition.label)){
+            int[] children = childPatterns[candidate];
+            boolean matches = children == null || children.length == arity;
+            for(int i = 0; matches && children != null && i < children.length; i++){
+                matches = stateList.get(transition.childStates[i]).matched.get(children[i]);
+            }
+            if(matches){matched.set(candidate);}
+        }
+        State state = states.get(matched);
+        if(state == null){
+            int rule = -1;
+            for(int i = 0; i < rulePatterns.length && rule < 0; i++){
+                if(matched.get(rulePatterns[i])){rule = i;}
+            }
+            state = new State(stateList.size(), matched, rule);
+            states.put(matched, state);
+            stateList.add(state);
+        }
+        return state;
+    }
+
+
+    /**
+     * This method returns the state of a node whose rewritten children are on the top of the stack of the rewritten nodes
+     *
+     * @param tree the node
+     * @param values the stack of the rewritten nodes
+     * @param base the position of the first child of the node in the stack
+     * @return the state of the node
+     */
+    private State state(ParseTree tree, Values values, int base){
+        int arity = values.nodes.size() - base;
+        int[] childStates = arity <= maxArity ? Arrays.copyOfRange(values.states, base, base + arity) : null;
+        Transition transition = new Transition(TreePattern.labelKey(tree.getLabel()), childStates == null ? -1 : arity, childStates);
+        State state = transitions.get(transition);
+        if(state == null){
+            state = computeState(transition, arity);
+            transitions.put(transition, state);
+        }
+        return state;
+    }
+
+
+    /**
+     * This method rewrites a tree. The rules must make progress: a rule building a node matched by the same rule
+     * again, with the same children, never terminates. The nodes built by a rule are rewritten, except for the
+     * children of the matched node they reuse; other descendants of the matched node they reuse are rewritten
+     * again, which leaves them unchanged
+     *
+     * @param tree the tree to rewrite, whose unchanged subtrees are reused by the rewritten tree
+     * @return the nodes replacing the root of the tree, in order
+     */
+    public List<ParseTree> rewrite(ParseTree tree){
+        Values values = new Values();
+        Deque<Frame> stack = new ArrayDeque<>();
+        stack.push(new Frame(null, new ArrayList<>(Arrays.asList(tree)), 0, null));
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            if(frame.next < frame.children.size()){
+                ParseTree child = frame.children.get(frame.next++);
+                Integer state = frame.rewritten == null ? null : frame.rewritten.get(child);
+                if(state != null){values.push(child, state);}
+                else if(child.getChildren().isEmpty()){reduce(child, values, values.nodes.size(), frame.rewritten, stack);}
+                else{stack.push(new Frame(child, child.getChildren(), values.nodes.size(), frame.rewritten));}
+                continue;
+            }
+            stack.pop();
+            if(frame.tree != null){reduce(frame.tree, values, frame.base, frame.rewritten, stack);}
+        }
+        return values.nodes;
+    }
+
+
+    /**
+     * This method applies the first rule matching a node whose children are rewritten, the nodes built
+     * by the rule being pushed on the stack of the traversal
+     *
+     * @param tree the node
+     * @param values the stack of the rewritten nodes, whose top holds the rewritten children of the node
+     * @param base the position of the first child of the node in the stack of the rewritten nodes
+     * @param rewritten the states of the rewritten nodes reused by the rule which built the node, or null
+     * @param stack the stack of the traversal
+     */
+    private void reduce(ParseTree tree, Values values, int base, Map<ParseTree, Integer> rewritten, Deque<Frame> stack){
+        State state = state(tree, values, base);
+        if(state.rule < 0){
+            values.push(build(tree, values.nodes, base), state.number);
+            return;
+        }
+        applications[state.rule]++;
+        RewriteRule rule = rules.get(state.rule);
+        switch(rule.getKind()){
+            case SPLICE:
+                break;
+            case DELETE:
+                values.nodes.subList(base, values.nodes.size()).clear();
+                break;
+            default:
+                Map<ParseTree, Integer> children = new IdentityHashMap<>();
+                for(int i = base; i < values.nodes.size(); i++){children.put(values.nodes.get(i), values.states[i]);}
+                List<ParseTree> replacement = rule.getRewrite().rewrite(build(tree, values.nodes, base));
+                stack.push(new Frame(null, replacement, base, children));
+        }
+    }
+
+
+    /**
+     * This method builds a node over its rewritten children, removing them from the stack of the rewritten nodes.
+     * The node is reused if its children are unchanged
+     *
+     * @param tree the node
+     * @param values the stack of the rewritten nodes
+     * @param base the position of the first child of the node in the stack
+     * @return the node over the rewritten children
+     */
+    private static ParseTree build(ParseTree tree, List<ParseTree> values, int base){
+        List<ParseTree> children = values.subList(base, values.size());
+        ParseTree node = sameNodes(children, tree.getChildren()) ? tree : new ParseTree(tree.getLabel(), new ArrayList<>(children));
+        children.clear();
+        return node;
+    }
+
+
+    /**
+     * This method tells whether two lists hold the same nodes, in the same order
+     *
+     * @param a the first list
+     * @param b the second list
+     * @return true if the lists hold the same nodes
+     */
+    private static boolean sameNodes(List<ParseTree> a, List<ParseTree> b){
+        if(a.size() != b.size()){return false;}
+        for(int i = 0; i < a.size(); i++){
+            if(a.get(i) != b.get(i)){return false;}
+        }
+        return true;
+    }
+
+
+    /**
+     * This method returns the number of applications of each rule since the engine was built
+     *
+     * @return the number of applications of each rule, by name, in the order of the rules
+     */
+    public Map<String, Long> getApplications(){
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for(int i = 0; i < rules.size(); i++){counts.merge(rules.get(i).getName(), applications[i], Long::sum);}
+        return counts;
+    }
+
+
+    //Getters
+    public int getStateCount(){return stateList.size();}
+    public int getTransitionCount(){return transitions.size();}
+
+}
@@ -0,0 +1,100 @@
+package Parser;
+
+import java.util.List;
+
+/**
+ * A rule rewriting the nodes matched by a pattern. A node can be deleted, replaced by its children,
+ * which is called splicing, or replaced by the nodes built by a rewrite. The children of a node are
+ * rewritten before the node, so a rewrite only builds new nodes over them: it must not modify the node
+ * it is given, nor its descendants.
+ */
+public class RewriteRule {
+
+    /**
+     * The kinds of rules
+     */
+    enum Kind {DELETE, SPLICE, REPLACE}
+
+
+    /**
+     * The replacement of a matched node
+     */
+    @FunctionalInterface
+    public interface Rewrite {
+
+        /**
+         * This method builds the nodes replacing a matched node
+         *
+         * @param tree the matched node, whose children are already rewritten
+         * @return the nodes replacing the node, in order
+         */
+        List<ParseTree> rewrite(ParseTree tree);
+    }
+
+
+    private final String name;
+    private final TreePattern pattern;
+    private final Kind kind;
+    private final Rewrite rewrite;
+
+
+    /**
+     * Constructs a rule
+     *
+     * @param name the name of the rule, used in the statistics of the engine
+     * @param pattern the pattern matched by the rule
+     * @param kind the kind of the rule
+     * @param rewrite the replacement of the matched nodes, for a rule replacing them
+     */
+    private RewriteRule(String name, TreePattern pattern, Kind kind, Rewrite rewrite){
+        this.name = name;
+        this.pattern = pattern;
+        this.kind = kind;
+        this.rewrite = rewrite;
+    }
+
+
+    /**
+     * This method builds a rule deleting the matched nodes with their subtrees
+     *
+     * @param name the name of the rule
+     * @param pattern the pattern matched by the rule
+     * @return the rule
+     */
+    public static RewriteRule delete(String name, TreePattern pattern){
+        return new RewriteRule(name, pattern, Kind.DELETE, null);
+    }
+
+
+    /**
+     * This method builds a rule replacing the matched nodes by their children
+     *
+     * @param name the name of the rule
+     * @param pattern the pattern matched by the rule
+     * @return the rule
+     */
+    public static RewriteRule splice(String name, TreePattern pattern){
+        return new RewriteRule(name, pattern, Kind.SPLICE, null);
+    }
+
+
+    /**
+     * This method builds a rule replacing the matched nodes by the nodes built by a rewrite
+     *
+     * @param name the name of the rule
+     * @param pattern the pattern matched by the rule
+     * @param rewrite the replacement of the matched nodes
+     * @return the rule
+     */
+    public static RewriteRule replace(String name, TreePattern pattern, Rewrite rewrite){
+        return new RewriteRule(name, pattern, Kind.REPLACE, rewrite);
+    }
+
+
+    //Getters
+    public String getName(){return name;}
+    TreePattern getPattern(){return pattern;}
+    Kind getKind(){return kind;}
+    Rewrite getRewrite(){return rewrite;}
+
+}
@@ -0,0 +1,275 @@
+package Parser;
+
+import Main.LexicalUnit;
+import Main.Symbol;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Writes a tree to an Appendable in LaTeX (forest), TikZ, DOT or JSON. Every format is written in a single pass
+ * over the tree, the text of each node being appended once to the output, and the tree is walked with an explicit
+ * stack so that the depth of the tree is not limited by the call stack.
+ */
+public class TreeExporter {
+
+    /**
+     * The text written by a format around the nodes of the tree
+     */
+    private interface Format {
+        void enter(ParseTree tree, int id, Appendable out) throws IOException;
+        void beforeChild(int index, int id, int childId, Appendable out) throws IOException;
+        void afterChild(int index, Appendable out) throws IOException;
+        void leave(ParseTree tree, Appendable out) throws IOException;
+    }
+
+
+    /**
+     * A node being written: its tree, its number in prefix order and the index of its next child
+     */
+    private static final class Frame {
+        final ParseTree tree;
+        final int id;
+        int next = 0;
+
+        Frame(ParseTree tree, int id){
+            this.tree = tree;
+            this.id = id;
+        }
+    }
+
+
+    /**
+     * This method walks a tree in prefix order with an explicit stack, writing the text of a format
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @param format the format of the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    private static void walk(ParseTree tree, Appendable out, Format format) throws IOException{
+        Deque<Frame> stack = new ArrayDeque<>();
+        int ids = 0;
+        stack.push(new Frame(tree, ids++));
+        format.enter(tree, 0, out);
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            if(frame.next > 0){format.afterChild(frame.next - 1, out);}
+            if(frame.next == frame.tree.getChildren().size()){
+                format.leave(frame.tree, out);
+                stack.pop();
+                continue;
+            }
+            ParseTree child = frame.tree.getChildren().get(frame.next);
+            int childId = ids++;
+            format.beforeChild(frame.next, frame.id, childId, out);
+            frame.next++;
+            stack.push(new Frame(child, childId));
+            format.enter(child, childId, out);
+        }
+    }
+
+
+    /**
+     * This method writes a tree as the LaTeX code of a forest tree
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeLaTeXTree(ParseTree tree, Appendable out) throws IOException{
+        walk(tree, out, new Format(){
+            @Override
+            public void enter(ParseTree tree, int id, Appendable out) throws IOException{
+                out.append("[{").append(tree.getLabel().toTexString()).append("} ");
+            }
+            @Override
+            public void beforeChild(int index, int id, int childId, Appendable out){}
+            @Override
+            public void afterChild(int index, Appendable out){}
+            @Override
+            public void leave(ParseTree tree, Appendable out) throws IOException{out.append(']');}
+        });
+    }
+
+
+    /**
+     * This method writes a tree as TikZ code
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeTikZ(ParseTree tree, Appendable out) throws IOException{
+        walk(tree, out, new Format(){
+            @Override
+            public void enter(ParseTree tree, int id, Appendable out) throws IOException{
+                out.append("node {").append(tree.getLabel().toTexString()).append("}\n");
+            }
+            @Override
+            public void beforeChild(int index, int id, int childId, Appendable out) throws IOException{out.append("child { ");}
+            @Override
+            public void afterChild(int index, Appendable out) throws IOException{out.append(" }\n");}
+            @Override
+            public void leave(ParseTree tree, Appendable out){}
+        });
+    }
+
+
+    /**
+     * This method writes a tree as a TikZ picture
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeTikZPicture(ParseTree tree, Appendable out) throws IOException{
+        out.append("\\begin{tikzpicture}[tree layout]\n\\");
+        writeTikZ(tree, out);
+        out.append(";\n\\end{tikzpicture}");
+    }
+
+
+    /**
+     * This method writes a tree as a forest picture
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeForestPicture(ParseTree tree, Appendable out) throws IOException{
+        out.append("\\begin{forest}for tree={rectangle, draw, l sep=20pt}");
+        writeLaTeXTree(tree, out);
+        out.append(";\n\\end{forest}");
+    }
+
+
+    /**
+     * This method writes a tree as a LaTeX document which can be compiled using PDFLaTeX
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeLaTeX(ParseTree tree, Appendable out) throws IOException{
+        out.append("\\documentclass[border=5pt]{standalone}\n\n\\usepackage{tikz}\n\\usepackage{forest}\n\n\\begin{document}\n\n");
+        writeForestPicture(tree, out);
+        out.append("\n\n\\end{document}\n%% Local Variables:\n%% TeX-engine: pdflatex\n%% End:");
+    }
+
+
+    /**
+     * This method builds the plain text of the label of a node: the variable for a non-terminal,
+     * the lexical unit followed by the value for a variable name or a number, the lexical unit otherwise
+     *
+     * @param label the label of a node
+     * @return the text of the label
+     */
+    private static String labelText(Symbol label){
+        if(label.isNonTerminal()){return String.valueOf(label.getValue());}
+        if(label.getType() == LexicalUnit.VARNAME || label.getType() == LexicalUnit.NUMBER){return label.getType() + " " + label.getValue();}
+        return label.getType().toString();
+    }
+
+
+    /**
+     * This method writes a string with its quotes, backslashes and control characters escaped, as required by DOT and JSON
+     *
+     * @param text the string written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    private static void writeQuoted(String text, Appendable out) throws IOException{
+        out.append('"');
+        for(int i = 0; i < text.length(); i++){
+            char c = text.charAt(i);
+            switch(c){
+                case '"': out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if(c < 0x20){out.append(String.format("\\u%04x", (int) c));}
+                    else{out.append(c);}
+            }
+        }
+        out.append('"');
+    }
+
+
+    /**
+     * This method writes a tree as a Graphviz digraph, one line per node and per edge
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeDot(ParseTree tree, Appendable out) throws IOException{
+        out.append("digraph ParseTree {\n  node [shape=box];\n");
+        walk(tree, out, new Format(){
+            @Override
+            public void enter(ParseTree tree, int id, Appendable out) throws IOException{
+                out.append("  n").append(Integer.toString(id)).append(" [label=");
+                writeQuoted(labelText(tree.getLabel()), out);
+                out.append(tree.getLabel().isNonTerminal() ? "];\n" : ", shape=ellipse];\n");
+            }
+            @Override
+            public void beforeChild(int index, int id, int childId, Appendable out) throws IOException{
+                out.append("  n").append(Integer.toString(id)).append(" -> n").append(Integer.toString(childId)).append(";\n");
+            }
+            @Override
+            public void afterChild(int index, Appendable out){}
+            @Override
+            public void leave(ParseTree tree, Appendable out){}
+        });
+        out.append("}\n");
+    }
+
+
+    /**
+     * This method writes a tree as JSON, each node being an object with its symbol (a variable or a lexical unit),
+     * its value and position for a token, and the array of its children. Every node starts on a new line
+     *
+     * @param tree the tree written
+     * @param out the output
+     * @throws IOException the exception raised if the output cannot be written
+     */
+    public static void writeJSON(ParseTree tree, Appendable out) throws IOException{
+        walk(tree, out, new Format(){
+            @Override
+            public void enter(ParseTree tree, int id, Appendable out) throws IOException{
+                Symbol label = tree.getLabel();
+                if(id > 0){out.append('\n');}
+                if(label.isNonTerminal()){
+                    out.append("{\"variable\":");
+                    writeQuoted(String.valueOf(label.getValue()), out);
+                }
+                else{
+                    out.append("{\"unit\":");
+                    writeQuoted(label.getType().toString(), out);
+                    if(label.getValue() instanceof Integer){out.append(",\"value\":").append(label.getValue().toString());}
+                    else if(label.getValue() != null){
+                        out.append(",\"value\":");
+                        writeQuoted(label.getValue().toString(), out);
+                    }
+                    if(label.getColumn() != Symbol.UNDEFINED_POSITION){
+                        out.append(",\"line\":").append(Integer.toString(label.getLine()));
+                        out.append(",\"column\":").append(Integer.toString(label.getColumn()));
+                    }
+                }
+                out.append(",\"children\":[");
+            }
+            @Override
+            public void beforeChild(int index, int id, int childId, Appendable out) throws IOException{
+                if(index > 0){out.append(',');}
+            }
+            @Override
+            public void afterChild(int index, Appendable out){}
+            @Override
+            public void leave(ParseTree tree, Appendable out) throws IOException{out.append("]}");}
+        });
+        out.append('\n');
+    }
+
+}
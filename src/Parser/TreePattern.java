@@ -0,0 +1,102 @@
+package Parser;
+
+import Main.LexicalUnit;
+import Main.Symbol;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A pattern over the nodes of a tree: the labels it accepts, given as variables for the non-terminal nodes
+ * and as lexical units for the terminal ones, and optionally the exact shape of the children of the node,
+ * one pattern per child. A pattern without a shape accepts any number of children.
+ */
+public class TreePattern {
+    private final Set<Object> labels;
+    private final TreePattern[] children;
+
+
+    /**
+     * Constructs a pattern
+     *
+     * @param labels the variables and lexical units accepted, or null to accept any label
+     * @param children the patterns of the children, or null to accept any children
+     */
+    private TreePattern(Set<Object> labels, TreePattern[] children){
+        this.labels = labels;
+        this.children = children;
+    }
+
+
+    /**
+     * This method builds a pattern accepting any node
+     *
+     * @return the pattern
+     */
+    public static TreePattern any(){
+        return new TreePattern(null, null);
+    }
+
+
+    /**
+     * This method builds a pattern accepting the non-terminal nodes labeled by some variables
+     *
+     * @param variables the variables accepted
+     * @return the pattern
+     */
+    public static TreePattern variable(String... variables){
+        return new TreePattern(new HashSet<>(Arrays.asList(variables)), null);
+    }
+
+
+    /**
+     * This method builds a pattern accepting the terminal nodes of some lexical units
+     *
+     * @param units the lexical units accepted
+     * @return the pattern
+     */
+    public static TreePattern unit(LexicalUnit... units){
+        return new TreePattern(new HashSet<>(Arrays.asList(units)), null);
+    }
+
+
+    /**
+     * This method builds a pattern accepting the same labels as this one, with an exact shape of children
+     *
+     * @param children the patterns of the children, in order
+     * @return the pattern
+     */
+    public TreePattern withChildren(TreePattern... children){
+        return new TreePattern(labels, children.clone());
+    }
+
+
+    /**
+     * This method returns the key under which the label of a node is matched: its lexical unit
+     * for a terminal node, its variable otherwise
+     *
+     * @param label the label of a node
+     * @return the key of the label
+     */
+    static Object labelKey(Symbol label){
+        return label.isTerminal() ? label.getType() : label.getValue();
+    }
+
+
+    /**
+     * This method tells whether the pattern accepts a label, regardless of the children
+     *
+     * @param labelKey the key of the label, as returned by labelKey
+     * @return true if the label is accepted
+     */
+    boolean acceptsLabel(Object labelKey){
+        return labels == null || labels.contains(labelKey);
+    }
+
+
+    //Getters
+    Set<Object> getLabels(){return labels;}
+    TreePattern[] getChildren(){return children;}
+
+}
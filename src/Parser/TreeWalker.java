@@ -0,0 +1,123 @@
+package Parser;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Walks parse trees with an explicit stack, so that the depth of a tree is not limited by the call stack.
+ * The children of a node are read when the walk reaches the node, after the action of a pre-order walk
+ * on the node, so that an action may replace the children of the node it is applied to. The actions
+ * of the pre-order and post-order walks are applied to the children from the last to the first,
+ * the order in which the passes of toAST transform the trees in place.
+ */
+public class TreeWalker {
+
+    /**
+     * A node being walked: its children, the index of the next child to walk and the position
+     * of the values of its walked children in the stack of the values
+     */
+    private static final class Frame {
+        final ParseTree tree;
+        final List<ParseTree> children;
+        final int base;
+        int next = 0;
+
+        Frame(ParseTree tree, List<ParseTree> children, int base){
+            this.tree = tree;
+            this.children = children;
+            this.base = base;
+        }
+    }
+
+
+    /**
+     * The computation of the values of a node from the values of its children
+     *
+     * @param <R> the type of the values computed for the nodes
+     */
+    @FunctionalInterface
+    public interface Reduction<R> {
+
+        /**
+         * This method replaces the values of the children of a node, on the top of the stack of the values,
+         * by the values of the node, of which there may be any number
+         *
+         * @param tree the node reduced
+         * @param values the stack of the values
+         * @param base the position in the stack of the values of the first child of the node
+         */
+        void reduce(ParseTree tree, List<R> values, int base);
+    }
+
+
+    /**
+     * This method applies an action to every node of a tree, a node before its children,
+     * the children being walked from the last to the first
+     *
+     * @param tree the root of the tree
+     * @param action the action applied to the nodes
+     */
+    public static void preOrder(ParseTree tree, Consumer<ParseTree> action){
+        Deque<ParseTree> stack = new ArrayDeque<>();
+        stack.push(tree);
+        while(!stack.isEmpty()){
+            ParseTree node = stack.pop();
+            action.accept(node);
+            for(ParseTree child : node.getChildren()){stack.push(child);}
+        }
+    }
+
+
+    /**
+     * This method applies an action to every node of a tree, a node after its children,
+     * the children being walked from the last to the first
+     *
+     * @param tree the root of the tree
+     * @param action the action applied to the nodes
+     */
+    public static void postOrder(ParseTree tree, Consumer<ParseTree> action){
+        Function<ParseTree, List<ParseTree>> reversedChildren = node -> {
+            List<ParseTree> children = new ArrayList<>(node.getChildren());
+            Collections.reverse(children);
+            return children;
+        };
+        postOrder(tree, reversedChildren, (node, values, base) -> action.accept(node));
+    }
+
+
+    /**
+     * This method computes values for every node of a tree from the values of its children, kept on a stack
+     * in the order of the children. The lists of children must not change while their nodes are walked
+     *
+     * @param tree the root of the tree
+     * @param children the function giving the children of a node, in the order they are walked
+     * @param reduction the computation of the values of a node
+     * @param <R> the type of the values computed for the nodes
+     * @return the values of the root
+     */
+    public static <R> List<R> postOrder(ParseTree tree, Function<ParseTree, List<ParseTree>> children, Reduction<R> reduction){
+        Deque<Frame> stack = new ArrayDeque<>();
+        List<R> values = new ArrayList<>();
+        stack.push(new Frame(tree, children.apply(tree), 0));
+        while(!stack.isEmpty()){
+            Frame frame = stack.peek();
+            if(frame.next < frame.children.size()){
+                ParseTree child = frame.children.get(frame.next++);
+                List<ParseTree> grandChildren = children.apply(child);
+                // a leaf is reduced at once, without a frame
+                if(grandChildren.isEmpty()){reduction.reduce(child, values, values.size());}
+                else{stack.push(new Frame(child, grandChildren, values.size()));}
+                continue;
+            }
+            stack.pop();
+            reduction.reduce(frame.tree, values, frame.base);
+        }
+        return values;
+    }
+
+}